@@ -0,0 +1,94 @@
+package com.example.socialnetwork.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Cache userId -> bitmap nén (Roaring) các post id mà user đã thích.
+// Nạp một lần cho mỗi user, sau đó cờ likedByMe của cả trang được tính trong bộ nhớ;
+// bitmap được cập nhật tại chỗ khi user thích / bỏ thích
+@Component
+public class LikedPostsCache implements MeterBinder {
+
+    private static final int GENERATION_STRIPES = 4096;
+
+    private final boolean enabled;
+    private final LruTtlCache<Long, Roaring64Bitmap> likedPosts;
+    // Thế hệ theo user (chia theo stripe để không phình theo số user, hai user trùng stripe chỉ làm bỏ lỡ một lần cache).
+    // update() tăng thế hệ; lần nạp chỉ được đưa vào cache nếu thế hệ không đổi kể từ lúc bắt đầu đọc DB,
+    // nếu không bitmap vừa đọc có thể thiếu lượt thích commit giữa chừng mà update() không áp được vào đâu
+    private final long[] generations = new long[GENERATION_STRIPES];
+
+    public LikedPostsCache(@Value("${like.liked-cache.enabled:true}") boolean enabled,
+                           @Value("${like.liked-cache.max-users:10000}") int maxUsers,
+                           @Value("${like.liked-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.likedPosts = new LruTtlCache<>("like.liked-posts", maxUsers, Duration.ofSeconds(ttlSeconds));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Roaring64Bitmap get(Long userId) {
+        return likedPosts.get(userId);
+    }
+
+    // Gọi trước khi đọc danh sách bài viết đã thích từ DB, truyền lại cho put()
+    public synchronized long generation(Long userId) {
+        return generations[stripe(userId)];
+    }
+
+    public Roaring64Bitmap put(Long userId, Collection<Long> postIds, long generation) {
+        Roaring64Bitmap bitmap = new Roaring64Bitmap();
+        postIds.forEach(bitmap::addLong);
+        bitmap.runOptimize();
+        synchronized (this) {
+            if (generations[stripe(userId)] == generation) {
+                likedPosts.put(userId, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    // Roaring64Bitmap không thread-safe: mọi thao tác đọc / ghi đều khóa trên chính bitmap
+    public Set<Long> filterLiked(Roaring64Bitmap bitmap, Collection<Long> postIds) {
+        synchronized (bitmap) {
+            return postIds.stream().filter(bitmap::contains).collect(Collectors.toSet());
+        }
+    }
+
+    public void update(Long userId, Long postId, boolean liked) {
+        Roaring64Bitmap bitmap;
+        synchronized (this) {
+            generations[stripe(userId)]++;
+            bitmap = likedPosts.get(userId);
+        }
+        if (bitmap == null) {
+            return;
+        }
+        synchronized (bitmap) {
+            if (liked) {
+                bitmap.addLong(postId);
+            } else {
+                bitmap.removeLong(postId);
+            }
+        }
+    }
+
+    private static int stripe(Long userId) {
+        return Long.hashCode(userId) & (GENERATION_STRIPES - 1);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        likedPosts.bindTo(registry);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.socialnetwork.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bloom filter cho id kiểu long: mightContain = false nghĩa là chắc chắn chưa từng add, true thì "có thể".
+// Chỉ thêm, không xóa; an toàn khi nhiều luồng cùng add / đọc (mỗi bit được bật bằng CAS trên AtomicLongArray)
+public class LongBloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    // Kích thước theo công thức chuẩn: m = -n ln p / (ln 2)^2 bit, k = m / n * ln 2 hàm băm
+    public LongBloomFilter(long expectedItems, double falsePositiveRate) {
+        long n = Math.max(expectedItems, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    public void add(long value) {
+        long hash = mix(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(long value) {
+        long hash = mix(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long sizeInBytes() {
+        return bitCount / 8;
+    }
+
+    // Double hashing (Kirsch-Mitzenmacher): k vị trí suy ra từ hai nửa của một giá trị băm 64 bit
+    private long index(int combined) {
+        return (combined & Integer.MAX_VALUE) % bitCount;
+    }
+
+    // Bước trộn cuối của MurmurHash3 (fmix64): id liên tiếp vẫn rải đều trên toàn mảng bit
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.socialnetwork.cache;
+
+import com.example.socialnetwork.dto.response.PostResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Cache timeline hai tầng:
+// - feeds: userId -> N post id đầu tiên trong hộp thư (bị xóa khi hộp thư thay đổi)
+// - posts: postId -> PostResponse (bị xóa khi bài viết, lượt thích hoặc bình luận thay đổi)
+@Component
+public class TimelineCache implements MeterBinder {
+
+    private final int feedDepth;
+    private final LruTtlCache<Long, FeedSnapshot> feeds;
+    private final LruTtlCache<Long, PostResponse> posts;
+
+    public record FeedSnapshot(List<Long> postIds, long total) {
+    }
+
+    public TimelineCache(@Value("${timeline.cache.feed-depth:100}") int feedDepth,
+                         @Value("${timeline.cache.max-users:10000}") int maxUsers,
+                         @Value("${timeline.cache.max-posts:50000}") int maxPosts,
+                         @Value("${timeline.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.feedDepth = feedDepth;
+        this.feeds = new LruTtlCache<>("timeline.feeds", maxUsers, Duration.ofSeconds(ttlSeconds));
+        this.posts = new LruTtlCache<>("timeline.posts", maxPosts, Duration.ofSeconds(ttlSeconds));
+    }
+
+    public int getFeedDepth() {
+        return feedDepth;
+    }
+
+    public FeedSnapshot getFeed(Long userId) {
+        return feeds.get(userId);
+    }
+
+    public void putFeed(Long userId, FeedSnapshot snapshot) {
+        feeds.put(userId, snapshot);
+    }
+
+    public void evictFeed(Long userId) {
+        feeds.invalidate(userId);
+    }
+
+    public void evictFeeds(Collection<Long> userIds) {
+        feeds.invalidateAll(userIds);
+    }
+
+    public Map<Long, PostResponse> getPosts(Collection<Long> postIds) {
+        return posts.getAll(postIds);
+    }
+
+    public void putPost(PostResponse post) {
+        posts.put(post.getId(), post);
+    }
+
+    public void evictPost(Long postId) {
+        posts.invalidate(postId);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        feeds.bindTo(registry);
+        posts.bindTo(registry);
+    }
+}
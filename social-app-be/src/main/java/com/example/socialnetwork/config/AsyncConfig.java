@@ -0,0 +1,33 @@
+package com.example.socialnetwork.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+@EnableAsync
+public class AsyncConfig {
+
+    // Thread pool riêng cho việc fan-out bài viết vào hộp thư timeline
+    @Bean(name = "timelineExecutor")
+    public Executor timelineExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("timeline-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Pool riêng cho các phép tính trên đồ thị bạn bè (giao tập bạn chung), tách khỏi common pool
+    @Bean(name = "graphPool", destroyMethod = "shutdown")
+    public ForkJoinPool graphPool(@Value("${social.graph.parallelism:0}") int parallelism) {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+}
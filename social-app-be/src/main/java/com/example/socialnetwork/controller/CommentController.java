@@ -2,6 +2,8 @@ package com.example.socialnetwork.controller;
 
 import com.example.socialnetwork.dto.request.CommentRequest;
 import com.example.socialnetwork.dto.response.CommentResponse;
+import com.example.socialnetwork.dto.response.CommentStreamResponse;
+import com.example.socialnetwork.dto.response.CursorPageResponse;
 import com.example.socialnetwork.service.CommentService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -42,6 +44,61 @@ public class CommentController {
         return ResponseEntity.ok(comments);
     }
 
+    @Operation(summary = "Get all comments of a post, newest first (cursor pagination)")
+    @GetMapping(value = "/posts/{postId}/comments", params = "cursor")
+    public ResponseEntity<CursorPageResponse<CommentResponse>> getCommentStream(
+            @PathVariable Long postId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(commentService.getCommentStream(postId, cursor, size));
+    }
+
+    @Operation(summary = "Poll comments newer than the client's position, with ids of deleted comments")
+    @GetMapping(value = "/posts/{postId}/comments", params = "since")
+    public ResponseEntity<CommentStreamResponse> getCommentsSince(
+            @PathVariable Long postId,
+            @RequestParam(value = "since", required = false) String since,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(commentService.getCommentsSince(postId, since, size));
+    }
+
+    @Operation(summary = "Get top-level comments of a post with their first replies (cursor pagination)")
+    @GetMapping("/posts/{postId}/comments/threads")
+    public ResponseEntity<CursorPageResponse<CommentResponse>> getCommentThreads(
+            @PathVariable Long postId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "10") int size,
+            @RequestParam(value = "replies", defaultValue = "3") int replies) {
+        return ResponseEntity.ok(commentService.getCommentThreads(postId, cursor, size, replies));
+    }
+
+    @Operation(summary = "Reply to a comment")
+    @PostMapping("/comments/{commentId}/replies")
+    public ResponseEntity<CommentResponse> createReply(
+            @PathVariable Long commentId,
+            @Valid @RequestBody CommentRequest request) {
+        CommentResponse reply = commentService.createReply(commentId, request);
+        return new ResponseEntity<>(reply, HttpStatus.CREATED);
+    }
+
+    @Operation(summary = "Get direct replies of a comment (cursor pagination, oldest first)")
+    @GetMapping("/comments/{commentId}/replies")
+    public ResponseEntity<CursorPageResponse<CommentResponse>> getReplies(
+            @PathVariable Long commentId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(commentService.getReplies(commentId, cursor, size));
+    }
+
+    @Operation(summary = "Get all replies below a comment at every depth, parents before children (cursor pagination)")
+    @GetMapping("/comments/{commentId}/subtree")
+    public ResponseEntity<CursorPageResponse<CommentResponse>> getSubtree(
+            @PathVariable Long commentId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(commentService.getSubtree(commentId, cursor, size));
+    }
+
     @Operation(summary = "Update an existing comment")
     @PutMapping("/comments/{commentId}")
     public ResponseEntity<CommentResponse> updateComment(
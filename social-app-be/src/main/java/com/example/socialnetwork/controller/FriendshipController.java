@@ -1,10 +1,18 @@
 package com.example.socialnetwork.controller;
 
+import com.example.socialnetwork.dto.request.FriendRequestBatchRequest;
+import com.example.socialnetwork.dto.response.CursorPageResponse;
+import com.example.socialnetwork.dto.response.FriendRequestResultResponse;
+import com.example.socialnetwork.dto.response.FriendResponse;
+import com.example.socialnetwork.dto.response.FriendSuggestionResponse;
+import com.example.socialnetwork.dto.response.MutualFriendsResponse;
 import com.example.socialnetwork.dto.response.UserProfileResponse;
+import com.example.socialnetwork.service.FriendSuggestionService;
 import com.example.socialnetwork.service.FriendshipService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -19,6 +27,7 @@ import java.util.List;
 public class FriendshipController {
 
     private final FriendshipService friendshipService;
+    private final FriendSuggestionService friendSuggestionService;
 
     @Operation(summary = "Send a friend request to another user")
     @PostMapping("/request/{recipientId}")
@@ -47,6 +56,27 @@ public class FriendshipController {
         return ResponseEntity.ok("Friend request canceled.");
     }
 
+    @Operation(summary = "Accept many friend requests in one call (per-id results)")
+    @PostMapping("/accept:batch")
+    public ResponseEntity<List<FriendRequestResultResponse>> acceptFriendRequests(
+            @Valid @RequestBody FriendRequestBatchRequest request) {
+        return ResponseEntity.ok(friendshipService.acceptFriendRequests(request.getUserIds()));
+    }
+
+    @Operation(summary = "Decline many friend requests in one call (per-id results)")
+    @PostMapping("/decline:batch")
+    public ResponseEntity<List<FriendRequestResultResponse>> declineFriendRequests(
+            @Valid @RequestBody FriendRequestBatchRequest request) {
+        return ResponseEntity.ok(friendshipService.declineFriendRequests(request.getUserIds()));
+    }
+
+    @Operation(summary = "Cancel many sent friend requests in one call (per-id results)")
+    @PostMapping("/cancel:batch")
+    public ResponseEntity<List<FriendRequestResultResponse>> cancelFriendRequests(
+            @Valid @RequestBody FriendRequestBatchRequest request) {
+        return ResponseEntity.ok(friendshipService.cancelFriendRequests(request.getUserIds()));
+    }
+
     @PostMapping("/block/{userIdToBlock}")
     public ResponseEntity<String> blockUser(@PathVariable Long userIdToBlock) {
         friendshipService.blockUser(userIdToBlock);
@@ -72,9 +102,34 @@ public class FriendshipController {
         return ResponseEntity.ok(friendshipService.getFriendList());
     }
 
+    // Chế độ cursor: kích hoạt khi có tham số "cursor" (để trống cho trang đầu tiên)
+    @Operation(summary = "Get the current user's friend list with cursor (keyset) pagination, sorted by name or by friendship date")
+    @GetMapping(value = "", params = "cursor")
+    public ResponseEntity<CursorPageResponse<FriendResponse>> getFriendsByCursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @RequestParam(value = "sort", defaultValue = "name") String sort) {
+        return ResponseEntity.ok(friendshipService.getFriendsByCursor(cursor, size, sort));
+    }
+
     @Operation(summary = "Get pending friend requests received by the current user")
     @GetMapping("/requests/pending")
     public ResponseEntity<List<UserProfileResponse>> getPendingRequests() {
         return ResponseEntity.ok(friendshipService.getPendingFriendRequests());
     }
+
+    @Operation(summary = "Get \"people you may know\" suggestions ranked by mutual friends")
+    @GetMapping("/suggestions")
+    public ResponseEntity<List<FriendSuggestionResponse>> getSuggestions(
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return ResponseEntity.ok(friendSuggestionService.getSuggestions(limit));
+    }
+
+    @Operation(summary = "Get mutual-friend counts with a list of users (optionally with a few mutual friend ids)")
+    @GetMapping("/mutual")
+    public ResponseEntity<List<MutualFriendsResponse>> getMutualFriends(
+            @RequestParam("userIds") List<Long> userIds,
+            @RequestParam(value = "sample", defaultValue = "0") int sample) {
+        return ResponseEntity.ok(friendshipService.getMutualFriends(userIds, sample));
+    }
 }
@@ -1,6 +1,8 @@
 package com.example.socialnetwork.controller;
 
 import com.example.socialnetwork.dto.request.UpdatePostRequest;
+import com.example.socialnetwork.dto.response.CursorPageResponse;
+import com.example.socialnetwork.dto.response.LikerResponse;
 import com.example.socialnetwork.dto.response.PostResponse;
 import com.example.socialnetwork.service.LikeService;
 import com.example.socialnetwork.service.PostService;
@@ -69,4 +71,13 @@ public class PostController {
         Map<String, Object> response = likeService.toggleLike(postId);
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+
+    @Operation(summary = "Get users who liked a post (cursor pagination, newest first)")
+    @GetMapping("/{postId}/likes")
+    public ResponseEntity<CursorPageResponse<LikerResponse>> getLikers(
+            @PathVariable Long postId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(likeService.getLikers(postId, cursor, size));
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.socialnetwork.controller;
 
+import com.example.socialnetwork.dto.response.CursorPageResponse;
 import com.example.socialnetwork.dto.response.PostResponse;
 import com.example.socialnetwork.service.TimelineService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,6 +13,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
@@ -28,4 +30,13 @@ public class TimelineController {
     public ResponseEntity<Page<PostResponse>> getTimeline(@ParameterObject Pageable pageable) {
         return ResponseEntity.ok(timelineService.getTimeline(pageable));
     }
-}
\ No newline at end of file
+
+    // Chế độ cursor: kích hoạt khi có tham số "cursor" (để trống cho trang đầu tiên)
+    @Operation(summary = "Get the timeline feed with cursor (keyset) pagination")
+    @GetMapping(value = "", params = "cursor")
+    public ResponseEntity<CursorPageResponse<PostResponse>> getTimelineByCursor(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "20") int size) {
+        return ResponseEntity.ok(timelineService.getTimelineByCursor(cursor, size));
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.socialnetwork.controller;
 
+import com.example.socialnetwork.dto.request.FriendshipStatusBatchRequest;
 import com.example.socialnetwork.dto.request.UpdateProfileRequest;
+import com.example.socialnetwork.dto.response.ConnectionPathResponse;
 import com.example.socialnetwork.dto.response.FriendshipStatusResponse;
 import com.example.socialnetwork.dto.response.UserProfileResponse;
+import com.example.socialnetwork.service.ConnectionPathService;
 import com.example.socialnetwork.service.FriendshipService;
 import com.example.socialnetwork.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -12,6 +15,7 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -26,6 +30,7 @@ public class UserController {
 
     private final UserService userService;
     private final FriendshipService friendshipService;
+    private final ConnectionPathService connectionPathService;
 
     @Operation(summary = "Get current user's profile")
     @GetMapping("/me")
@@ -46,12 +51,27 @@ public class UserController {
         return ResponseEntity.ok(Map.of("avatarUrl", avatarUrl));
     }
 
+    // Đường đi đi qua danh sách bạn bè của người khác (kể cả người đã chặn), nên chỉ dành cho admin
+    @Operation(summary = "Find the shortest chain of friendships between two users (bounded bidirectional BFS, admin only)")
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/{userId}/connection-path")
+    public ResponseEntity<ConnectionPathResponse> getConnectionPath(@PathVariable Long userId, @RequestParam("to") Long to) {
+        return ResponseEntity.ok(connectionPathService.findPath(userId, to));
+    }
+
     @Operation(summary = "Get the friendship status with another user")
     @GetMapping("/{userId}/friendship-status")
     public ResponseEntity<FriendshipStatusResponse> getFriendshipStatus(@PathVariable Long userId) {
         return ResponseEntity.ok(friendshipService.getFriendshipStatus(userId));
     }
 
+    @Operation(summary = "Get the friendship status with many users in one call")
+    @PostMapping("/friendship-status:batch")
+    public ResponseEntity<Map<Long, String>> getFriendshipStatuses(
+            @Valid @RequestBody FriendshipStatusBatchRequest request) {
+        return ResponseEntity.ok(friendshipService.getFriendshipStatuses(request.getUserIds()));
+    }
+
     // Bổ sung API lấy profile của người khác
     @Operation(summary = "Get a user's profile by ID")
     @GetMapping("/{userId}")
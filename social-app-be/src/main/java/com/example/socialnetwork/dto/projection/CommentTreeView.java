@@ -0,0 +1,6 @@
+package com.example.socialnetwork.dto.projection;
+
+// Bình luận trong cây con, kèm path để làm cursor
+public interface CommentTreeView extends CommentView {
+    String getPath();
+}
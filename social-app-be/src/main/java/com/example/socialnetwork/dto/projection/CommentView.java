@@ -0,0 +1,26 @@
+package com.example.socialnetwork.dto.projection;
+
+import java.time.LocalDateTime;
+
+// Bình luận kèm thông tin rút gọn của tác giả, đọc bằng một câu truy vấn (JPQL hoặc native)
+public interface CommentView {
+    Long getId();
+
+    String getContent();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+
+    Long getPostId();
+
+    Long getParentId();
+
+    Long getReplyCount();
+
+    Long getAuthorId();
+
+    String getAuthorFullName();
+
+    String getAuthorAvatarUrl();
+}
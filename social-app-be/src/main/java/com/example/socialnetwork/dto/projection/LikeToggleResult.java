@@ -0,0 +1,5 @@
+package com.example.socialnetwork.dto.projection;
+
+// Kết quả toggle: trạng thái thích mới và giá trị cột like_count đọc trong cùng câu lệnh
+public record LikeToggleResult(boolean liked, long likeCount) {
+}
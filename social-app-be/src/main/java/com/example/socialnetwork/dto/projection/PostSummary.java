@@ -0,0 +1,17 @@
+package com.example.socialnetwork.dto.projection;
+
+import java.time.LocalDateTime;
+
+// Dữ liệu của một bài viết kèm thông tin tác giả và số đếm, lấy trong một câu truy vấn (không nạp collection)
+public record PostSummary(Long id,
+                          String content,
+                          String imageUrl,
+                          LocalDateTime createdAt,
+                          LocalDateTime updatedAt,
+                          Long authorId,
+                          String authorEmail,
+                          String authorFullName,
+                          String authorAvatarUrl,
+                          Long likeCount,
+                          Long commentCount) {
+}
@@ -0,0 +1,7 @@
+package com.example.socialnetwork.dto.projection;
+
+import java.time.LocalDateTime;
+
+// Một mục trên timeline: đủ để sắp xếp và trộn giữa nguồn push (hộp thư) và pull (bài viết của tác giả lớn)
+public record TimelineItem(Long postId, LocalDateTime createdAt) {
+}
@@ -0,0 +1,14 @@
+package com.example.socialnetwork.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class FriendshipStatusBatchRequest {
+    @NotEmpty(message = "User ids cannot be empty")
+    @Size(max = 500, message = "At most 500 user ids per request")
+    private List<Long> userIds;
+}
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @Builder
@@ -17,4 +18,8 @@ public class CommentResponse {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private UserProfileResponse author;
+    private Long parentId;
+    private long replyCount;
+    // Chỉ có trong danh sách dạng luồng (threads): K trả lời đầu tiên của bình luận
+    private List<CommentResponse> replies;
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.example.socialnetwork.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CommentStreamResponse {
+    // Bình luận mới hơn mốc, cũ nhất trước
+    private List<CommentResponse> comments;
+    // Id các bình luận đã bị xóa kể từ lần poll trước
+    private List<Long> deletedIds;
+    // Mốc cho lần poll tiếp theo
+    private String since;
+    // true nếu còn bình luận mới chưa trả về (poll lại ngay với mốc mới)
+    private boolean hasMore;
+}
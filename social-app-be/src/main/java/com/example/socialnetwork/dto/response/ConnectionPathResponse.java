@@ -0,0 +1,25 @@
+package com.example.socialnetwork.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConnectionPathResponse {
+    private Long fromUserId;
+    private Long toUserId;
+    private boolean found;
+    // Số bậc quan hệ (số cạnh trên đường đi), null nếu không tìm thấy
+    private Integer degrees;
+    // Các user trên đường đi ngắn nhất, gồm cả hai đầu
+    private List<Long> path;
+    private int visitedUsers;
+    // true: dừng vì hết ngân sách số user được duyệt, nên "không tìm thấy" chưa chắc là không có đường đi
+    private boolean budgetExhausted;
+}
@@ -0,0 +1,20 @@
+package com.example.socialnetwork.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> content;
+    // Cursor mờ (opaque) để lấy trang tiếp theo, null nếu đã hết dữ liệu
+    private String nextCursor;
+    private boolean hasNext;
+    private int size;
+}
@@ -0,0 +1,17 @@
+package com.example.socialnetwork.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Kết quả cho từng id trong một thao tác hàng loạt; error cùng thông báo với API xử lý từng lời mời
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendRequestResultResponse {
+    private Long userId;
+    private boolean success;
+    private String error;
+}
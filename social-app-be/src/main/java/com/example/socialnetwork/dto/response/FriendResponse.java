@@ -0,0 +1,19 @@
+package com.example.socialnetwork.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendResponse {
+    private Long userId;
+    private String fullName;
+    private String avatarUrl;
+    private LocalDateTime friendsSince;
+}
@@ -0,0 +1,15 @@
+package com.example.socialnetwork.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendSuggestionResponse {
+    private UserProfileResponse user;
+    private int mutualFriendCount;
+}
@@ -0,0 +1,19 @@
+package com.example.socialnetwork.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MutualFriendsResponse {
+    private Long userId;
+    private int mutualFriendCount;
+    // Vài id bạn chung đầu tiên (khi có yêu cầu), để hiển thị avatar trên thẻ hồ sơ
+    private List<Long> mutualFriendIds;
+}
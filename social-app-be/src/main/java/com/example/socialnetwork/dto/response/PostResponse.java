@@ -7,9 +7,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class PostResponse {
@@ -21,4 +22,7 @@ public class PostResponse {
     private UserProfileResponse author;
     private long likeCount;
     private long commentCount;
+    private boolean likedByMe;
+    // Các bình luận mới nhất hiển thị ngay dưới bài viết
+    private List<CommentResponse> latestComments;
 }
\ No newline at end of file
@@ -32,6 +32,21 @@ public class Comment {
     @JoinColumn(name = "post_id", nullable = false)
     private Post post;
 
+    // Bình luận cha; null với bình luận gốc
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "parent_id")
+    private Comment parent;
+
+    // Id của các bình luận tổ tiên (mỗi id 19 chữ số + '/'), rỗng với bình luận gốc
+    @Builder.Default
+    @Column(nullable = false, length = 900)
+    private String path = "";
+
+    // Số trả lời trực tiếp, chỉ được cập nhật bằng câu UPDATE cộng dồn
+    @Builder.Default
+    @Column(nullable = false, updatable = false)
+    private long replyCount = 0;
+
     @CreationTimestamp
     private LocalDateTime createdAt;
 
@@ -41,6 +41,20 @@ public class Post {
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<PostLike> likes = new HashSet<>();
 
+    // false: tác giả vượt ngưỡng bạn bè, bài viết được kéo lúc đọc thay vì đẩy vào hộp thư
+    @Builder.Default
+    @Column(nullable = false)
+    private boolean fannedOut = true;
+
+    // Bộ đếm chỉ được cập nhật bằng câu UPDATE cộng dồn (PostCounterService), không ghi đè khi lưu entity
+    @Builder.Default
+    @Column(nullable = false, updatable = false)
+    private long likeCount = 0;
+
+    @Builder.Default
+    @Column(nullable = false, updatable = false)
+    private long commentCount = 0;
+
     @CreationTimestamp
     private LocalDateTime createdAt;
 
@@ -2,5 +2,5 @@ package com.example.socialnetwork.entity;
 
 public enum Role {
     ROLE_USER,
-//    ROLE_ADMIN
+    ROLE_ADMIN
 }
\ No newline at end of file
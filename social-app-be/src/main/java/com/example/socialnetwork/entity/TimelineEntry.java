@@ -0,0 +1,32 @@
+package com.example.socialnetwork.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "timeline_entries")
+@IdClass(TimelineEntryId.class)
+public class TimelineEntry {
+    // Chủ hộp thư (người sẽ thấy bài viết trên timeline)
+    @Id
+    private Long userId;
+
+    @Id
+    private Long postId;
+
+    @Column(nullable = false)
+    private Long authorId;
+
+    // Sao chép từ posts.created_at để sắp xếp mà không cần join
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
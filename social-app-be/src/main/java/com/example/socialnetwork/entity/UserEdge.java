@@ -0,0 +1,36 @@
+package com.example.socialnetwork.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Một chiều của quan hệ trong friendships, nhìn từ phía userId (chỉ đọc qua JPA;
+// được ghi bằng FriendshipRepository.upsertEdges / deleteEdges cùng lúc với friendships)
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "user_edges")
+@IdClass(UserEdgeId.class)
+public class UserEdge {
+    @Id
+    private Long userId;
+
+    @Id
+    private Long otherId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private FriendshipStatus status;
+
+    @Column(nullable = false)
+    private Long actionUserId;
+
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,15 @@
+package com.example.socialnetwork.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserEdgeId implements Serializable {
+    private Long userId;
+    private Long otherId;
+}
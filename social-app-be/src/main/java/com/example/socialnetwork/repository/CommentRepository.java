@@ -1,16 +1,195 @@
 package com.example.socialnetwork.repository;
 
+import com.example.socialnetwork.dto.projection.CommentTreeView;
+import com.example.socialnetwork.dto.projection.CommentView;
 import com.example.socialnetwork.entity.Comment;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    Page<Comment> findByPostIdOrderByCreatedAtDesc(Long postId, Pageable pageable);
+    String VIEW_COLUMNS = "c.id AS id, c.content AS content, c.createdAt AS createdAt, c.updatedAt AS updatedAt, " +
+            "c.post.id AS postId, c.parent.id AS parentId, c.replyCount AS replyCount, " +
+            "u.id AS authorId, u.fullName AS authorFullName, u.avatarUrl AS authorAvatarUrl";
+
+    String NATIVE_VIEW_COLUMNS = "r.id AS id, r.content AS content, r.created_at AS createdAt, r.updated_at AS updatedAt, " +
+            "r.post_id AS postId, r.parent_id AS parentId, r.reply_count AS replyCount, " +
+            "u.id AS authorId, u.full_name AS authorFullName, u.avatar_url AS authorAvatarUrl";
+
+    // Ẩn bình luận của những user có quan hệ chặn với người xem ngay trong truy vấn để kích thước trang vẫn đúng.
+    // hasBlocks = false (người xem chắc chắn không có quan hệ chặn nào) thì bỏ qua nhánh NOT EXISTS
+    String NOT_BLOCKED = "(:hasBlocks = false OR NOT EXISTS (SELECT 1 FROM UserEdge b " +
+            "WHERE b.userId = :viewerId AND b.otherId = u.id AND b.status = 'BLOCKED'))";
+
+    @Query(value = "SELECT c FROM Comment c JOIN c.user u WHERE c.post.id = :postId AND " + NOT_BLOCKED +
+            " ORDER BY c.createdAt DESC",
+            countQuery = "SELECT COUNT(c) FROM Comment c JOIN c.user u WHERE c.post.id = :postId AND " + NOT_BLOCKED)
+    Page<Comment> findVisibleByPostId(@Param("postId") Long postId,
+                                      @Param("viewerId") Long viewerId,
+                                      @Param("hasBlocks") boolean hasBlocks,
+                                      Pageable pageable);
+
+    // Bình luận gốc của một bài viết theo keyset (createdAt, id), mới nhất trước
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Comment c JOIN c.user u " +
+            "WHERE c.post.id = :postId AND c.parent IS NULL AND " + NOT_BLOCKED + " ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommentView> findTopLevel(@Param("postId") Long postId,
+                                   @Param("viewerId") Long viewerId,
+                                   @Param("hasBlocks") boolean hasBlocks,
+                                   Limit limit);
+
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Comment c JOIN c.user u " +
+            "WHERE c.post.id = :postId AND c.parent IS NULL AND " + NOT_BLOCKED + " " +
+            "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :commentId)) " +
+            "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommentView> findTopLevelBefore(@Param("postId") Long postId,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("commentId") Long commentId,
+                                         @Param("viewerId") Long viewerId,
+                                         @Param("hasBlocks") boolean hasBlocks,
+                                         Limit limit);
+
+    // Trả lời trực tiếp của một bình luận theo keyset, cũ nhất trước
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Comment c JOIN c.user u " +
+            "WHERE c.parent.id = :parentId AND " + NOT_BLOCKED + " ORDER BY c.createdAt, c.id")
+    List<CommentView> findReplies(@Param("parentId") Long parentId,
+                                  @Param("viewerId") Long viewerId,
+                                  @Param("hasBlocks") boolean hasBlocks,
+                                  Limit limit);
+
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Comment c JOIN c.user u " +
+            "WHERE c.parent.id = :parentId AND " + NOT_BLOCKED + " " +
+            "AND (c.createdAt > :createdAt OR (c.createdAt = :createdAt AND c.id > :commentId)) " +
+            "ORDER BY c.createdAt, c.id")
+    List<CommentView> findRepliesAfter(@Param("parentId") Long parentId,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("commentId") Long commentId,
+                                       @Param("viewerId") Long viewerId,
+                                       @Param("hasBlocks") boolean hasBlocks,
+                                       Limit limit);
+
+    // K trả lời đầu tiên của mỗi bình luận cha trong trang, một câu truy vấn cho cả trang.
+    // Lọc chặn nằm bên trong ROW_NUMBER để mỗi luồng vẫn đủ K trả lời hiển thị được
+    @Query(value = "SELECT " + NATIVE_VIEW_COLUMNS + " FROM (SELECT c.*, ROW_NUMBER() OVER (PARTITION BY c.parent_id ORDER BY c.created_at, c.id) AS rn " +
+            "FROM comments c WHERE c.parent_id IN (:parentIds) " +
+            "AND (:hasBlocks = 0 OR NOT EXISTS (SELECT 1 FROM user_edges b " +
+            "WHERE b.user_id = :viewerId AND b.other_id = c.user_id AND b.status = 'BLOCKED'))) r " +
+            "JOIN users u ON u.id = r.user_id " +
+            "WHERE r.rn <= :perParent ORDER BY r.parent_id, r.created_at, r.id",
+            nativeQuery = true)
+    List<CommentView> findFirstRepliesOfParents(@Param("parentIds") Collection<Long> parentIds,
+                                                @Param("perParent") int perParent,
+                                                @Param("viewerId") Long viewerId,
+                                                @Param("hasBlocks") boolean hasBlocks);
+
+    // N bình luận gốc mới nhất của mỗi bài viết trong trang (xem trước trên thẻ bài viết), một câu truy vấn.
+    // Lọc chặn nằm bên trong ROW_NUMBER như findFirstRepliesOfParents. Bản không lọc (hasBlocks = false)
+    // được cache chung cho mọi người xem; người xem có quan hệ chặn đọc bản đã lọc của riêng họ
+    @Query(value = "SELECT " + NATIVE_VIEW_COLUMNS + " FROM " +
+            "(SELECT c.*, ROW_NUMBER() OVER (PARTITION BY c.post_id ORDER BY c.created_at DESC, c.id DESC) AS rn " +
+            "FROM comments c WHERE c.post_id IN (:postIds) AND c.parent_id IS NULL " +
+            "AND (:hasBlocks = 0 OR NOT EXISTS (SELECT 1 FROM user_edges b " +
+            "WHERE b.user_id = :viewerId AND b.other_id = c.user_id AND b.status = 'BLOCKED'))) r " +
+            "JOIN users u ON u.id = r.user_id " +
+            "WHERE r.rn <= :perPost ORDER BY r.post_id, r.created_at DESC, r.id DESC",
+            nativeQuery = true)
+    List<CommentView> findLatestTopLevelOfPosts(@Param("postIds") Collection<Long> postIds,
+                                                @Param("perPost") int perPost,
+                                                @Param("viewerId") Long viewerId,
+                                                @Param("hasBlocks") boolean hasBlocks);
+
+    // Cây con của một bình luận (mọi cấp) theo materialized path, một lần seek trên ix_comments_post_path.
+    // Sắp theo (path, id): path của cha là tiền tố của path các con nên cha luôn đứng trước con,
+    // client dựng lại cây theo parentId khi đọc từng trang. Như findReplies / findStream, chỉ ẩn chính các bình luận
+    // của người có quan hệ chặn với người xem (một lần seek user_edges theo tác giả mỗi dòng), không ẩn trả lời của người khác
+    String SUBTREE_FROM = "FROM comments r JOIN users u ON u.id = r.user_id " +
+            "WHERE r.post_id = :postId AND r.path LIKE :subtreePrefix " +
+            "AND (:hasBlocks = 0 OR NOT EXISTS (SELECT 1 FROM user_edges b " +
+            "WHERE b.user_id = :viewerId AND b.other_id = r.user_id AND b.status = 'BLOCKED')) ";
+
+    @Query(value = "SELECT TOP (:limit) " + NATIVE_VIEW_COLUMNS + ", r.path AS path " + SUBTREE_FROM +
+            "ORDER BY r.path, r.id",
+            nativeQuery = true)
+    List<CommentTreeView> findSubtree(@Param("postId") Long postId,
+                                      @Param("subtreePrefix") String subtreePrefix,
+                                      @Param("viewerId") Long viewerId,
+                                      @Param("hasBlocks") boolean hasBlocks,
+                                      @Param("limit") int limit);
+
+    @Query(value = "SELECT TOP (:limit) " + NATIVE_VIEW_COLUMNS + ", r.path AS path " + SUBTREE_FROM +
+            "AND (r.path > :path OR (r.path = :path AND r.id > :commentId)) ORDER BY r.path, r.id",
+            nativeQuery = true)
+    List<CommentTreeView> findSubtreeAfter(@Param("postId") Long postId,
+                                           @Param("subtreePrefix") String subtreePrefix,
+                                           @Param("path") String path,
+                                           @Param("commentId") Long commentId,
+                                           @Param("viewerId") Long viewerId,
+                                           @Param("hasBlocks") boolean hasBlocks,
+                                           @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE comments SET reply_count = reply_count + :delta WHERE id = :commentId", nativeQuery = true)
+    int addReplyCount(@Param("commentId") Long commentId, @Param("delta") long delta);
+
+    // Luồng bình luận của bài viết theo keyset (createdAt, id), mới nhất trước
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Comment c JOIN c.user u " +
+            "WHERE c.post.id = :postId AND " + NOT_BLOCKED + " ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommentView> findStream(@Param("postId") Long postId,
+                                 @Param("viewerId") Long viewerId,
+                                 @Param("hasBlocks") boolean hasBlocks,
+                                 Limit limit);
+
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Comment c JOIN c.user u " +
+            "WHERE c.post.id = :postId AND " + NOT_BLOCKED + " " +
+            "AND (c.createdAt < :createdAt OR (c.createdAt = :createdAt AND c.id < :commentId)) " +
+            "ORDER BY c.createdAt DESC, c.id DESC")
+    List<CommentView> findStreamBefore(@Param("postId") Long postId,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("commentId") Long commentId,
+                                       @Param("viewerId") Long viewerId,
+                                       @Param("hasBlocks") boolean hasBlocks,
+                                       Limit limit);
+
+    // Polling: các bình luận mới hơn mốc client đang có, cũ nhất trước
+    @Query("SELECT " + VIEW_COLUMNS + " FROM Comment c JOIN c.user u " +
+            "WHERE c.post.id = :postId AND " + NOT_BLOCKED + " " +
+            "AND (c.createdAt > :createdAt OR (c.createdAt = :createdAt AND c.id > :commentId)) " +
+            "ORDER BY c.createdAt, c.id")
+    List<CommentView> findStreamAfter(@Param("postId") Long postId,
+                                      @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("commentId") Long commentId,
+                                      @Param("viewerId") Long viewerId,
+                                      @Param("hasBlocks") boolean hasBlocks,
+                                      Limit limit);
+
+    @Query(value = "SELECT t.comment_id FROM comment_tombstones t WHERE t.post_id = :postId AND t.deleted_at > :since",
+            nativeQuery = true)
+    List<Long> findDeletedIdsSince(@Param("postId") Long postId, @Param("since") LocalDateTime since);
+
+    // Xóa một bình luận cùng toàn bộ cây con của nó trong một câu lệnh, ghi tombstone cho từng bình luận bị xóa;
+    // trả về số bình luận đã xóa
+    @Modifying
+    @Query(value = "DELETE FROM comments " +
+            "OUTPUT deleted.id, deleted.post_id, :deletedAt INTO comment_tombstones (comment_id, post_id, deleted_at) " +
+            "WHERE id = :commentId OR (post_id = :postId AND path LIKE :subtreePrefix)",
+            nativeQuery = true)
+    int deleteSubtree(@Param("commentId") Long commentId,
+                      @Param("postId") Long postId,
+                      @Param("subtreePrefix") String subtreePrefix,
+                      @Param("deletedAt") LocalDateTime deletedAt);
+
+    @Modifying
+    @Query(value = "DELETE FROM comment_tombstones WHERE deleted_at < :before", nativeQuery = true)
+    int purgeTombstones(@Param("before") LocalDateTime before);
     // Đếm số bình luận mới trên các bài viết của một user trong một khoảng thời gian
     long countByPostUserIdAndCreatedAtBetween(Long userId, LocalDateTime start, LocalDateTime end);
 }
\ No newline at end of file
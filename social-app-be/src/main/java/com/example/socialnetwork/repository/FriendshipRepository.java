@@ -1,30 +1,157 @@
 package com.example.socialnetwork.repository;
 
+import com.example.socialnetwork.dto.response.FriendResponse;
 import com.example.socialnetwork.entity.Friendship;
 import com.example.socialnetwork.entity.FriendshipId;
+import com.example.socialnetwork.entity.UserEdge;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+// Ghi vào friendships (mỗi cặp một dòng, user_one_id < user_two_id); các truy vấn "theo một user" đọc từ user_edges
+// (mỗi cặp hai dòng) nên chỉ là một lần seek trên user_id thay vì OR trên hai cột
 @Repository
-public interface FriendshipRepository extends JpaRepository<Friendship, FriendshipId> {
-    // Tìm tất cả bạn bè đã được chấp nhận của một user
-    @Query("SELECT f FROM Friendship f WHERE (f.userOneId = :userId OR f.userTwoId = :userId) AND f.status = 'ACCEPTED'")
-    List<Friendship> findAcceptedFriends(@Param("userId") Long userId);
-
-    // Tìm các lời mời đang chờ mà user này là người nhận (action_user_id != userId)
-    @Query("SELECT f FROM Friendship f WHERE (f.userOneId = :userId OR f.userTwoId = :userId) AND f.status = 'PENDING' AND f.actionUserId <> :userId")
-    List<Friendship> findPendingRequestsForUser(@Param("userId") Long userId);
+public interface FriendshipRepository extends JpaRepository<Friendship, FriendshipId>, FriendshipRepositoryCustom {
+    // Id những người đã gửi lời mời đang chờ cho user này (action_user_id != userId)
+    @Query("SELECT e.otherId FROM UserEdge e WHERE e.userId = :userId AND e.status = 'PENDING' AND e.actionUserId <> :userId")
+    List<Long> findPendingRequesterIds(@Param("userId") Long userId);
 
     // Lấy danh sách ID của tất cả bạn bè
-    @Query("SELECT CASE WHEN f.userOneId = :userId THEN f.userTwoId ELSE f.userOneId END FROM Friendship f WHERE (f.userOneId = :userId OR f.userTwoId = :userId) AND f.status = 'ACCEPTED'")
+    @Query("SELECT e.otherId FROM UserEdge e WHERE e.userId = :userId AND e.status = 'ACCEPTED'")
     List<Long> findFriendIdsByUserId(@Param("userId") Long userId);
 
+    // Danh sách bạn bè theo keyset, chỉ lấy các cột hiển thị trong danh sách (không hydrate entity).
+    // Sắp theo tên (COALESCE để tên null vẫn có vị trí cố định), hoặc theo ngày kết bạn mới nhất trước
+    String FRIEND_COLUMNS = "SELECT new com.example.socialnetwork.dto.response.FriendResponse(u.id, u.fullName, u.avatarUrl, e.updatedAt) " +
+            "FROM UserEdge e JOIN User u ON u.id = e.otherId WHERE e.userId = :userId AND e.status = 'ACCEPTED' ";
+
+    @Query(FRIEND_COLUMNS + "ORDER BY COALESCE(u.fullName, ''), u.id")
+    List<FriendResponse> findFriendsByName(@Param("userId") Long userId, Limit limit);
+
+    @Query(FRIEND_COLUMNS + "AND (COALESCE(u.fullName, '') > :fullName OR (COALESCE(u.fullName, '') = :fullName AND u.id > :friendId)) " +
+            "ORDER BY COALESCE(u.fullName, ''), u.id")
+    List<FriendResponse> findFriendsByNameAfter(@Param("userId") Long userId,
+                                                @Param("fullName") String fullName,
+                                                @Param("friendId") Long friendId,
+                                                Limit limit);
+
+    @Query(FRIEND_COLUMNS + "ORDER BY e.updatedAt DESC, e.otherId DESC")
+    List<FriendResponse> findFriendsByDate(@Param("userId") Long userId, Limit limit);
+
+    @Query(FRIEND_COLUMNS + "AND (e.updatedAt < :since OR (e.updatedAt = :since AND e.otherId < :friendId)) " +
+            "ORDER BY e.updatedAt DESC, e.otherId DESC")
+    List<FriendResponse> findFriendsByDateBefore(@Param("userId") Long userId,
+                                                 @Param("since") LocalDateTime since,
+                                                 @Param("friendId") Long friendId,
+                                                 Limit limit);
+
+    // Quan hệ (mọi trạng thái) giữa userId và một danh sách user, nhìn từ phía userId
+    @Query("SELECT e FROM UserEdge e WHERE e.userId = :userId AND e.otherId IN :otherIds")
+    List<UserEdge> findRelationsWith(@Param("userId") Long userId, @Param("otherIds") Collection<Long> otherIds);
+
+    // Các cạnh bạn bè của nhiều user trong một truy vấn
+    @Query("SELECT e FROM UserEdge e WHERE e.userId IN :userIds AND e.status = 'ACCEPTED'")
+    List<UserEdge> findAcceptedEdgesOfUsers(@Param("userIds") Collection<Long> userIds);
+
+    // Những user đã chặn userId hoặc bị userId chặn (user_edges lưu BLOCKED ở cả hai chiều)
+    @Query("SELECT e.otherId FROM UserEdge e WHERE e.userId = :userId AND e.status = 'BLOCKED'")
+    List<Long> findBlockedIds(@Param("userId") Long userId);
+
+    // Mọi user đã có quan hệ với userId (bất kỳ trạng thái nào)
+    @Query("SELECT e.otherId FROM UserEdge e WHERE e.userId = :userId")
+    List<Long> findRelatedUserIds(@Param("userId") Long userId);
+
     // Đếm số lượng bạn bè mới trong một khoảng thời gian nhất định
-    @Query("SELECT COUNT(f) FROM Friendship f WHERE (f.userOneId = :userId OR f.userTwoId = :userId) AND f.status = 'ACCEPTED' AND f.updatedAt BETWEEN :start AND :end")
+    @Query("SELECT COUNT(e) FROM UserEdge e WHERE e.userId = :userId AND e.status = 'ACCEPTED' AND e.updatedAt BETWEEN :start AND :end")
     long countNewFriendsByUserIdInPeriod(@Param("userId") Long userId, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
-}
\ No newline at end of file
+
+    // Các user có số bạn bè vượt ngưỡng (dùng cho hybrid push/pull timeline)
+    @Query("SELECT e.userId FROM UserEdge e WHERE e.status = 'ACCEPTED' GROUP BY e.userId HAVING COUNT(e) > :threshold")
+    List<Long> findUserIdsWithDegreeAbove(@Param("threshold") long threshold);
+
+    // Các bước chuyển trạng thái trên friendships, mỗi bước là một câu lệnh có điều kiện trên status / action_user_id hiện tại
+    // (userOne < userTwo). Trả về số dòng bị đổi: 0 nghĩa là trạng thái hiện tại không cho phép bước chuyển này,
+    // kể cả khi một request khác vừa đổi nó, nên không còn kiểu đọc - kiểm tra - ghi đè lên nhau.
+    // HOLDLOCK giữ khóa khoảng trên khóa chính nên hai lời mời gửi chéo nhau cùng lúc không cùng INSERT (vi phạm khóa chính)
+
+    // Gửi lời mời: tạo mới, hoặc gửi lại khi lần trước chính người kia đã từ chối
+    @Modifying
+    @Query(value = "MERGE friendships WITH (HOLDLOCK) AS f " +
+            "USING (VALUES (:userOne, :userTwo)) AS s (user_one_id, user_two_id) " +
+            "ON f.user_one_id = s.user_one_id AND f.user_two_id = s.user_two_id " +
+            "WHEN MATCHED AND f.status = 'DECLINED' AND f.action_user_id <> :senderId THEN " +
+            "UPDATE SET status = 'PENDING', action_user_id = :senderId, updated_at = GETDATE() " +
+            "WHEN NOT MATCHED THEN INSERT (user_one_id, user_two_id, status, action_user_id, created_at, updated_at) " +
+            "VALUES (s.user_one_id, s.user_two_id, 'PENDING', :senderId, GETDATE(), GETDATE());",
+            nativeQuery = true)
+    int insertRequest(@Param("userOne") Long userOne, @Param("userTwo") Long userTwo, @Param("senderId") Long senderId);
+
+    // Chấp nhận / từ chối: chỉ khi lời mời còn chờ và do requesterId gửi
+    @Modifying
+    @Query(value = "UPDATE friendships SET status = :status, action_user_id = :responderId, updated_at = GETDATE() " +
+            "WHERE user_one_id = :userOne AND user_two_id = :userTwo AND status = 'PENDING' AND action_user_id = :requesterId",
+            nativeQuery = true)
+    int respondToRequest(@Param("userOne") Long userOne,
+                         @Param("userTwo") Long userTwo,
+                         @Param("requesterId") Long requesterId,
+                         @Param("responderId") Long responderId,
+                         @Param("status") String status);
+
+    // Hủy lời mời: chỉ khi còn chờ và do chính senderId gửi
+    @Modifying
+    @Query(value = "DELETE FROM friendships WHERE user_one_id = :userOne AND user_two_id = :userTwo " +
+            "AND status = 'PENDING' AND action_user_id = :senderId",
+            nativeQuery = true)
+    int deleteRequest(@Param("userOne") Long userOne, @Param("userTwo") Long userTwo, @Param("senderId") Long senderId);
+
+    // Chặn: ghi đè mọi trạng thái trước đó; đã do chính blockerId chặn thì không đổi gì (trả về 0)
+    @Modifying
+    @Query(value = "MERGE friendships WITH (HOLDLOCK) AS f " +
+            "USING (VALUES (:userOne, :userTwo)) AS s (user_one_id, user_two_id) " +
+            "ON f.user_one_id = s.user_one_id AND f.user_two_id = s.user_two_id " +
+            "WHEN MATCHED AND NOT (f.status = 'BLOCKED' AND f.action_user_id = :blockerId) THEN " +
+            "UPDATE SET status = 'BLOCKED', action_user_id = :blockerId, updated_at = GETDATE() " +
+            "WHEN NOT MATCHED THEN INSERT (user_one_id, user_two_id, status, action_user_id, created_at, updated_at) " +
+            "VALUES (s.user_one_id, s.user_two_id, 'BLOCKED', :blockerId, GETDATE(), GETDATE());",
+            nativeQuery = true)
+    int block(@Param("userOne") Long userOne, @Param("userTwo") Long userTwo, @Param("blockerId") Long blockerId);
+
+    // Bỏ chặn: chỉ người đã chặn mới xóa được
+    @Modifying
+    @Query(value = "DELETE FROM friendships WHERE user_one_id = :userOne AND user_two_id = :userTwo " +
+            "AND status = 'BLOCKED' AND action_user_id = :blockerId",
+            nativeQuery = true)
+    int deleteBlock(@Param("userOne") Long userOne, @Param("userTwo") Long userTwo, @Param("blockerId") Long blockerId);
+
+    // Hủy kết bạn: chỉ khi đang là bạn
+    @Modifying
+    @Query(value = "DELETE FROM friendships WHERE user_one_id = :userOne AND user_two_id = :userTwo AND status = 'ACCEPTED'",
+            nativeQuery = true)
+    int deleteFriendship(@Param("userOne") Long userOne, @Param("userTwo") Long userTwo);
+
+    // Ghi cả hai chiều của một quan hệ vào user_edges trong một câu lệnh; phải chạy cùng transaction với thay đổi trên friendships
+    @Modifying
+    @Query(value = "MERGE user_edges WITH (HOLDLOCK) AS e " +
+            "USING (VALUES (:userA, :userB), (:userB, :userA)) AS s (user_id, other_id) " +
+            "ON e.user_id = s.user_id AND e.other_id = s.other_id " +
+            "WHEN MATCHED THEN UPDATE SET status = :status, action_user_id = :actionUserId, updated_at = GETDATE() " +
+            "WHEN NOT MATCHED THEN INSERT (user_id, other_id, status, action_user_id, updated_at) " +
+            "VALUES (s.user_id, s.other_id, :status, :actionUserId, GETDATE());",
+            nativeQuery = true)
+    int upsertEdges(@Param("userA") Long userA,
+                    @Param("userB") Long userB,
+                    @Param("status") String status,
+                    @Param("actionUserId") Long actionUserId);
+
+    @Modifying
+    @Query(value = "DELETE FROM user_edges WHERE (user_id = :userA AND other_id = :userB) OR (user_id = :userB AND other_id = :userA)",
+            nativeQuery = true)
+    int deleteEdges(@Param("userA") Long userA, @Param("userB") Long userB);
+}
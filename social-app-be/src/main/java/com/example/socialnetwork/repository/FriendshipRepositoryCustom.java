@@ -0,0 +1,14 @@
+package com.example.socialnetwork.repository;
+
+import com.example.socialnetwork.entity.FriendshipStatus;
+
+import java.util.List;
+
+public interface FriendshipRepositoryCustom {
+    // Trả lời (ACCEPTED / DECLINED) các lời mời mà requesterIds gửi cho userId trong một JDBC batch, kèm cập nhật user_edges.
+    // Phần tử thứ i là số dòng friendships đã đổi cho requesterIds[i]: 0 nghĩa là lời mời không còn chờ (đã bị xử lý ở request khác)
+    int[] respondToRequests(Long userId, List<Long> requesterIds, FriendshipStatus status);
+
+    // Xóa các lời mời userId đã gửi cho recipientIds mà vẫn còn chờ; cùng quy ước kết quả như trên
+    int[] cancelRequests(Long userId, List<Long> recipientIds);
+}
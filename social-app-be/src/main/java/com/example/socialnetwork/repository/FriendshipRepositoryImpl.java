@@ -0,0 +1,68 @@
+package com.example.socialnetwork.repository;
+
+import com.example.socialnetwork.entity.FriendshipStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class FriendshipRepositoryImpl implements FriendshipRepositoryCustom {
+
+    // Điều kiện WHERE lặp lại đúng luật của acceptFriendRequest / cancelFriendRequest (còn PENDING, đúng người gửi),
+    // nên một dòng đã bị đổi trạng thái sau lần đọc kiểm tra sẽ không bị ghi đè mà chỉ trả về 0
+    private static final String RESPOND_SQL = "UPDATE friendships SET status = ?, action_user_id = ?, updated_at = GETDATE() " +
+            "WHERE user_one_id = ? AND user_two_id = ? AND status = 'PENDING' AND action_user_id = ?";
+    private static final String CANCEL_SQL = "DELETE FROM friendships " +
+            "WHERE user_one_id = ? AND user_two_id = ? AND status = 'PENDING' AND action_user_id = ?";
+    private static final String UPDATE_EDGES_SQL = "UPDATE user_edges SET status = ?, action_user_id = ?, updated_at = GETDATE() " +
+            "WHERE (user_id = ? AND other_id = ?) OR (user_id = ? AND other_id = ?)";
+    private static final String DELETE_EDGES_SQL = "DELETE FROM user_edges " +
+            "WHERE (user_id = ? AND other_id = ?) OR (user_id = ? AND other_id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public int[] respondToRequests(Long userId, List<Long> requesterIds, FriendshipStatus status) {
+        List<Object[]> rows = new ArrayList<>(requesterIds.size());
+        for (Long requesterId : requesterIds) {
+            rows.add(new Object[]{status.name(), userId,
+                    Math.min(userId, requesterId), Math.max(userId, requesterId), requesterId});
+        }
+        int[] updated = jdbcTemplate.batchUpdate(RESPOND_SQL, rows);
+
+        List<Object[]> edges = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] > 0) {
+                Long requesterId = requesterIds.get(i);
+                edges.add(new Object[]{status.name(), userId, userId, requesterId, requesterId, userId});
+            }
+        }
+        if (!edges.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPDATE_EDGES_SQL, edges);
+        }
+        return updated;
+    }
+
+    @Override
+    public int[] cancelRequests(Long userId, List<Long> recipientIds) {
+        List<Object[]> rows = new ArrayList<>(recipientIds.size());
+        for (Long recipientId : recipientIds) {
+            rows.add(new Object[]{Math.min(userId, recipientId), Math.max(userId, recipientId), userId});
+        }
+        int[] deleted = jdbcTemplate.batchUpdate(CANCEL_SQL, rows);
+
+        List<Object[]> edges = new ArrayList<>();
+        for (int i = 0; i < deleted.length; i++) {
+            if (deleted[i] > 0) {
+                Long recipientId = recipientIds.get(i);
+                edges.add(new Object[]{userId, recipientId, recipientId, userId});
+            }
+        }
+        if (!edges.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_EDGES_SQL, edges);
+        }
+        return deleted;
+    }
+}
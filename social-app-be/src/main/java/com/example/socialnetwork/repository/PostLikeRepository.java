@@ -1,16 +1,53 @@
 package com.example.socialnetwork.repository;
 
+import com.example.socialnetwork.dto.response.LikerResponse;
 import com.example.socialnetwork.entity.PostLike;
 import com.example.socialnetwork.entity.PostLikeId;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 @Repository
-public interface PostLikeRepository extends JpaRepository<PostLike, PostLikeId> {
+public interface PostLikeRepository extends JpaRepository<PostLike, PostLikeId>, PostLikeRepositoryCustom {
     long countByPostId(Long postId);
 
+    // Các bài viết trong danh sách mà user đã thích (một câu truy vấn cho cả trang)
+    @Query("SELECT l.post.id FROM PostLike l WHERE l.user.id = :userId AND l.post.id IN :postIds")
+    List<Long> findLikedPostIds(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
+
+    // Ẩn những user có quan hệ chặn với người xem (xem CommentRepository.NOT_BLOCKED)
+    String NOT_BLOCKED = "(:hasBlocks = false OR NOT EXISTS (SELECT 1 FROM UserEdge b " +
+            "WHERE b.userId = :viewerId AND b.otherId = u.id AND b.status = 'BLOCKED'))";
+
+    // Danh sách người thích một bài viết theo keyset (likedAt, userId), mới nhất trước
+    @Query("SELECT new com.example.socialnetwork.dto.response.LikerResponse(u.id, u.fullName, u.avatarUrl, l.createdAt) " +
+            "FROM PostLike l JOIN l.user u WHERE l.post.id = :postId AND " + NOT_BLOCKED + " ORDER BY l.createdAt DESC, u.id DESC")
+    List<LikerResponse> findLikers(@Param("postId") Long postId,
+                                   @Param("viewerId") Long viewerId,
+                                   @Param("hasBlocks") boolean hasBlocks,
+                                   Limit limit);
+
+    @Query("SELECT new com.example.socialnetwork.dto.response.LikerResponse(u.id, u.fullName, u.avatarUrl, l.createdAt) " +
+            "FROM PostLike l JOIN l.user u WHERE l.post.id = :postId AND " + NOT_BLOCKED + " " +
+            "AND (l.createdAt < :createdAt OR (l.createdAt = :createdAt AND u.id < :userId)) " +
+            "ORDER BY l.createdAt DESC, u.id DESC")
+    List<LikerResponse> findLikersBefore(@Param("postId") Long postId,
+                                         @Param("createdAt") LocalDateTime createdAt,
+                                         @Param("userId") Long userId,
+                                         @Param("viewerId") Long viewerId,
+                                         @Param("hasBlocks") boolean hasBlocks,
+                                         Limit limit);
+
+    // Toàn bộ bài viết user đã thích, dùng để nạp LikedPostsCache
+    @Query("SELECT l.post.id FROM PostLike l WHERE l.user.id = :userId")
+    List<Long> findAllPostIdsByUserId(@Param("userId") Long userId);
+
     // Đếm số lượt thích mới trên các bài viết của một user trong một khoảng thời gian
     long countByPostUserIdAndCreatedAtBetween(Long userId, LocalDateTime start, LocalDateTime end);
 }
\ No newline at end of file
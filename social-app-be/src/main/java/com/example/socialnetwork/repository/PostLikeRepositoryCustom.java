@@ -0,0 +1,10 @@
+package com.example.socialnetwork.repository;
+
+import com.example.socialnetwork.dto.projection.LikeToggleResult;
+
+import java.util.Optional;
+
+public interface PostLikeRepositoryCustom {
+    // Thích / bỏ thích trong một câu lệnh; rỗng nếu bài viết không tồn tại
+    Optional<LikeToggleResult> toggle(Long userId, Long postId);
+}
@@ -0,0 +1,33 @@
+package com.example.socialnetwork.repository;
+
+import com.example.socialnetwork.dto.projection.LikeToggleResult;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class PostLikeRepositoryImpl implements PostLikeRepositoryCustom {
+
+    // HOLDLOCK giữ khóa khoảng trên khóa (user_id, post_id) nên hai request đồng thời không cùng thấy
+    // "chưa thích" rồi cùng INSERT (vi phạm khóa chính) hoặc cùng DELETE
+    private static final String TOGGLE_SQL = "SET NOCOUNT ON; " +
+            "DECLARE @actions TABLE (action NVARCHAR(10)); " +
+            "MERGE post_likes WITH (HOLDLOCK) AS t " +
+            "USING (SELECT ? AS user_id, p.id AS post_id FROM posts p WHERE p.id = ?) AS s " +
+            "ON t.user_id = s.user_id AND t.post_id = s.post_id " +
+            "WHEN MATCHED THEN DELETE " +
+            "WHEN NOT MATCHED THEN INSERT (user_id, post_id, created_at) VALUES (s.user_id, s.post_id, SYSDATETIME()) " +
+            "OUTPUT $action INTO @actions; " +
+            "SELECT CASE WHEN a.action = 'INSERT' THEN 1 ELSE 0 END AS liked, p.like_count " +
+            "FROM @actions a CROSS JOIN posts p WHERE p.id = ?;";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Optional<LikeToggleResult> toggle(Long userId, Long postId) {
+        return jdbcTemplate.query(TOGGLE_SQL,
+                (rs, rowNum) -> new LikeToggleResult(rs.getBoolean("liked"), rs.getLong("like_count")),
+                userId, postId, postId).stream().findFirst();
+    }
+}
@@ -1,21 +1,37 @@
 package com.example.socialnetwork.repository;
 
+import com.example.socialnetwork.dto.projection.PostSummary;
 import com.example.socialnetwork.entity.Post;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface PostRepository extends JpaRepository<Post, Long> {
-    //dùng cho tính năng Timeline
-    @Query("SELECT p FROM Post p WHERE p.user.id IN :friendIds ORDER BY p.createdAt DESC")
-    Page<Post> findPostsByFriendIds(@Param("friendIds") List<Long> friendIds, Pageable pageable);
+// Các truy vấn timeline kéo bài viết không fan-out nằm ở PostRepositoryCustom (JDBC, CROSS APPLY theo từng tác giả)
+public interface PostRepository extends JpaRepository<Post, Long>, PostRepositoryCustom {
+    // Đọc bài viết theo trang bằng projection: tác giả, số lượt thích và số bình luận trong cùng một câu truy vấn
+    @Query("SELECT new com.example.socialnetwork.dto.projection.PostSummary(" +
+            "p.id, p.content, p.imageUrl, p.createdAt, p.updatedAt, u.id, u.email, u.fullName, u.avatarUrl, " +
+            "p.likeCount, p.commentCount) " +
+            "FROM Post p JOIN p.user u WHERE p.id IN :ids")
+    List<PostSummary> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT p.user.id FROM Post p WHERE p.fannedOut = false")
+    List<Long> findPulledAuthorIds();
+
+    @Modifying
+    @Query("DELETE FROM Post p WHERE p.id = :postId")
+    int deletePostById(@Param("postId") Long postId);
+
+    @Query("SELECT p.likeCount FROM Post p WHERE p.id = :postId")
+    Optional<Long> findLikeCountById(@Param("postId") Long postId);
 
     // Đếm số bài viết của một user trong một khoảng thời gian
     long countByUserIdAndCreatedAtBetween(Long userId, LocalDateTime start, LocalDateTime end);
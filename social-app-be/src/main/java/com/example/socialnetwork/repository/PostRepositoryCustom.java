@@ -0,0 +1,13 @@
+package com.example.socialnetwork.repository;
+
+import com.example.socialnetwork.dto.projection.TimelineItem;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PostRepositoryCustom {
+    // Bài viết không fan-out của chính userId và bạn bè, mới nhất trước; createdAt / postId null là trang đầu
+    List<TimelineItem> findPulledItems(Long userId, LocalDateTime createdAt, Long postId, int limit);
+
+    long countPulledPosts(Long userId);
+}
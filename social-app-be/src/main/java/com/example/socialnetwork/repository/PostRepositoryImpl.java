@@ -0,0 +1,54 @@
+package com.example.socialnetwork.repository;
+
+import com.example.socialnetwork.dto.projection.TimelineItem;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class PostRepositoryImpl implements PostRepositoryCustom {
+
+    // Đi từ các dòng ACCEPTED của người xem trong user_edges (cộng chính người xem), mỗi tác giả một lần seek
+    // trên ix_posts_pulled (user_id, created_at DESC, id DESC) lấy tối đa limit bài, rồi trộn lại.
+    // Không quét / sắp xếp toàn bộ bài viết không fan-out của mọi tác giả. Chặn nhau thì cạnh giữa hai người là BLOCKED,
+    // không còn ACCEPTED, nên tác giả có quan hệ chặn với người xem không bao giờ nằm trong authors
+    private static final String AUTHORS = "WITH authors AS (SELECT ? AS author_id " +
+            "UNION ALL SELECT e.other_id FROM user_edges e WHERE e.user_id = ? AND e.status = 'ACCEPTED') ";
+    private static final String PULLED_SQL = AUTHORS +
+            "SELECT TOP (?) x.id, x.created_at FROM authors a CROSS APPLY (" +
+            "SELECT TOP (?) p.id, p.created_at FROM posts p WHERE p.user_id = a.author_id AND p.fanned_out = 0 " +
+            "ORDER BY p.created_at DESC, p.id DESC) x " +
+            "ORDER BY x.created_at DESC, x.id DESC";
+    private static final String PULLED_BEFORE_SQL = AUTHORS +
+            "SELECT TOP (?) x.id, x.created_at FROM authors a CROSS APPLY (" +
+            "SELECT TOP (?) p.id, p.created_at FROM posts p WHERE p.user_id = a.author_id AND p.fanned_out = 0 " +
+            "AND (p.created_at < ? OR (p.created_at = ? AND p.id < ?)) " +
+            "ORDER BY p.created_at DESC, p.id DESC) x " +
+            "ORDER BY x.created_at DESC, x.id DESC";
+    private static final String COUNT_SQL = AUTHORS +
+            "SELECT COUNT(*) FROM authors a JOIN posts p ON p.user_id = a.author_id AND p.fanned_out = 0";
+
+    private static final RowMapper<TimelineItem> ITEM = (rs, rowNum) ->
+            new TimelineItem(rs.getLong("id"), rs.getTimestamp("created_at").toLocalDateTime());
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<TimelineItem> findPulledItems(Long userId, LocalDateTime createdAt, Long postId, int limit) {
+        if (createdAt == null) {
+            return jdbcTemplate.query(PULLED_SQL, ITEM, userId, userId, limit, limit);
+        }
+        Timestamp before = Timestamp.valueOf(createdAt);
+        return jdbcTemplate.query(PULLED_BEFORE_SQL, ITEM, userId, userId, limit, limit, before, before, postId);
+    }
+
+    @Override
+    public long countPulledPosts(Long userId) {
+        Long count = jdbcTemplate.queryForObject(COUNT_SQL, Long.class, userId, userId);
+        return count == null ? 0 : count;
+    }
+}
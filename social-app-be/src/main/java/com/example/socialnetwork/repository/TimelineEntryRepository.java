@@ -0,0 +1,68 @@
+package com.example.socialnetwork.repository;
+
+import com.example.socialnetwork.dto.projection.TimelineItem;
+import com.example.socialnetwork.entity.TimelineEntry;
+import com.example.socialnetwork.entity.TimelineEntryId;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TimelineEntryRepository extends JpaRepository<TimelineEntry, TimelineEntryId> {
+
+    // Ẩn bài viết của tác giả có quan hệ chặn với chủ hộp thư ngay trong truy vấn, để kích thước trang, hasNext
+    // và tổng số đều đúng (xem CommentRepository.NOT_BLOCKED)
+    String NOT_BLOCKED = "(:hasBlocks = false OR NOT EXISTS (SELECT 1 FROM UserEdge b " +
+            "WHERE b.userId = t.userId AND b.otherId = t.authorId AND b.status = 'BLOCKED'))";
+
+    // Đọc hộp thư theo keyset (createdAt, postId): không COUNT, không OFFSET
+    @Query("SELECT new com.example.socialnetwork.dto.projection.TimelineItem(t.postId, t.createdAt) FROM TimelineEntry t " +
+            "WHERE t.userId = :userId AND " + NOT_BLOCKED + " ORDER BY t.createdAt DESC, t.postId DESC")
+    List<TimelineItem> findItems(@Param("userId") Long userId, @Param("hasBlocks") boolean hasBlocks, Limit limit);
+
+    @Query("SELECT new com.example.socialnetwork.dto.projection.TimelineItem(t.postId, t.createdAt) FROM TimelineEntry t " +
+            "WHERE t.userId = :userId AND (t.createdAt < :createdAt OR (t.createdAt = :createdAt AND t.postId < :postId)) " +
+            "AND " + NOT_BLOCKED + " ORDER BY t.createdAt DESC, t.postId DESC")
+    List<TimelineItem> findItemsBefore(@Param("userId") Long userId,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("postId") Long postId,
+                                       @Param("hasBlocks") boolean hasBlocks,
+                                       Limit limit);
+
+    @Query("SELECT COUNT(t) FROM TimelineEntry t WHERE t.userId = :userId AND " + NOT_BLOCKED)
+    long countItems(@Param("userId") Long userId, @Param("hasBlocks") boolean hasBlocks);
+
+    long countByUserId(Long userId);
+
+    // Đẩy một bài viết vào hộp thư của tất cả bạn bè của tác giả trong một câu lệnh.
+    // Bỏ qua hộp thư đã có bài (backfillConnection của một người bạn vừa kết bạn có thể ghi trước),
+    // nếu không một dòng trùng khóa chính sẽ làm hỏng cả câu lệnh và không ai nhận được bài viết
+    @Modifying
+    @Query(value = "INSERT INTO timeline_entries (user_id, post_id, author_id, created_at) " +
+            "SELECT e.other_id, :postId, :authorId, :createdAt " +
+            "FROM user_edges e " +
+            "WHERE e.user_id = :authorId AND e.status = 'ACCEPTED' " +
+            "AND NOT EXISTS (SELECT 1 FROM timeline_entries t WHERE t.user_id = e.other_id AND t.post_id = :postId)",
+            nativeQuery = true)
+    int fanOutToFriends(@Param("postId") Long postId, @Param("authorId") Long authorId, @Param("createdAt") LocalDateTime createdAt);
+
+    // Đổ các bài viết đã có của authorId vào hộp thư của userId (khi hai người vừa kết bạn)
+    @Modifying
+    @Query(value = "INSERT INTO timeline_entries (user_id, post_id, author_id, created_at) " +
+            "SELECT :userId, p.id, p.user_id, p.created_at FROM posts p " +
+            "WHERE p.user_id = :authorId AND p.fanned_out = 1 " +
+            "AND NOT EXISTS (SELECT 1 FROM timeline_entries t WHERE t.user_id = :userId AND t.post_id = p.id)",
+            nativeQuery = true)
+    int backfillFromAuthor(@Param("userId") Long userId, @Param("authorId") Long authorId);
+
+    // Gỡ bài viết của hai người khỏi hộp thư của nhau (hủy kết bạn / chặn)
+    @Modifying
+    @Query("DELETE FROM TimelineEntry t WHERE (t.userId = :userA AND t.authorId = :userB) OR (t.userId = :userB AND t.authorId = :userA)")
+    int deleteEntriesBetween(@Param("userA") Long userA, @Param("userB") Long userB);
+}
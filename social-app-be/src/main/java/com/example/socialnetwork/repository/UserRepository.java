@@ -2,6 +2,8 @@ package com.example.socialnetwork.repository;
 
 import com.example.socialnetwork.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -9,6 +11,10 @@ import java.util.Optional;
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    // Chỉ lấy id của người xem cho các truy vấn đọc cần lọc theo người xem, không hydrate entity
+    @Query("SELECT u.id FROM User u WHERE u.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
     boolean existsByEmail(String email);
     Optional<User> findByPasswordResetToken(String token);
 }
\ No newline at end of file
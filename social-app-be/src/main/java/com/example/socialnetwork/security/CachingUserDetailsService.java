@@ -0,0 +1,55 @@
+package com.example.socialnetwork.security;
+
+import com.example.socialnetwork.cache.LruTtlCache;
+import com.example.socialnetwork.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Mọi request có JWT đều gọi loadUserByUsername trong JwtAuthenticationFilter. Thay vì mỗi lần một truy vấn users
+// (kèm entity User và proxy posts), ta cache theo email một bản chụp gọn chỉ gồm email, mật khẩu đã mã hóa và quyền.
+// Mỗi lần gọi trả về một bản sao: sau khi đăng nhập Spring Security xóa mật khẩu trên principal (eraseCredentials),
+// nên không được đưa chính đối tượng trong cache ra ngoài.
+// Bị xóa khi hồ sơ / ảnh đại diện / mật khẩu của user thay đổi
+@Component
+public class CachingUserDetailsService implements UserDetailsService, MeterBinder {
+
+    private final UserRepository userRepository;
+    private final LruTtlCache<String, UserDetails> users;
+
+    public CachingUserDetailsService(UserRepository userRepository,
+                                     @Value("${auth.user-cache.max-users:10000}") int maxUsers,
+                                     @Value("${auth.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.users = new LruTtlCache<>("auth.users", maxUsers, Duration.ofSeconds(ttlSeconds));
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserDetails cached = users.get(username);
+        if (cached == null) {
+            // Email không tồn tại thì không cache, để user vừa đăng ký đăng nhập được ngay
+            cached = userRepository.findByEmail(username)
+                    .map(user -> User.withUserDetails(user).build())
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + username));
+            users.put(username, cached);
+        }
+        return User.withUserDetails(cached).build();
+    }
+
+    public void evict(String email) {
+        users.invalidate(email);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        users.bindTo(registry);
+    }
+}
@@ -5,6 +5,7 @@ import com.example.socialnetwork.dto.response.AuthResponse;
 import com.example.socialnetwork.entity.Role;
 import com.example.socialnetwork.entity.User;
 import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.security.CachingUserDetailsService;
 import  com.example.socialnetwork.security.JwtService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -26,6 +27,7 @@ public class AuthService {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final AuthenticationManager authenticationManager;
+    private final CachingUserDetailsService userDetailsService;
 
     public void register(RegisterRequest request) {
         if (userRepository.existsByEmail(request.getEmail())) {
@@ -109,5 +111,7 @@ public class AuthService {
         user.setPasswordResetTokenExpiry(null);
 
         userRepository.save(user);
+        // Mật khẩu cũ không còn dùng để đăng nhập được nữa
+        userDetailsService.evict(user.getEmail());
     }
 }
\ No newline at end of file
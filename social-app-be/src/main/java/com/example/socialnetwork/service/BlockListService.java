@@ -0,0 +1,130 @@
+package com.example.socialnetwork.service;
+
+import com.example.socialnetwork.cache.LongBloomFilter;
+import com.example.socialnetwork.cache.LruTtlCache;
+import com.example.socialnetwork.repository.FriendshipRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import it.unimi.dsi.fastutil.longs.LongSets;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+
+// Danh sách chặn. Chặn có hiệu lực hai chiều: user_edges lưu BLOCKED ở cả hai dòng nên "A bị chặn với B"
+// chỉ là một lần seek (viewer, author). Phần lớn user không chặn ai, nên trước mọi truy vấn đọc ta hỏi Bloom filter
+// (nạp từ các user có dòng BLOCKED lúc khởi động rồi nạp lại định kỳ, để thấy cả các lần chặn xảy ra trên instance khác):
+// nếu chắc chắn không có thì truyền hasBlocks = false và
+// SQL Server bỏ qua nhánh NOT EXISTS. Kiểm tra một cặp (xem một bài viết theo id) dùng tập id bị chặn của người xem,
+// cũng được cache theo user.
+@Service
+public class BlockListService implements MeterBinder {
+
+    private static final String LOAD_SQL = "SELECT DISTINCT user_id FROM user_edges WHERE status = 'BLOCKED'";
+
+    private final FriendshipRepository friendshipRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean filterEnabled;
+    private final long expectedUsers;
+    private volatile LongBloomFilter usersWithBlocks;
+    // Filter đang được nạp lại; onBlocked ghi vào cả hai để không mất lần chặn xảy ra trong lúc quét
+    private volatile LongBloomFilter reloading;
+    private final LruTtlCache<Long, LongSet> blockSets;
+    private volatile boolean ready;
+
+    public BlockListService(FriendshipRepository friendshipRepository,
+                            JdbcTemplate jdbcTemplate,
+                            @Value("${block.filter.enabled:true}") boolean filterEnabled,
+                            @Value("${block.filter.expected-users:1000000}") long expectedUsers,
+                            @Value("${block.sets.max-users:10000}") int maxUsers,
+                            @Value("${block.sets.ttl-seconds:600}") long ttlSeconds) {
+        this.friendshipRepository = friendshipRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.filterEnabled = filterEnabled;
+        this.expectedUsers = filterEnabled ? expectedUsers : 1;
+        this.usersWithBlocks = new LongBloomFilter(this.expectedUsers, 0.01);
+        this.blockSets = new LruTtlCache<>("block.sets", maxUsers, Duration.ofSeconds(ttlSeconds));
+    }
+
+    // Lần chặn trên instance này được add ngay vào filter; lần chặn trên instance khác chỉ được thấy ở lần nạp lại kế tiếp,
+    // nên khoảng nạp lại (block.filter.refresh-interval-ms) là độ trễ tối đa trước khi NOT EXISTS được bật cho cặp đó.
+    // Mỗi lần nạp dựng filter mới rồi tráo vào, nhờ đó các user đã bỏ chặn hết cũng rơi khỏi filter
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${block.filter.refresh-interval-ms:30000}",
+            fixedDelayString = "${block.filter.refresh-interval-ms:30000}")
+    public void load() {
+        if (!filterEnabled) {
+            return;
+        }
+        LongBloomFilter next = new LongBloomFilter(expectedUsers, 0.01);
+        // Đặt trước khi quét: lần chặn nào commit sau thời điểm này hoặc được quét thấy, hoặc được onBlocked add vào next
+        reloading = next;
+        try {
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(LOAD_SQL);
+                statement.setFetchSize(10_000);
+                return statement;
+            }, rs -> {
+                next.add(rs.getLong(1));
+            });
+            usersWithBlocks = next;
+            ready = true;
+        } finally {
+            reloading = null;
+        }
+    }
+
+    // false: chắc chắn userId không chặn ai và không bị ai chặn (tính tới lần nạp gần nhất). Bloom filter không xóa được
+    // phần tử, nên sau khi bỏ chặn user vẫn trả về true (chỉ tốn thêm một NOT EXISTS) cho tới lần nạp lại sau
+    public boolean mayHaveBlocks(long userId) {
+        return !filterEnabled || !ready || usersWithBlocks.mightContain(userId);
+    }
+
+    // Id những user đã chặn userId hoặc bị userId chặn
+    public LongSet blockedIds(long userId) {
+        if (!mayHaveBlocks(userId)) {
+            return LongSets.EMPTY_SET;
+        }
+        LongSet blocked = blockSets.get(userId);
+        if (blocked == null) {
+            blocked = LongSets.unmodifiable(new LongOpenHashSet(friendshipRepository.findBlockedIds(userId)));
+            blockSets.put(userId, blocked);
+        }
+        return blocked;
+    }
+
+    public boolean isBlocked(long userA, long userB) {
+        return blockedIds(userA).contains(userB);
+    }
+
+    public void onBlocked(long userA, long userB) {
+        // Đọc reloading trước usersWithBlocks: nếu lần nạp vừa xong thì usersWithBlocks đã là filter mới
+        LongBloomFilter next = reloading;
+        if (next != null) {
+            next.add(userA);
+            next.add(userB);
+        }
+        usersWithBlocks.add(userA);
+        usersWithBlocks.add(userB);
+        blockSets.invalidateAll(List.of(userA, userB));
+    }
+
+    public void onUnblocked(long userA, long userB) {
+        blockSets.invalidateAll(List.of(userA, userB));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        blockSets.bindTo(registry);
+        Gauge.builder("block.filter.bytes", this, service -> service.usersWithBlocks.sizeInBytes())
+                .register(registry);
+    }
+}
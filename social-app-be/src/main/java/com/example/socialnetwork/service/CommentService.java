@@ -1,7 +1,12 @@
 package com.example.socialnetwork.service;
 
+import com.example.socialnetwork.cache.TimelineCache;
+import com.example.socialnetwork.dto.projection.CommentTreeView;
+import com.example.socialnetwork.dto.projection.CommentView;
 import com.example.socialnetwork.dto.request.CommentRequest;
 import com.example.socialnetwork.dto.response.CommentResponse;
+import com.example.socialnetwork.dto.response.CommentStreamResponse;
+import com.example.socialnetwork.dto.response.CursorPageResponse;
 import com.example.socialnetwork.dto.response.UserProfileResponse;
 import com.example.socialnetwork.entity.Comment;
 import com.example.socialnetwork.entity.Post;
@@ -9,21 +14,48 @@ import com.example.socialnetwork.entity.User;
 import com.example.socialnetwork.repository.CommentRepository;
 import com.example.socialnetwork.repository.PostRepository;
 import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.util.CursorUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class CommentService {
 
+    private static final int MAX_PAGE_SIZE = 50;
+    private static final int MAX_REPLIES_PER_THREAD = 10;
+    // Mỗi cấp chiếm 20 ký tự trong cột path VARCHAR(900)
+    private static final int MAX_DEPTH = 40;
+    private static final int PATH_SEGMENT_LENGTH = 20;
+    // Mốc của client chưa có bình luận nào
+    private static final LocalDateTime STREAM_ORIGIN = LocalDateTime.of(1970, 1, 1, 0, 0);
+
     private final CommentRepository commentRepository;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
+    private final TimelineCache timelineCache;
+    private final PostCounterService postCounterService;
+    private final BlockListService blockListService;
+
+    @Value("${comment.tombstones.retention-hours:168}")
+    private long tombstoneRetentionHours;
 
     private User getCurrentUser() {
         String email = SecurityContextHolder.getContext().getAuthentication().getName();
@@ -31,6 +63,13 @@ public class CommentService {
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
+    // Các truy vấn đọc chỉ cần id người xem để lọc quan hệ chặn
+    private Long getCurrentUserId() {
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        return userRepository.findIdByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+    }
+
     public CommentResponse createComment(Long postId, CommentRequest request) {
         User currentUser = getCurrentUser();
         Post post = postRepository.findById(postId)
@@ -42,14 +81,246 @@ public class CommentService {
         newComment.setPost(post);
 
         Comment savedComment = commentRepository.save(newComment);
+        postCounterService.addComments(postId, 1);
+        timelineCache.evictPost(postId);
         return mapCommentToCommentResponse(savedComment);
     }
 
+    @Transactional
+    public CommentResponse createReply(Long parentId, CommentRequest request) {
+        User currentUser = getCurrentUser();
+        Comment parent = commentRepository.findById(parentId)
+                .orElseThrow(() -> new RuntimeException("Comment not found with id: " + parentId));
+
+        String path = parent.getPath() + pathSegment(parent.getId());
+        if (path.length() / PATH_SEGMENT_LENGTH > MAX_DEPTH) {
+            throw new IllegalArgumentException("Reply thread is too deep.");
+        }
+
+        Comment reply = new Comment();
+        reply.setContent(request.getContent());
+        reply.setUser(currentUser);
+        reply.setPost(parent.getPost());
+        reply.setParent(parent);
+        reply.setPath(path);
+
+        Comment savedReply = commentRepository.save(reply);
+        commentRepository.addReplyCount(parentId, 1);
+        Long postId = parent.getPost().getId();
+        postCounterService.addComments(postId, 1);
+        timelineCache.evictPost(postId);
+        return mapCommentToCommentResponse(savedReply);
+    }
+
+    // Trang bình luận gốc (keyset) kèm tối đa `replies` trả lời đầu tiên của mỗi bình luận: luôn chỉ 2 câu truy vấn
+    public CursorPageResponse<CommentResponse> getCommentThreads(Long postId, String cursor, int size, int replies) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        int perThread = Math.min(Math.max(replies, 0), MAX_REPLIES_PER_THREAD);
+        Limit limit = Limit.of(pageSize + 1);
+        Long viewerId = getCurrentUserId();
+        boolean hasBlocks = blockListService.mayHaveBlocks(viewerId);
+
+        List<CommentView> topLevel;
+        if (CursorUtils.isFirstPage(cursor)) {
+            topLevel = commentRepository.findTopLevel(postId, viewerId, hasBlocks, limit);
+        } else {
+            CursorUtils.TimeCursor before = CursorUtils.decodeTimeCursor(cursor);
+            topLevel = commentRepository.findTopLevelBefore(postId, before.createdAt(), before.id(), viewerId, hasBlocks, limit);
+        }
+        if (topLevel.isEmpty() && !postRepository.existsById(postId)) {
+            throw new RuntimeException("Post not found with id: " + postId);
+        }
+
+        boolean hasNext = topLevel.size() > pageSize;
+        List<CommentView> page = hasNext ? topLevel.subList(0, pageSize) : topLevel;
+
+        List<Long> parentIds = page.stream().filter(c -> c.getReplyCount() > 0).map(CommentView::getId).toList();
+        Map<Long, List<CommentResponse>> repliesByParent = perThread == 0 || parentIds.isEmpty()
+                ? Map.of()
+                : commentRepository.findFirstRepliesOfParents(parentIds, perThread, viewerId, hasBlocks).stream()
+                        .collect(Collectors.groupingBy(CommentView::getParentId,
+                                Collectors.mapping(this::mapViewToCommentResponse, Collectors.toList())));
+
+        List<CommentResponse> content = page.stream().map(view -> {
+            CommentResponse response = mapViewToCommentResponse(view);
+            response.setReplies(repliesByParent.getOrDefault(view.getId(), List.of()));
+            return response;
+        }).toList();
+        CommentView last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return CursorPageResponse.<CommentResponse>builder()
+                .content(content)
+                .nextCursor(hasNext ? CursorUtils.encodeTimeCursor(last.getCreatedAt(), last.getId()) : null)
+                .hasNext(hasNext)
+                .size(pageSize)
+                .build();
+    }
+
+    // perPost bình luận gốc mới nhất của mỗi bài viết, lấy cho cả trang bằng một câu truy vấn
+    public Map<Long, List<CommentResponse>> getLatestComments(Collection<Long> postIds, int perPost,
+                                                              Long viewerId, boolean hasBlocks) {
+        if (postIds.isEmpty() || perPost <= 0) {
+            return Map.of();
+        }
+        return commentRepository.findLatestTopLevelOfPosts(postIds, perPost, viewerId, hasBlocks).stream()
+                .collect(Collectors.groupingBy(CommentView::getPostId,
+                        Collectors.mapping(this::mapViewToCommentResponse, Collectors.toList())));
+    }
+
+    // Các trả lời trực tiếp của một bình luận (cũ nhất trước), dùng để mở rộng một luồng
+    public CursorPageResponse<CommentResponse> getReplies(Long commentId, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Limit limit = Limit.of(pageSize + 1);
+        Long viewerId = getCurrentUserId();
+        boolean hasBlocks = blockListService.mayHaveBlocks(viewerId);
+
+        List<CommentView> replies;
+        if (CursorUtils.isFirstPage(cursor)) {
+            replies = commentRepository.findReplies(commentId, viewerId, hasBlocks, limit);
+        } else {
+            CursorUtils.TimeCursor after = CursorUtils.decodeTimeCursor(cursor);
+            replies = commentRepository.findRepliesAfter(commentId, after.createdAt(), after.id(), viewerId, hasBlocks, limit);
+        }
+        if (replies.isEmpty() && !commentRepository.existsById(commentId)) {
+            throw new RuntimeException("Comment not found with id: " + commentId);
+        }
+
+        boolean hasNext = replies.size() > pageSize;
+        List<CommentView> page = hasNext ? replies.subList(0, pageSize) : replies;
+        CommentView last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return CursorPageResponse.<CommentResponse>builder()
+                .content(page.stream().map(this::mapViewToCommentResponse).toList())
+                .nextCursor(hasNext ? CursorUtils.encodeTimeCursor(last.getCreatedAt(), last.getId()) : null)
+                .hasNext(hasNext)
+                .size(pageSize)
+                .build();
+    }
+
+    // Toàn bộ cây trả lời bên dưới một bình luận (mọi cấp), cha luôn đứng trước con, theo keyset (path, id)
+    public CursorPageResponse<CommentResponse> getSubtree(Long commentId, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Comment root = commentRepository.findById(commentId)
+                .orElseThrow(() -> new RuntimeException("Comment not found with id: " + commentId));
+        Long postId = root.getPost().getId();
+        String subtreePrefix = root.getPath() + pathSegment(root.getId()) + "%";
+        Long viewerId = getCurrentUserId();
+        boolean hasBlocks = blockListService.mayHaveBlocks(viewerId);
+
+        List<CommentTreeView> comments;
+        if (CursorUtils.isFirstPage(cursor)) {
+            comments = commentRepository.findSubtree(postId, subtreePrefix, viewerId, hasBlocks, pageSize + 1);
+        } else {
+            CursorUtils.PathCursor after = CursorUtils.decodePathCursor(cursor);
+            comments = commentRepository.findSubtreeAfter(postId, subtreePrefix, after.path(), after.id(),
+                    viewerId, hasBlocks, pageSize + 1);
+        }
+
+        boolean hasNext = comments.size() > pageSize;
+        List<CommentTreeView> page = hasNext ? comments.subList(0, pageSize) : comments;
+        CommentTreeView last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return CursorPageResponse.<CommentResponse>builder()
+                .content(page.stream().map(this::mapViewToCommentResponse).toList())
+                .nextCursor(hasNext ? CursorUtils.encodePathCursor(last.getPath(), last.getId()) : null)
+                .hasNext(hasNext)
+                .size(pageSize)
+                .build();
+    }
+
+    // Toàn bộ bình luận của bài viết (mọi cấp), mới nhất trước, theo keyset (createdAt, id)
+    public CursorPageResponse<CommentResponse> getCommentStream(Long postId, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Limit limit = Limit.of(pageSize + 1);
+        Long viewerId = getCurrentUserId();
+        boolean hasBlocks = blockListService.mayHaveBlocks(viewerId);
+
+        List<CommentView> comments;
+        if (CursorUtils.isFirstPage(cursor)) {
+            comments = commentRepository.findStream(postId, viewerId, hasBlocks, limit);
+        } else {
+            CursorUtils.TimeCursor before = CursorUtils.decodeTimeCursor(cursor);
+            comments = commentRepository.findStreamBefore(postId, before.createdAt(), before.id(), viewerId, hasBlocks, limit);
+        }
+        if (comments.isEmpty() && !postRepository.existsById(postId)) {
+            throw new RuntimeException("Post not found with id: " + postId);
+        }
+
+        boolean hasNext = comments.size() > pageSize;
+        List<CommentView> page = hasNext ? comments.subList(0, pageSize) : comments;
+        CommentView last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return CursorPageResponse.<CommentResponse>builder()
+                .content(page.stream().map(this::mapViewToCommentResponse).toList())
+                .nextCursor(hasNext ? CursorUtils.encodeTimeCursor(last.getCreatedAt(), last.getId()) : null)
+                .hasNext(hasNext)
+                .size(pageSize)
+                .build();
+    }
+
+    // Polling: chỉ trả các bình luận mới hơn mốc client đang giữ, kèm id các bình luận đã bị xóa từ lần poll trước.
+    // Mốc rỗng: trả `size` bình luận mới nhất làm điểm bắt đầu
+    public CommentStreamResponse getCommentsSince(Long postId, String since, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        // Lấy thời điểm trước khi truy vấn để lần poll sau không bỏ sót tombstone ghi trong lúc đang đọc
+        LocalDateTime polledAt = LocalDateTime.now();
+        Long viewerId = getCurrentUserId();
+        boolean hasBlocks = blockListService.mayHaveBlocks(viewerId);
+
+        if (CursorUtils.isFirstPage(since)) {
+            List<CommentView> latest = new ArrayList<>(commentRepository.findStream(postId, viewerId, hasBlocks, Limit.of(pageSize)));
+            if (latest.isEmpty() && !postRepository.existsById(postId)) {
+                throw new RuntimeException("Post not found with id: " + postId);
+            }
+            Collections.reverse(latest);
+            return buildStreamResponse(latest, List.of(), false, STREAM_ORIGIN, 0L, polledAt);
+        }
+
+        CursorUtils.SinceCursor mark = CursorUtils.decodeSinceCursor(since);
+        if (mark.polledAt().isBefore(polledAt.minusHours(tombstoneRetentionHours))) {
+            // Tombstone cũ hơn đã bị dọn: client phải tải lại từ đầu
+            throw new IllegalArgumentException("Comment stream position has expired.");
+        }
+
+        List<CommentView> newer = commentRepository.findStreamAfter(postId, mark.createdAt(), mark.id(),
+                viewerId, hasBlocks, Limit.of(pageSize + 1));
+        boolean hasMore = newer.size() > pageSize;
+        List<CommentView> page = hasMore ? newer.subList(0, pageSize) : newer;
+        List<Long> deletedIds = commentRepository.findDeletedIdsSince(postId, mark.polledAt());
+        return buildStreamResponse(page, deletedIds, hasMore, mark.createdAt(), mark.id(), polledAt);
+    }
+
+    private CommentStreamResponse buildStreamResponse(List<CommentView> page, List<Long> deletedIds, boolean hasMore,
+                                                      LocalDateTime markCreatedAt, Long markId,
+                                                      LocalDateTime polledAt) {
+        // Mốc mới là bình luận mới nhất đã trả về; không có gì mới thì giữ mốc cũ
+        CommentView newest = page.isEmpty() ? null : page.get(page.size() - 1);
+        String next = newest != null
+                ? CursorUtils.encodeSinceCursor(newest.getCreatedAt(), newest.getId(), polledAt)
+                : CursorUtils.encodeSinceCursor(markCreatedAt, markId, polledAt);
+
+        return CommentStreamResponse.builder()
+                .comments(page.stream().map(this::mapViewToCommentResponse).toList())
+                .deletedIds(deletedIds)
+                .since(next)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    // Dọn các tombstone đã quá thời hạn lưu giữ
+    @Transactional
+    @Scheduled(cron = "${comment.tombstones.purge-cron:0 45 3 * * *}")
+    public int purgeTombstones() {
+        return commentRepository.purgeTombstones(LocalDateTime.now().minusHours(tombstoneRetentionHours));
+    }
+
     public Page<CommentResponse> getCommentsByPostId(Long postId, Pageable pageable) {
         if (!postRepository.existsById(postId)) {
             throw new RuntimeException("Post not found with id: " + postId);
         }
-        Page<Comment> comments = commentRepository.findByPostIdOrderByCreatedAtDesc(postId, pageable);
+        Long viewerId = getCurrentUserId();
+        Page<Comment> comments = commentRepository.findVisibleByPostId(postId, viewerId,
+                blockListService.mayHaveBlocks(viewerId), pageable);
         return comments.map(this::mapCommentToCommentResponse);
     }
 
@@ -64,9 +335,12 @@ public class CommentService {
 
         comment.setContent(request.getContent());
         Comment updatedComment = commentRepository.save(comment);
+        // Bản xem trước bình luận nằm trong bài viết đã cache
+        timelineCache.evictPost(comment.getPost().getId());
         return mapCommentToCommentResponse(updatedComment);
     }
 
+    @Transactional
     public void deleteComment(Long commentId) {
         User currentUser = getCurrentUser();
         Comment comment = commentRepository.findById(commentId)
@@ -78,7 +352,37 @@ public class CommentService {
             throw new AccessDeniedException("You do not have permission to delete this comment.");
         }
 
-        commentRepository.delete(comment);
+        // Xóa cả cây trả lời bên dưới trong một câu lệnh, để lại tombstone cho client đang polling
+        Long postId = comment.getPost().getId();
+        String subtreePrefix = comment.getPath() + pathSegment(comment.getId()) + "%";
+        int removed = commentRepository.deleteSubtree(commentId, postId, subtreePrefix, LocalDateTime.now());
+        if (comment.getParent() != null) {
+            commentRepository.addReplyCount(comment.getParent().getId(), -1);
+        }
+        postCounterService.addComments(postId, -removed);
+        timelineCache.evictPost(postId);
+    }
+
+    private static String pathSegment(Long commentId) {
+        return String.format("%019d/", commentId);
+    }
+
+    private CommentResponse mapViewToCommentResponse(CommentView view) {
+        UserProfileResponse authorProfile = UserProfileResponse.builder()
+                .id(view.getAuthorId())
+                .fullName(view.getAuthorFullName())
+                .avatarUrl(view.getAuthorAvatarUrl())
+                .build();
+
+        return CommentResponse.builder()
+                .id(view.getId())
+                .content(view.getContent())
+                .createdAt(view.getCreatedAt())
+                .updatedAt(view.getUpdatedAt())
+                .author(authorProfile)
+                .parentId(view.getParentId())
+                .replyCount(view.getReplyCount())
+                .build();
     }
 
     private CommentResponse mapCommentToCommentResponse(Comment comment) {
@@ -95,6 +399,8 @@ public class CommentService {
                 .createdAt(comment.getCreatedAt())
                 .updatedAt(comment.getUpdatedAt())
                 .author(authorProfile)
+                .parentId(comment.getParent() != null ? comment.getParent().getId() : null)
+                .replyCount(comment.getReplyCount())
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.example.socialnetwork.service;
+
+import com.example.socialnetwork.dto.response.ConnectionPathResponse;
+import com.example.socialnetwork.repository.UserRepository;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayFIFOQueue;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collections;
+import java.util.List;
+
+// "Hai tài khoản liên quan với nhau thế nào": BFS hai chiều trên quan hệ ACCEPTED, mỗi bước mở rộng phía có frontier nhỏ hơn.
+// Hàng đợi và tập đã duyệt đều là cấu trúc long nguyên thủy; danh sách kề của cả một tầng được lấy theo lô
+// (từ đồ thị trong bộ nhớ, hoặc mỗi lô một truy vấn user_edges khi đồ thị chưa sẵn sàng).
+// Giới hạn độ sâu và số user được duyệt để một cặp user nằm giữa các "hub" không làm request chạy mãi
+@Service
+public class ConnectionPathService {
+
+    private static final int ADJACENCY_BATCH = 500;
+    private static final long ROOT = -1L;
+    private static final long[] NO_FRIENDS = new long[0];
+
+    private final SocialGraphService socialGraphService;
+    private final UserRepository userRepository;
+    private final int maxDepth;
+    private final int maxVisits;
+
+    public ConnectionPathService(SocialGraphService socialGraphService,
+                                 UserRepository userRepository,
+                                 @Value("${social.path.max-depth:6}") int maxDepth,
+                                 @Value("${social.path.max-visits:200000}") int maxVisits) {
+        this.socialGraphService = socialGraphService;
+        this.userRepository = userRepository;
+        this.maxDepth = maxDepth;
+        this.maxVisits = maxVisits;
+    }
+
+    public ConnectionPathResponse findPath(Long fromUserId, Long toUserId) {
+        for (Long userId : List.of(fromUserId, toUserId)) {
+            if (!userRepository.existsById(userId)) {
+                throw new RuntimeException("User not found with id: " + userId);
+            }
+        }
+        return search(fromUserId, toUserId);
+    }
+
+    public ConnectionPathResponse search(long from, long to) {
+        ConnectionPathResponse.ConnectionPathResponseBuilder response = ConnectionPathResponse.builder()
+                .fromUserId(from)
+                .toUserId(to);
+        if (from == to) {
+            return response.found(true).degrees(0).path(List.of(from)).visitedUsers(1).build();
+        }
+
+        // Mỗi phía: user đã duyệt -> user liền trước trên đường đi từ gốc của phía đó (vừa là tập visited vừa để dựng lại đường đi)
+        Long2LongOpenHashMap parentsFromSource = new Long2LongOpenHashMap();
+        Long2LongOpenHashMap parentsFromTarget = new Long2LongOpenHashMap();
+        parentsFromSource.put(from, ROOT);
+        parentsFromTarget.put(to, ROOT);
+        LongArrayFIFOQueue sourceFrontier = new LongArrayFIFOQueue();
+        LongArrayFIFOQueue targetFrontier = new LongArrayFIFOQueue();
+        sourceFrontier.enqueue(from);
+        targetFrontier.enqueue(to);
+
+        int depth = 0;
+        while (depth < maxDepth && !sourceFrontier.isEmpty() && !targetFrontier.isEmpty()) {
+            boolean fromSource = sourceFrontier.size() <= targetFrontier.size();
+            LevelResult level = fromSource
+                    ? expandLevel(sourceFrontier, parentsFromSource, parentsFromTarget)
+                    : expandLevel(targetFrontier, parentsFromTarget, parentsFromSource);
+            depth++;
+            int visited = parentsFromSource.size() + parentsFromTarget.size();
+            if (level.meeting() != ROOT) {
+                List<Long> path = buildPath(level.meeting(), parentsFromSource, parentsFromTarget);
+                return response.found(true).degrees(path.size() - 1).path(path).visitedUsers(visited).build();
+            }
+            if (level.budgetExhausted()) {
+                return response.found(false).path(List.of()).visitedUsers(visited).budgetExhausted(true).build();
+            }
+        }
+        return response.found(false).path(List.of())
+                .visitedUsers(parentsFromSource.size() + parentsFromTarget.size())
+                .build();
+    }
+
+    private record LevelResult(long meeting, boolean budgetExhausted) {
+    }
+
+    // Mở rộng đúng một tầng của một phía. Vì mọi tầng trước của cả hai phía đã được mở rộng hết mà chưa gặp nhau,
+    // user đầu tiên đã được phía bên kia duyệt chính là điểm gặp của một đường đi ngắn nhất
+    private LevelResult expandLevel(LongArrayFIFOQueue frontier,
+                                    Long2LongOpenHashMap parents,
+                                    Long2LongOpenHashMap otherParents) {
+        int levelSize = frontier.size();
+        LongArrayList batch = new LongArrayList(Math.min(levelSize, ADJACENCY_BATCH));
+        for (int i = 0; i < levelSize; i++) {
+            batch.add(frontier.dequeueLong());
+            if (batch.size() == ADJACENCY_BATCH || i == levelSize - 1) {
+                Long2ObjectMap<long[]> adjacency = socialGraphService.friendsOf(batch);
+                for (long userId : batch) {
+                    for (long friendId : adjacency.getOrDefault(userId, NO_FRIENDS)) {
+                        if (parents.containsKey(friendId)) {
+                            continue;
+                        }
+                        parents.put(friendId, userId);
+                        if (otherParents.containsKey(friendId)) {
+                            return new LevelResult(friendId, false);
+                        }
+                        if (parents.size() + otherParents.size() >= maxVisits) {
+                            return new LevelResult(ROOT, true);
+                        }
+                        frontier.enqueue(friendId);
+                    }
+                }
+                batch.clear();
+            }
+        }
+        return new LevelResult(ROOT, false);
+    }
+
+    private static List<Long> buildPath(long meeting,
+                                        Long2LongOpenHashMap parentsFromSource,
+                                        Long2LongOpenHashMap parentsFromTarget) {
+        LongArrayList path = new LongArrayList();
+        for (long user = meeting; user != ROOT; user = parentsFromSource.get(user)) {
+            path.add(user);
+        }
+        Collections.reverse(path);
+        for (long user = parentsFromTarget.get(meeting); user != ROOT; user = parentsFromTarget.get(user)) {
+            path.add(user);
+        }
+        return List.copyOf(path);
+    }
+}
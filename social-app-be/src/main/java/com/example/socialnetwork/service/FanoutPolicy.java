@@ -0,0 +1,81 @@
+package com.example.socialnetwork.service;
+
+import com.example.socialnetwork.repository.FriendshipRepository;
+import com.example.socialnetwork.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Quyết định push hay pull cho từng tác giả dựa trên số bạn bè (degree) tính từ bảng user_edges
+@Component
+public class FanoutPolicy {
+
+    private final FriendshipRepository friendshipRepository;
+    private final PostRepository postRepository;
+
+    private volatile int degreeThreshold;
+    private volatile Set<Long> highDegreeUsers = Set.of();
+    // Các tác giả đang có ít nhất một bài viết không fan-out (cần kéo lúc đọc)
+    private final Set<Long> pulledAuthors = ConcurrentHashMap.newKeySet();
+
+    public FanoutPolicy(FriendshipRepository friendshipRepository,
+                        PostRepository postRepository,
+                        @Value("${timeline.fanout.degree-threshold:5000}") int degreeThreshold) {
+        this.friendshipRepository = friendshipRepository;
+        this.postRepository = postRepository;
+        this.degreeThreshold = degreeThreshold;
+    }
+
+    @Scheduled(fixedDelayString = "${timeline.fanout.refresh-interval-ms:600000}")
+    public void refresh() {
+        highDegreeUsers = Set.copyOf(friendshipRepository.findUserIdsWithDegreeAbove(degreeThreshold));
+        pulledAuthors.addAll(postRepository.findPulledAuthorIds());
+    }
+
+    public int getDegreeThreshold() {
+        return degreeThreshold;
+    }
+
+    public void setDegreeThreshold(int degreeThreshold) {
+        this.degreeThreshold = degreeThreshold;
+        refresh();
+    }
+
+    public boolean shouldPush(Long authorId) {
+        return !highDegreeUsers.contains(authorId);
+    }
+
+    public void markPulled(Long authorId) {
+        pulledAuthors.add(authorId);
+    }
+
+    public boolean hasPulledAuthors() {
+        return !pulledAuthors.isEmpty();
+    }
+
+    public boolean isPulled(long authorId) {
+        return pulledAuthors.contains(authorId);
+    }
+
+    public int pulledAuthorCount() {
+        return pulledAuthors.size();
+    }
+
+    // Có tác giả nào trong danh sách đang bị kéo không
+    public boolean anyPulled(long[] authorIds) {
+        for (long authorId : authorIds) {
+            if (pulledAuthors.contains(authorId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Set<Long> getPulledAuthors() {
+        return Collections.unmodifiableSet(pulledAuthors);
+    }
+}
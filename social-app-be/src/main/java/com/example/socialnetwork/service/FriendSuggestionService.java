@@ -0,0 +1,184 @@
+package com.example.socialnetwork.service;
+
+import com.example.socialnetwork.cache.LruTtlCache;
+import com.example.socialnetwork.dto.response.FriendSuggestionResponse;
+import com.example.socialnetwork.entity.User;
+import com.example.socialnetwork.repository.FriendshipRepository;
+import com.example.socialnetwork.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// "Những người bạn có thể biết": bạn của bạn bè, xếp theo số bạn chung.
+// Số bạn chung của mỗi ứng viên là phép giao hai mảng id đã sắp xếp, chia nhỏ trên ForkJoinPool.
+// Kết quả xếp hạng được cache theo user và bị xóa khi quan hệ của user đó thay đổi
+@Service
+public class FriendSuggestionService implements MeterBinder {
+
+    private static final int MAX_SUGGESTIONS = 50;
+    // Giới hạn số ứng viên được chấm điểm để user có bạn bè là "hub" không làm một request quá nặng
+    private static final int MAX_CANDIDATES = 20_000;
+    private static final int TASK_THRESHOLD = 256;
+    // Số user mỗi lần tra bạn bè theo lô: khi đồ thị chưa sẵn sàng mỗi lô là một truy vấn (dưới giới hạn 2100 tham số)
+    private static final int ADJACENCY_BATCH = 500;
+    private static final long[] NO_FRIENDS = new long[0];
+
+    private final SocialGraphService socialGraphService;
+    private final FriendshipRepository friendshipRepository;
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final ForkJoinPool graphPool;
+    private final LruTtlCache<Long, List<Suggestion>> suggestions;
+
+    public record Suggestion(long userId, int mutualFriendCount) {
+    }
+
+    public FriendSuggestionService(SocialGraphService socialGraphService,
+                                   FriendshipRepository friendshipRepository,
+                                   UserRepository userRepository,
+                                   UserService userService,
+                                   @Qualifier("graphPool") ForkJoinPool graphPool,
+                                   @Value("${friend.suggestions.max-users:10000}") int maxUsers,
+                                   @Value("${friend.suggestions.ttl-seconds:600}") long ttlSeconds) {
+        this.socialGraphService = socialGraphService;
+        this.friendshipRepository = friendshipRepository;
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.graphPool = graphPool;
+        this.suggestions = new LruTtlCache<>("friend.suggestions", maxUsers, Duration.ofSeconds(ttlSeconds));
+    }
+
+    private User getCurrentUser() {
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        return userRepository.findByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+    }
+
+    public List<FriendSuggestionResponse> getSuggestions(int limit) {
+        Long userId = getCurrentUser().getId();
+        int size = Math.min(Math.max(limit, 1), MAX_SUGGESTIONS);
+
+        List<Suggestion> ranked = suggestions.get(userId);
+        if (ranked == null) {
+            ranked = rank(userId);
+            suggestions.put(userId, ranked);
+        }
+        List<Suggestion> page = ranked.subList(0, Math.min(size, ranked.size()));
+        if (page.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, User> users = userRepository.findAllById(page.stream().map(Suggestion::userId).toList()).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return page.stream()
+                .filter(s -> users.containsKey(s.userId()))
+                .map(s -> FriendSuggestionResponse.builder()
+                        .user(userService.mapUserToProfileResponse(users.get(s.userId())))
+                        .mutualFriendCount(s.mutualFriendCount())
+                        .build())
+                .toList();
+    }
+
+    // Quan hệ của user thay đổi (gửi / nhận / hủy lời mời, kết bạn, chặn...): tính lại gợi ý cho cả hai bên
+    public void evict(Long userA, Long userB) {
+        suggestions.invalidateAll(List.of(userA, userB));
+    }
+
+    public List<Suggestion> rank(long userId) {
+        long[] friends = socialGraphService.sortedFriendsOf(userId);
+        if (friends.length == 0) {
+            return List.of();
+        }
+
+        // Loại chính mình và mọi user đã có quan hệ: bạn bè, lời mời đang chờ, đã từ chối, đã chặn
+        LongOpenHashSet excluded = new LongOpenHashSet(friendshipRepository.findRelatedUserIds(userId));
+        excluded.add(userId);
+
+        // Bạn của bạn bè được tra theo lô: đồ thị chưa nạp xong thì mỗi lô là một truy vấn thay vì một truy vấn mỗi người bạn
+        LongOpenHashSet candidates = new LongOpenHashSet();
+        collect:
+        for (int from = 0; from < friends.length; from += ADJACENCY_BATCH) {
+            LongArrayList batch = LongArrayList.wrap(Arrays.copyOfRange(friends, from, Math.min(friends.length, from + ADJACENCY_BATCH)));
+            Long2ObjectMap<long[]> friendsOfFriends = socialGraphService.friendsOf(batch);
+            for (long friend : batch) {
+                for (long candidate : friendsOfFriends.getOrDefault(friend, NO_FRIENDS)) {
+                    if (!excluded.contains(candidate) && candidates.add(candidate) && candidates.size() >= MAX_CANDIDATES) {
+                        break collect;
+                    }
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        long[] candidateIds = candidates.toLongArray();
+        int[] mutualCounts = new int[candidateIds.length];
+        graphPool.invoke(new MutualCountTask(friends, candidateIds, mutualCounts, 0, candidateIds.length));
+
+        List<Suggestion> ranked = new ArrayList<>(candidateIds.length);
+        for (int i = 0; i < candidateIds.length; i++) {
+            ranked.add(new Suggestion(candidateIds[i], mutualCounts[i]));
+        }
+        ranked.sort(Comparator.comparingInt(Suggestion::mutualFriendCount).reversed()
+                .thenComparingLong(Suggestion::userId));
+        return List.copyOf(ranked.subList(0, Math.min(MAX_SUGGESTIONS, ranked.size())));
+    }
+
+    // Chia đôi dải ứng viên cho tới khi đủ nhỏ, mỗi ứng viên là một phép giao hai mảng đã sắp xếp.
+    // Mỗi dải lá tra bạn bè của các ứng viên bằng một lần gọi theo lô
+    private class MutualCountTask extends RecursiveAction {
+        private final long[] sortedFriends;
+        private final long[] candidateIds;
+        private final int[] mutualCounts;
+        private final int from;
+        private final int to;
+
+        MutualCountTask(long[] sortedFriends, long[] candidateIds, int[] mutualCounts, int from, int to) {
+            this.sortedFriends = sortedFriends;
+            this.candidateIds = candidateIds;
+            this.mutualCounts = mutualCounts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TASK_THRESHOLD) {
+                Long2ObjectMap<long[]> candidateFriends = socialGraphService.sortedFriendsOf(
+                        LongArrayList.wrap(Arrays.copyOfRange(candidateIds, from, to)));
+                for (int i = from; i < to; i++) {
+                    mutualCounts[i] = SocialGraphService.intersectionSize(sortedFriends,
+                            candidateFriends.getOrDefault(candidateIds[i], NO_FRIENDS));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new MutualCountTask(sortedFriends, candidateIds, mutualCounts, from, mid),
+                    new MutualCountTask(sortedFriends, candidateIds, mutualCounts, mid, to));
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        suggestions.bindTo(registry);
+    }
+}
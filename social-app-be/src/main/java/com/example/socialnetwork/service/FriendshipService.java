@@ -1,31 +1,58 @@
 package com.example.socialnetwork.service;
 
+import com.example.socialnetwork.dto.response.CursorPageResponse;
+import com.example.socialnetwork.dto.response.FriendRequestResultResponse;
+import com.example.socialnetwork.dto.response.FriendResponse;
 import com.example.socialnetwork.dto.response.FriendshipStatusResponse;
+import com.example.socialnetwork.dto.response.MutualFriendsResponse;
 import com.example.socialnetwork.dto.response.UserProfileResponse;
 import com.example.socialnetwork.entity.Friendship;
 import com.example.socialnetwork.entity.FriendshipId;
 import com.example.socialnetwork.entity.FriendshipStatus;
 import com.example.socialnetwork.entity.User;
+import com.example.socialnetwork.entity.UserEdge;
 import com.example.socialnetwork.repository.FriendshipRepository;
 import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.util.CursorUtils;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class FriendshipService {
 
+    private static final int MAX_MUTUAL_BATCH = 300;
+    private static final int MAX_MUTUAL_SAMPLE = 5;
+    private static final int MAX_FRIEND_PAGE_SIZE = 100;
+    // Ký tự đầu của cursor danh sách bạn bè cho biết cursor thuộc kiểu sắp xếp nào
+    private static final char NAME_CURSOR = 'n';
+    private static final char RECENT_CURSOR = 'r';
+
     private final FriendshipRepository friendshipRepository;
     private final UserRepository userRepository;
     private final UserService userService;
+    private final TimelineFanoutService timelineFanoutService;
+    private final SocialGraphService socialGraphService;
+    private final FriendSuggestionService friendSuggestionService;
+    private final BlockListService blockListService;
 
     private User getCurrentUser() {
         String email = SecurityContextHolder.getContext().getAuthentication().getName();
@@ -33,162 +60,329 @@ public class FriendshipService {
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
+    // Mỗi bước chuyển trạng thái là một câu lệnh có điều kiện trong FriendshipRepository: số dòng bị đổi quyết định kết quả.
+    // Chỉ khi không có dòng nào đổi mới đọc lại quan hệ, để báo đúng lý do như trước.
+    // Đồ thị bạn bè trong bộ nhớ, danh sách chặn, gợi ý kết bạn và timeline chỉ được cập nhật sau khi transaction commit
+    // (afterCommit), để một lần rollback không để lại trạng thái mà DB không có
+    @Transactional
     public void sendFriendRequest(Long recipientId) {
         User sender = getCurrentUser();
         userRepository.findById(recipientId)
                 .orElseThrow(() -> new EntityNotFoundException("Recipient user not found with id: " + recipientId));
 
-
         FriendshipId friendshipId = createFriendshipId(sender.getId(), recipientId);
-        Optional<Friendship> existingFriendship = friendshipRepository.findById(friendshipId);
-
-        if (existingFriendship.isPresent()) {
-            Friendship f = existingFriendship.get();
-            switch (f.getStatus()) {
-                case ACCEPTED:
-                    throw new IllegalStateException("You are already friends.");
-                case PENDING:
-                    throw new IllegalStateException("A friend request is already pending.");
-                case BLOCKED:
-                    throw new IllegalStateException("Cannot send request. The user is blocked or has blocked you.");
-                case DECLINED:
-                    if (f.getActionUserId().equals(sender.getId())) {
-                        throw new IllegalStateException("Your previous request was declined. You cannot send another one at this time.");
-                    }
-                    break;
-            }
+        // Tạo mới, hoặc gửi lại khi lần trước chính người kia đã từ chối
+        if (friendshipRepository.insertRequest(friendshipId.getUserOneId(), friendshipId.getUserTwoId(), sender.getId()) == 0) {
+            Friendship f = friendshipRepository.findById(friendshipId)
+                    .orElseThrow(() -> new IllegalStateException("A friend request is already pending."));
+            throw new IllegalStateException(switch (f.getStatus()) {
+                case ACCEPTED -> "You are already friends.";
+                case PENDING -> "A friend request is already pending.";
+                case BLOCKED -> "Cannot send request. The user is blocked or has blocked you.";
+                case DECLINED -> "Your previous request was declined. You cannot send another one at this time.";
+            });
         }
 
-        // Nếu không có hoặc là trường hợp DECLINED được phép gửi lại
-        Friendship friendship = existingFriendship.orElse(new Friendship());
-        friendship.setUserOneId(friendshipId.getUserOneId());
-        friendship.setUserTwoId(friendshipId.getUserTwoId());
-        friendship.setStatus(FriendshipStatus.PENDING);
-        friendship.setActionUserId(sender.getId());
-
-        friendshipRepository.save(friendship);
+        syncEdges(friendshipId, FriendshipStatus.PENDING, sender.getId());
+        afterCommit(() -> friendSuggestionService.evict(sender.getId(), recipientId));
     }
 
+    @Transactional
     public void acceptFriendRequest(Long requesterId) {
         User currentUser = getCurrentUser();
         FriendshipId friendshipId = createFriendshipId(currentUser.getId(), requesterId);
 
-        Friendship friendship = friendshipRepository.findById(friendshipId)
-                .orElseThrow(() -> new RuntimeException("Friendship request not found."));
-
         // Chỉ người nhận lời mời mới được chấp nhận
-        if (friendship.getStatus() != FriendshipStatus.PENDING || !friendship.getActionUserId().equals(requesterId)) {
+        if (friendshipRepository.respondToRequest(friendshipId.getUserOneId(), friendshipId.getUserTwoId(),
+                requesterId, currentUser.getId(), FriendshipStatus.ACCEPTED.name()) == 0) {
+            requireExists(friendshipId, "Friendship request not found.");
             throw new IllegalStateException("Invalid friend request or you are not the recipient.");
         }
 
-        friendship.setStatus(FriendshipStatus.ACCEPTED);
-        friendship.setActionUserId(currentUser.getId()); // Người chấp nhận
-        friendshipRepository.save(friendship);
+        syncEdges(friendshipId, FriendshipStatus.ACCEPTED, currentUser.getId()); // Người chấp nhận
+        afterCommit(() -> onConnected(currentUser.getId(), requesterId));
     }
 
+    @Transactional
     public void declineFriendRequest(Long requesterId) {
         User currentUser = getCurrentUser();
         FriendshipId friendshipId = createFriendshipId(currentUser.getId(), requesterId);
 
-        Friendship friendship = friendshipRepository.findById(friendshipId)
-                .orElseThrow(() -> new RuntimeException("Friendship request not found."));
-
-        if (friendship.getStatus() != FriendshipStatus.PENDING || !friendship.getActionUserId().equals(requesterId)) {
+        if (friendshipRepository.respondToRequest(friendshipId.getUserOneId(), friendshipId.getUserTwoId(),
+                requesterId, currentUser.getId(), FriendshipStatus.DECLINED.name()) == 0) {
+            requireExists(friendshipId, "Friendship request not found.");
             throw new IllegalStateException("No pending request to decline.");
         }
 
-        friendship.setStatus(FriendshipStatus.DECLINED);
-        friendship.setActionUserId(currentUser.getId());
-        friendshipRepository.save(friendship);
+        syncEdges(friendshipId, FriendshipStatus.DECLINED, currentUser.getId());
+        afterCommit(() -> friendSuggestionService.evict(currentUser.getId(), requesterId));
     }
 
+    @Transactional
     public void cancelFriendRequest(Long recipientId) {
         User currentUser = getCurrentUser();
         FriendshipId friendshipId = createFriendshipId(currentUser.getId(), recipientId);
 
-        Friendship friendship = friendshipRepository.findById(friendshipId)
-                .orElseThrow(() -> new RuntimeException("Friendship request not found."));
-
         // Đảm bảo chỉ người gửi mới có thể hủy
-        if (friendship.getStatus() != FriendshipStatus.PENDING || !friendship.getActionUserId().equals(currentUser.getId())) {
+        if (friendshipRepository.deleteRequest(friendshipId.getUserOneId(), friendshipId.getUserTwoId(), currentUser.getId()) == 0) {
+            requireExists(friendshipId, "Friendship request not found.");
             throw new IllegalStateException("No sent request to cancel.");
         }
 
-        friendshipRepository.delete(friendship);
+        friendshipRepository.deleteEdges(currentUser.getId(), recipientId);
+        afterCommit(() -> friendSuggestionService.evict(currentUser.getId(), recipientId));
+    }
+
+    // Các thao tác hàng loạt: kiểm tra mọi id trên một lần đọc user_edges, ghi các id hợp lệ trong một JDBC batch
+    // và trả kết quả riêng cho từng id (một id lỗi không làm hỏng cả lô)
+    @Transactional
+    public List<FriendRequestResultResponse> acceptFriendRequests(List<Long> requesterIds) {
+        Long currentUserId = getCurrentUser().getId();
+        Map<Long, FriendRequestResultResponse> results = new LinkedHashMap<>();
+        List<Long> valid = validateRequests(currentUserId, requesterIds, false,
+                "Invalid friend request or you are not the recipient.", results);
+
+        int[] updated = valid.isEmpty() ? new int[0]
+                : friendshipRepository.respondToRequests(currentUserId, valid, FriendshipStatus.ACCEPTED);
+        List<Long> accepted = new ArrayList<>();
+        for (int i = 0; i < valid.size(); i++) {
+            Long requesterId = valid.get(i);
+            if (updated[i] == 0) {
+                results.put(requesterId, failure(requesterId, "Invalid friend request or you are not the recipient."));
+                continue;
+            }
+            results.put(requesterId, success(requesterId));
+            accepted.add(requesterId);
+        }
+        afterCommit(() -> accepted.forEach(requesterId -> onConnected(currentUserId, requesterId)));
+        return List.copyOf(results.values());
+    }
+
+    @Transactional
+    public List<FriendRequestResultResponse> declineFriendRequests(List<Long> requesterIds) {
+        Long currentUserId = getCurrentUser().getId();
+        Map<Long, FriendRequestResultResponse> results = new LinkedHashMap<>();
+        List<Long> valid = validateRequests(currentUserId, requesterIds, false,
+                "No pending request to decline.", results);
+
+        int[] updated = valid.isEmpty() ? new int[0]
+                : friendshipRepository.respondToRequests(currentUserId, valid, FriendshipStatus.DECLINED);
+        List<Long> declined = new ArrayList<>();
+        for (int i = 0; i < valid.size(); i++) {
+            Long requesterId = valid.get(i);
+            if (updated[i] == 0) {
+                results.put(requesterId, failure(requesterId, "No pending request to decline."));
+                continue;
+            }
+            results.put(requesterId, success(requesterId));
+            declined.add(requesterId);
+        }
+        afterCommit(() -> declined.forEach(requesterId -> friendSuggestionService.evict(currentUserId, requesterId)));
+        return List.copyOf(results.values());
+    }
+
+    @Transactional
+    public List<FriendRequestResultResponse> cancelFriendRequests(List<Long> recipientIds) {
+        Long currentUserId = getCurrentUser().getId();
+        Map<Long, FriendRequestResultResponse> results = new LinkedHashMap<>();
+        List<Long> valid = validateRequests(currentUserId, recipientIds, true,
+                "No sent request to cancel.", results);
+
+        int[] deleted = valid.isEmpty() ? new int[0] : friendshipRepository.cancelRequests(currentUserId, valid);
+        List<Long> cancelled = new ArrayList<>();
+        for (int i = 0; i < valid.size(); i++) {
+            Long recipientId = valid.get(i);
+            if (deleted[i] == 0) {
+                results.put(recipientId, failure(recipientId, "No sent request to cancel."));
+                continue;
+            }
+            results.put(recipientId, success(recipientId));
+            cancelled.add(recipientId);
+        }
+        afterCommit(() -> cancelled.forEach(recipientId -> friendSuggestionService.evict(currentUserId, recipientId)));
+        return List.copyOf(results.values());
     }
 
+    // Áp cùng luật như các API xử lý từng lời mời: phải còn PENDING, và người gửi là người kia (sentByMe = false)
+    // hoặc chính mình (sentByMe = true). Id không hợp lệ được ghi lỗi vào results; trả về các id được phép ghi.
+    // Thứ tự trong results giữ theo thứ tự id của request
+    private List<Long> validateRequests(Long currentUserId, List<Long> otherUserIds, boolean sentByMe,
+                                        String invalidMessage, Map<Long, FriendRequestResultResponse> results) {
+        List<Long> others = otherUserIds.stream().distinct().toList();
+        others.forEach(otherId -> results.put(otherId, null));
+        Map<Long, UserEdge> byOtherUser = friendshipRepository.findRelationsWith(currentUserId, others).stream()
+                .collect(Collectors.toMap(UserEdge::getOtherId, Function.identity()));
+
+        List<Long> valid = new ArrayList<>();
+        for (Long otherId : others) {
+            UserEdge edge = byOtherUser.get(otherId);
+            if (otherId.equals(currentUserId)) {
+                results.put(otherId, failure(otherId, "Cannot create friendship with oneself."));
+            } else if (edge == null) {
+                results.put(otherId, failure(otherId, "Friendship request not found."));
+            } else if (edge.getStatus() != FriendshipStatus.PENDING
+                    || !edge.getActionUserId().equals(sentByMe ? currentUserId : otherId)) {
+                results.put(otherId, failure(otherId, invalidMessage));
+            } else {
+                valid.add(otherId);
+            }
+        }
+        return valid;
+    }
+
+    private static FriendRequestResultResponse success(Long userId) {
+        return FriendRequestResultResponse.builder().userId(userId).success(true).build();
+    }
+
+    private static FriendRequestResultResponse failure(Long userId, String error) {
+        return FriendRequestResultResponse.builder().userId(userId).success(false).error(error).build();
+    }
+
+    @Transactional
     public void blockUser(Long userIdToBlock) {
         User currentUser = getCurrentUser();
         FriendshipId friendshipId = createFriendshipId(currentUser.getId(), userIdToBlock);
 
-        Friendship friendship = friendshipRepository.findById(friendshipId)
-                .orElse(new Friendship());
-
-        friendship.setUserOneId(friendshipId.getUserOneId());
-        friendship.setUserTwoId(friendshipId.getUserTwoId());
-        friendship.setStatus(FriendshipStatus.BLOCKED);
-        friendship.setActionUserId(currentUser.getId());
+        // 0 dòng: mình đã chặn người này từ trước, không có gì thay đổi
+        if (friendshipRepository.block(friendshipId.getUserOneId(), friendshipId.getUserTwoId(), currentUser.getId()) == 0) {
+            return;
+        }
 
-        friendshipRepository.save(friendship);
+        syncEdges(friendshipId, FriendshipStatus.BLOCKED, currentUser.getId());
+        afterCommit(() -> {
+            // Chặn một người bạn thì cạnh bạn bè cũng mất
+            blockListService.onBlocked(currentUser.getId(), userIdToBlock);
+            onDisconnected(currentUser.getId(), userIdToBlock);
+        });
     }
 
+    @Transactional
     public void unblockUser(Long userIdToUnblock) {
         User currentUser = getCurrentUser();
         FriendshipId friendshipId = createFriendshipId(currentUser.getId(), userIdToUnblock);
 
-        Friendship friendship = friendshipRepository.findById(friendshipId)
-                .orElseThrow(() -> new RuntimeException("No block relationship found."));
-
-        // Đảm bảo chỉ người đã chặn mới có thể bỏ chặn
-        if (friendship.getStatus() != FriendshipStatus.BLOCKED || !friendship.getActionUserId().equals(currentUser.getId())) {
+        // Chỉ người đã chặn mới có thể bỏ chặn. Khi bỏ chặn, mối quan hệ bị xóa hoàn toàn, hai người trở thành người lạ
+        if (friendshipRepository.deleteBlock(friendshipId.getUserOneId(), friendshipId.getUserTwoId(), currentUser.getId()) == 0) {
+            requireExists(friendshipId, "No block relationship found.");
             throw new IllegalStateException("You did not block this user.");
         }
-        // Khi bỏ chặn, mối quan hệ sẽ bị xóa hoàn toàn, hai người trở thành người lạ
-        friendshipRepository.delete(friendship);
+
+        friendshipRepository.deleteEdges(currentUser.getId(), userIdToUnblock);
+        afterCommit(() -> {
+            blockListService.onUnblocked(currentUser.getId(), userIdToUnblock);
+            friendSuggestionService.evict(currentUser.getId(), userIdToUnblock);
+        });
     }
 
+    @Transactional
     public void unfriend(Long friendId) {
         User currentUser = getCurrentUser();
         FriendshipId friendshipId = createFriendshipId(currentUser.getId(), friendId);
 
-        Friendship friendship = friendshipRepository.findById(friendshipId)
-                .orElseThrow(() -> new RuntimeException("Friendship not found."));
-
-        if (friendship.getStatus() != FriendshipStatus.ACCEPTED) {
+        if (friendshipRepository.deleteFriendship(friendshipId.getUserOneId(), friendshipId.getUserTwoId()) == 0) {
+            requireExists(friendshipId, "Friendship not found.");
             throw new IllegalStateException("You are not friends with this user.");
         }
 
-        friendshipRepository.delete(friendship);
+        friendshipRepository.deleteEdges(currentUser.getId(), friendId);
+        afterCommit(() -> onDisconnected(currentUser.getId(), friendId));
     }
 
     public List<UserProfileResponse> getFriendList() {
         User currentUser = getCurrentUser();
-        List<Friendship> friendships = friendshipRepository.findAcceptedFriends(currentUser.getId());
-
-        List<Long> friendIds = friendships.stream()
-                .flatMap(f -> Stream.of(f.getUserOneId(), f.getUserTwoId()))
-                .filter(id -> !id.equals(currentUser.getId()))
-                .distinct()
-                .collect(Collectors.toList());
+        List<Long> friendIds = LongArrayList.wrap(socialGraphService.friendsOf(currentUser.getId()));
 
         return userRepository.findAllById(friendIds).stream()
                 .map(userService::mapUserToProfileResponse) // Tái sử dụng hàm map từ UserService
                 .collect(Collectors.toList());
     }
 
+    // Danh sách bạn bè theo keyset: sort = "name" (A-Z) hoặc "recent" (kết bạn gần nhất trước).
+    // Cursor của mỗi kiểu sắp xếp khác nhau và mang theo kiểu sắp xếp của nó: đổi sort thì phải bắt đầu lại từ trang đầu,
+    // dùng cursor của kiểu khác bị từ chối thay vì bị hiểu sai
+    public CursorPageResponse<FriendResponse> getFriendsByCursor(String cursor, int size, String sort) {
+        Long userId = getCurrentUser().getId();
+        int pageSize = Math.min(Math.max(size, 1), MAX_FRIEND_PAGE_SIZE);
+        Limit limit = Limit.of(pageSize + 1);
+        boolean byName = switch (sort) {
+            case "name" -> true;
+            case "recent" -> false;
+            default -> throw new IllegalArgumentException("Unsupported sort: " + sort);
+        };
+
+        List<FriendResponse> friends;
+        if (CursorUtils.isFirstPage(cursor)) {
+            friends = byName ? friendshipRepository.findFriendsByName(userId, limit)
+                    : friendshipRepository.findFriendsByDate(userId, limit);
+        } else if (byName) {
+            CursorUtils.NameCursor after = CursorUtils.decodeNameCursor(stripSortKind(cursor, NAME_CURSOR, sort));
+            friends = friendshipRepository.findFriendsByNameAfter(userId, after.name(), after.id(), limit);
+        } else {
+            CursorUtils.TimeCursor before = CursorUtils.decodeTimeCursor(stripSortKind(cursor, RECENT_CURSOR, sort));
+            friends = friendshipRepository.findFriendsByDateBefore(userId, before.createdAt(), before.id(), limit);
+        }
+
+        boolean hasNext = friends.size() > pageSize;
+        List<FriendResponse> page = hasNext ? friends.subList(0, pageSize) : friends;
+        FriendResponse last = page.isEmpty() ? null : page.get(page.size() - 1);
+        String nextCursor = null;
+        if (hasNext) {
+            nextCursor = byName ? NAME_CURSOR + CursorUtils.encodeNameCursor(last.getFullName(), last.getUserId())
+                    : RECENT_CURSOR + CursorUtils.encodeTimeCursor(last.getFriendsSince(), last.getUserId());
+        }
+
+        return CursorPageResponse.<FriendResponse>builder()
+                .content(page)
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .size(pageSize)
+                .build();
+    }
+
+    private static String stripSortKind(String cursor, char kind, String sort) {
+        if (cursor.charAt(0) != kind) {
+            throw new IllegalArgumentException("Cursor does not match sort: " + sort + ". Start again from the first page.");
+        }
+        return cursor.substring(1);
+    }
+
     public List<UserProfileResponse> getPendingFriendRequests() {
         User currentUser = getCurrentUser();
-        List<Friendship> pendingRequests = friendshipRepository.findPendingRequestsForUser(currentUser.getId());
-
-        List<Long> requesterIds = pendingRequests.stream()
-                .map(Friendship::getActionUserId)
-                .collect(Collectors.toList());
+        List<Long> requesterIds = friendshipRepository.findPendingRequesterIds(currentUser.getId());
 
         return userRepository.findAllById(requesterIds).stream()
                 .map(userService::mapUserToProfileResponse)
                 .collect(Collectors.toList());
     }
 
+    // Số bạn chung với cả danh sách user: nạp id bạn bè một lần cho cả danh sách rồi giao trong bộ nhớ
+    public List<MutualFriendsResponse> getMutualFriends(List<Long> userIds, int sample) {
+        if (userIds.size() > MAX_MUTUAL_BATCH) {
+            throw new IllegalArgumentException("At most " + MAX_MUTUAL_BATCH + " user ids per request.");
+        }
+        Long currentUserId = getCurrentUser().getId();
+        int sampleSize = Math.min(Math.max(sample, 0), MAX_MUTUAL_SAMPLE);
+
+        List<Long> others = userIds.stream().distinct().filter(id -> !id.equals(currentUserId)).toList();
+        if (others.isEmpty()) {
+            return List.of();
+        }
+        List<Long> everyone = new ArrayList<>(others);
+        everyone.add(currentUserId);
+        Long2ObjectMap<long[]> friendsByUser = socialGraphService.sortedFriendsOf(everyone);
+        long[] myFriends = friendsByUser.get((long) currentUserId);
+
+        return others.stream().map(otherId -> {
+            long[] theirFriends = friendsByUser.get((long) otherId);
+            return MutualFriendsResponse.builder()
+                    .userId(otherId)
+                    .mutualFriendCount(SocialGraphService.intersectionSize(myFriends, theirFriends))
+                    .mutualFriendIds(sampleSize == 0 ? List.of()
+                            : Arrays.stream(SocialGraphService.intersection(myFriends, theirFriends, sampleSize)).boxed().toList())
+                    .build();
+        }).toList();
+    }
+
     public FriendshipStatusResponse getFriendshipStatus(Long otherUserId) {
         User currentUser = getCurrentUser();
         Long currentUserId = currentUser.getId();
@@ -197,49 +391,116 @@ public class FriendshipService {
             return new FriendshipStatusResponse("SELF");
         }
 
+        // Trường hợp phổ biến nhất trả lời thẳng từ đồ thị trong bộ nhớ
+        if (socialGraphService.isReady() && socialGraphService.areFriends(currentUserId, otherUserId)) {
+            return new FriendshipStatusResponse("FRIENDS");
+        }
+
         FriendshipId friendshipId = createFriendshipId(currentUserId, otherUserId);
         Optional<Friendship> friendshipOpt = friendshipRepository.findById(friendshipId);
 
         if (friendshipOpt.isEmpty()) {
             return new FriendshipStatusResponse("NONE"); // Chưa có quan hệ
         }
-
         Friendship friendship = friendshipOpt.get();
+        return new FriendshipStatusResponse(statusCode(friendship.getStatus(), friendship.getActionUserId(), currentUserId));
+    }
+
+    // Trạng thái quan hệ với cả danh sách user: tra các dòng user_edges của user hiện tại trong một truy vấn
+    public Map<Long, String> getFriendshipStatuses(List<Long> otherUserIds) {
+        Long currentUserId = getCurrentUser().getId();
+        List<Long> others = otherUserIds.stream().distinct().filter(id -> !id.equals(currentUserId)).toList();
 
+        Map<Long, String> statuses = new LinkedHashMap<>();
+        if (otherUserIds.contains(currentUserId)) {
+            statuses.put(currentUserId, "SELF");
+        }
+        if (others.isEmpty()) {
+            return statuses;
+        }
+
+        Map<Long, UserEdge> byOtherUser = friendshipRepository.findRelationsWith(currentUserId, others).stream()
+                .collect(Collectors.toMap(UserEdge::getOtherId, Function.identity()));
+        others.forEach(otherId -> {
+            UserEdge edge = byOtherUser.get(otherId);
+            statuses.put(otherId, edge == null ? "NONE" : statusCode(edge.getStatus(), edge.getActionUserId(), currentUserId));
+        });
+        return statuses;
+    }
+
+    private static String statusCode(FriendshipStatus status, Long actionUserId, Long currentUserId) {
         // Dựa vào status và actionUserId để quyết định
-        switch (friendship.getStatus()) {
+        switch (status) {
             case ACCEPTED:
-                return new FriendshipStatusResponse("FRIENDS"); // Đã là bạn bè
+                return "FRIENDS"; // Đã là bạn bè
 
             case PENDING:
                 // Nếu người thực hiện hành động cuối cùng (gửi lời mời) là MÌNH
-                if (friendship.getActionUserId().equals(currentUserId)) {
-                    return new FriendshipStatusResponse("PENDING_SENT");
+                if (actionUserId.equals(currentUserId)) {
+                    return "PENDING_SENT";
                 }
                 // Nếu người thực hiện hành động cuối cùng là NGƯỜI KIA
                 else {
-                    return new FriendshipStatusResponse("PENDING_RECEIVED");
+                    return "PENDING_RECEIVED";
                 }
 
             case BLOCKED:
                 // Nếu mình là người chặn
-                if (friendship.getActionUserId().equals(currentUserId)) {
-                    return new FriendshipStatusResponse("BLOCKED_BY_ME");
+                if (actionUserId.equals(currentUserId)) {
+                    return "BLOCKED_BY_ME";
                 }
                 // Nếu người kia chặn mình
                 else {
-                    return new FriendshipStatusResponse("BLOCKED_BY_OTHER");
+                    return "BLOCKED_BY_OTHER";
                 }
 
             case DECLINED:
                 // Sau khi từ chối, coi như không có quan hệ gì
-                return new FriendshipStatusResponse("NONE");
+                return "NONE";
 
             default:
-                return new FriendshipStatusResponse("NONE");
+                return "NONE";
+        }
+    }
+
+
+    private void onConnected(Long userId, Long friendId) {
+        socialGraphService.connect(userId, friendId);
+        friendSuggestionService.evict(userId, friendId);
+        timelineFanoutService.backfillConnection(userId, friendId);
+    }
+
+    private void onDisconnected(Long userId, Long otherId) {
+        socialGraphService.disconnect(userId, otherId);
+        friendSuggestionService.evict(userId, otherId);
+        timelineFanoutService.removeConnection(userId, otherId);
+    }
+
+    // Chạy sau khi transaction hiện tại commit (không chạy nếu rollback); ngoài transaction thì chạy ngay
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
+    // Ghi trạng thái mới của quan hệ sang cả hai dòng trong user_edges (cùng transaction)
+    private void syncEdges(FriendshipId friendshipId, FriendshipStatus status, Long actionUserId) {
+        friendshipRepository.upsertEdges(friendshipId.getUserOneId(), friendshipId.getUserTwoId(), status.name(), actionUserId);
+    }
+
+    // Câu lệnh có điều kiện không đổi dòng nào: phân biệt "không có quan hệ" với "sai trạng thái"
+    private void requireExists(FriendshipId friendshipId, String notFoundMessage) {
+        if (!friendshipRepository.existsById(friendshipId)) {
+            throw new RuntimeException(notFoundMessage);
+        }
+    }
 
     // Helper để tạo FriendshipId một cách nhất quán (user id nhỏ hơn đứng trước)
     private FriendshipId createFriendshipId(Long user1Id, Long user2Id) {
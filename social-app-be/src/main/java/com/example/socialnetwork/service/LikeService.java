@@ -1,26 +1,43 @@
 package com.example.socialnetwork.service;
 
-import com.example.socialnetwork.entity.Post;
-import com.example.socialnetwork.entity.PostLike;
+import com.example.socialnetwork.cache.LikedPostsCache;
+import com.example.socialnetwork.cache.TimelineCache;
+import com.example.socialnetwork.dto.projection.LikeToggleResult;
+import com.example.socialnetwork.dto.response.CursorPageResponse;
+import com.example.socialnetwork.dto.response.LikerResponse;
 import com.example.socialnetwork.entity.PostLikeId;
 import com.example.socialnetwork.entity.User;
 import com.example.socialnetwork.repository.PostLikeRepository;
 import com.example.socialnetwork.repository.PostRepository;
 import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.util.CursorUtils;
 import lombok.RequiredArgsConstructor;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class LikeService {
 
+    private static final int MAX_PAGE_SIZE = 50;
+
     private final PostLikeRepository postLikeRepository;
     private final PostRepository postRepository;
     private final UserRepository userRepository;
+    private final TimelineCache timelineCache;
+    private final PostCounterService postCounterService;
+    private final LikeWriteBehindBuffer likeWriteBehindBuffer;
+    private final LikedPostsCache likedPostsCache;
+    private final BlockListService blockListService;
 
     private User getCurrentUser() {
         String email = SecurityContextHolder.getContext().getAuthentication().getName();
@@ -28,30 +45,103 @@ public class LikeService {
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
+    private Long getCurrentUserId() {
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        return userRepository.findIdByEmail(email)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+    }
+
     public Map<String, Object> toggleLike(Long postId) {
+        if (likeWriteBehindBuffer.isEnabled()) {
+            return toggleLikeWriteBehind(postId);
+        }
         User currentUser = getCurrentUser();
-        Post post = postRepository.findById(postId)
+        // Một câu MERGE: đảo trạng thái thích và đọc like_count trong cùng một round trip
+        LikeToggleResult result = postLikeRepository.toggle(currentUser.getId(), postId)
                 .orElseThrow(() -> new RuntimeException("Post not found with id: " + postId));
 
-        PostLikeId likeId = new PostLikeId(currentUser.getId(), postId);
-        boolean isLiked;
+        postCounterService.addLikes(postId, result.liked() ? 1 : -1);
+        likedPostsCache.update(currentUser.getId(), postId, result.liked());
+        timelineCache.evictPost(postId);
+        // Giá trị cột cộng phần còn trong bộ đệm, không cần COUNT lại post_likes
+        return toggleResult(result.liked(), result.likeCount() + postCounterService.pendingLikes(postId));
+    }
+
+    // Chế độ write-behind: chỉ đọc bộ đếm của bài viết, lượt thích được ghi xuống post_likes theo lô
+    private Map<String, Object> toggleLikeWriteBehind(Long postId) {
+        User currentUser = getCurrentUser();
+        long persistedCount = postRepository.findLikeCountById(postId)
+                .orElseThrow(() -> new RuntimeException("Post not found with id: " + postId));
+
+        boolean isLiked = likeWriteBehindBuffer.toggle(new PostLikeId(currentUser.getId(), postId));
+        postCounterService.addLikes(postId, isLiked ? 1 : -1);
+        likedPostsCache.update(currentUser.getId(), postId, isLiked);
+        timelineCache.evictPost(postId);
 
-        if (postLikeRepository.existsById(likeId)) {
-            // Đã like -> unlike
-            postLikeRepository.deleteById(likeId);
-            isLiked = false;
+        return toggleResult(isLiked, persistedCount + postCounterService.pendingLikes(postId));
+    }
+
+    public CursorPageResponse<LikerResponse> getLikers(Long postId, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        Limit limit = Limit.of(pageSize + 1);
+        Long viewerId = getCurrentUserId();
+        boolean hasBlocks = blockListService.mayHaveBlocks(viewerId);
+        List<LikerResponse> likers;
+        if (CursorUtils.isFirstPage(cursor)) {
+            likers = postLikeRepository.findLikers(postId, viewerId, hasBlocks, limit);
         } else {
-            // Chưa like -> like
-            PostLike newLike = PostLike.builder()
-                    .user(currentUser)
-                    .post(post)
-                    .build();
-            postLikeRepository.save(newLike);
-            isLiked = true;
+            CursorUtils.TimeCursor after = CursorUtils.decodeTimeCursor(cursor);
+            likers = postLikeRepository.findLikersBefore(postId, after.createdAt(), after.id(), viewerId, hasBlocks, limit);
+        }
+        // Chỉ kiểm tra bài viết tồn tại khi không có kết quả
+        if (likers.isEmpty() && !postRepository.existsById(postId)) {
+            throw new RuntimeException("Post not found with id: " + postId);
         }
 
-        long likeCount = postLikeRepository.countByPostId(postId);
+        boolean hasNext = likers.size() > pageSize;
+        List<LikerResponse> page = hasNext ? likers.subList(0, pageSize) : likers;
+        LikerResponse last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return CursorPageResponse.<LikerResponse>builder()
+                .content(page)
+                .nextCursor(hasNext ? CursorUtils.encodeTimeCursor(last.getLikedAt(), last.getUserId()) : null)
+                .hasNext(hasNext)
+                .size(pageSize)
+                .build();
+    }
+
+    // Các bài viết trong postIds mà userId đã thích: tra bitmap trong cache nếu bật, nếu không thì một câu IN cho cả trang
+    public Set<Long> findLikedPostIds(Long userId, Collection<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> liked;
+        if (likedPostsCache.isEnabled()) {
+            Roaring64Bitmap bitmap = likedPostsCache.get(userId);
+            if (bitmap == null) {
+                long generation = likedPostsCache.generation(userId);
+                bitmap = likedPostsCache.put(userId, postLikeRepository.findAllPostIdsByUserId(userId), generation);
+            }
+            liked = likedPostsCache.filterLiked(bitmap, postIds);
+        } else {
+            liked = new HashSet<>(postLikeRepository.findLikedPostIds(userId, postIds));
+        }
+
+        // Lượt thích còn nằm trong bộ đệm write-behind được ưu tiên hơn dữ liệu trong DB
+        if (likeWriteBehindBuffer.isEnabled()) {
+            for (Long postId : postIds) {
+                Boolean buffered = likeWriteBehindBuffer.isLiked(new PostLikeId(userId, postId));
+                if (Boolean.TRUE.equals(buffered)) {
+                    liked.add(postId);
+                } else if (Boolean.FALSE.equals(buffered)) {
+                    liked.remove(postId);
+                }
+            }
+        }
+        return liked;
+    }
 
+    private static Map<String, Object> toggleResult(boolean isLiked, long likeCount) {
         return Map.of(
                 "message", isLiked ? "Post liked successfully" : "Post unliked successfully",
                 "isLiked", isLiked,
@@ -0,0 +1,156 @@
+package com.example.socialnetwork.service;
+
+import com.example.socialnetwork.entity.PostLikeId;
+import com.example.socialnetwork.repository.PostLikeRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Chế độ write-behind cho lượt thích: toggle chỉ ghi vào bộ nhớ, được gộp theo (user, post)
+// rồi ghi xuống post_likes theo lô. Dữ liệu còn trong bộ đệm được ghi khi tắt ứng dụng (@PreDestroy);
+// nếu tiến trình bị kill thì các lượt thích của tối đa một chu kỳ flush bị mất hẳn. Delta của chúng có thể đã vào
+// like_count, nên like_count lệch so với post_likes cho tới khi PostCounterService.reconcile chạy. Reconcile ghi
+// bộ đệm này xuống trước mỗi lượt và bỏ qua các bài viết còn lượt thích chưa ghi, vì post_likes của chúng chưa đủ
+@Component
+public class LikeWriteBehindBuffer {
+
+    private static final String INSERT_SQL = "INSERT INTO post_likes (user_id, post_id, created_at) SELECT ?, ?, ? " +
+            "WHERE EXISTS (SELECT 1 FROM posts WHERE id = ?) " +
+            "AND NOT EXISTS (SELECT 1 FROM post_likes WHERE user_id = ? AND post_id = ?)";
+    private static final String DELETE_SQL = "DELETE FROM post_likes WHERE user_id = ? AND post_id = ?";
+
+    private final PostLikeRepository postLikeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Map<PostLikeId, PendingLike> pending = new ConcurrentHashMap<>();
+    // Lô đang được ghi: vẫn là trạng thái người dùng thấy cho tới khi ghi xong
+    private volatile Map<PostLikeId, PendingLike> inFlight = Map.of();
+
+    // persisted: trạng thái đang có trong DB, liked: trạng thái sau các lần toggle chưa ghi
+    private record PendingLike(boolean persisted, boolean liked, LocalDateTime likedAt) {
+    }
+
+    public LikeWriteBehindBuffer(PostLikeRepository postLikeRepository,
+                                 JdbcTemplate jdbcTemplate,
+                                 @Value("${like.write-behind.enabled:false}") boolean enabled) {
+        this.postLikeRepository = postLikeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Đảo trạng thái thích và trả về trạng thái mới
+    public boolean toggle(PostLikeId likeId) {
+        swapLock.readLock().lock();
+        try {
+            PendingLike known = pending.get(likeId);
+            boolean persisted = known != null ? known.persisted() : persistedState(likeId);
+            boolean[] liked = new boolean[1];
+            pending.compute(likeId, (id, current) -> {
+                boolean base = current != null ? current.persisted() : persisted;
+                liked[0] = !(current != null ? current.liked() : base);
+                // Thích rồi bỏ thích (hoặc ngược lại) trong cùng một chu kỳ: không cần ghi gì
+                return liked[0] == base ? null : new PendingLike(base, liked[0], LocalDateTime.now());
+            });
+            return liked[0];
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    // Trạng thái thích còn trong bộ đệm; null nếu phải đọc từ DB
+    public Boolean isLiked(PostLikeId likeId) {
+        PendingLike state = pending.get(likeId);
+        if (state == null) {
+            state = inFlight.get(likeId);
+        }
+        return state == null ? null : state.liked();
+    }
+
+    // Các bài viết còn lượt thích / bỏ thích chưa ghi xuống post_likes (kể cả lô đang ghi)
+    public Set<Long> pendingPostIds() {
+        Set<Long> postIds = new HashSet<>();
+        pending.keySet().forEach(likeId -> postIds.add(likeId.getPost()));
+        inFlight.keySet().forEach(likeId -> postIds.add(likeId.getPost()));
+        return postIds;
+    }
+
+    private boolean persistedState(PostLikeId likeId) {
+        PendingLike writing = inFlight.get(likeId);
+        return writing != null ? writing.liked() : postLikeRepository.existsById(likeId);
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${like.write-behind.flush-interval-ms:500}")
+    public synchronized void flush() {
+        Map<PostLikeId, PendingLike> batch;
+        swapLock.writeLock().lock();
+        try {
+            batch = pending;
+            inFlight = batch;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        if (batch.isEmpty()) {
+            inFlight = Map.of();
+            return;
+        }
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> deletes = new ArrayList<>();
+        batch.forEach((id, state) -> {
+            if (state.liked()) {
+                inserts.add(new Object[]{id.getUser(), id.getPost(), Timestamp.valueOf(state.likedAt()),
+                        id.getPost(), id.getUser(), id.getPost()});
+            } else {
+                deletes.add(new Object[]{id.getUser(), id.getPost()});
+            }
+        });
+
+        // Cả hai câu lệnh đều idempotent nên có thể ghi lại toàn bộ lô khi lỗi
+        try {
+            if (!inserts.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+            }
+            if (!deletes.isEmpty()) {
+                jdbcTemplate.batchUpdate(DELETE_SQL, deletes);
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(this::requeue);
+            throw e;
+        } finally {
+            inFlight = Map.of();
+        }
+    }
+
+    // Trả một mục ghi lỗi về bộ đệm; nếu đã có toggle mới hơn thì giữ trạng thái mới, tính lại theo DB
+    private void requeue(PostLikeId likeId, PendingLike failed) {
+        swapLock.readLock().lock();
+        try {
+            pending.merge(likeId, failed, (current, old) -> current.liked() == old.persisted()
+                    ? null
+                    : new PendingLike(old.persisted(), current.liked(), current.likedAt()));
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+}
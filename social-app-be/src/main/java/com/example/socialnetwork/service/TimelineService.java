@@ -1,27 +1,50 @@
 package com.example.socialnetwork.service;
 
+import com.example.socialnetwork.cache.TimelineCache;
+import com.example.socialnetwork.dto.projection.TimelineItem;
+import com.example.socialnetwork.dto.response.CursorPageResponse;
 import com.example.socialnetwork.dto.response.PostResponse;
 import com.example.socialnetwork.entity.User;
-import com.example.socialnetwork.repository.FriendshipRepository;
 import com.example.socialnetwork.repository.PostRepository;
+import com.example.socialnetwork.repository.TimelineEntryRepository;
 import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.util.CursorUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class TimelineService {
 
+    private static final int MAX_PAGE_SIZE = 50;
+    // Chế độ page/size chỉ phục vụ tới mục thứ 1000: trang sâu hơn phải trộn và giữ cả offset + size mục trên heap
+    private static final long MAX_PAGED_ITEMS = 1000;
+
+    // Mới nhất trước; cùng thời điểm thì id lớn hơn trước (khớp với index của hộp thư)
+    private static final Comparator<TimelineItem> NEWEST_FIRST = Comparator
+            .comparing(TimelineItem::createdAt, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(TimelineItem::postId, Comparator.reverseOrder());
+
     private final PostRepository postRepository;
-    private final FriendshipRepository friendshipRepository;
+    private final TimelineEntryRepository timelineEntryRepository;
     private final UserRepository userRepository;
     private final PostService postService;
+    private final TimelineCache timelineCache;
+    private final FanoutPolicy fanoutPolicy;
+    private final SocialGraphService socialGraphService;
+    private final BlockListService blockListService;
 
     private User getCurrentUser() {
         String email = SecurityContextHolder.getContext().getAuthentication().getName();
@@ -30,16 +53,121 @@ public class TimelineService {
     }
 
     public Page<PostResponse> getTimeline(Pageable pageable) {
+        // Timeline luôn sắp mới nhất trước, không nhận sort từ client
+        if (pageable.getSort().isSorted()) {
+            throw new IllegalArgumentException("Timeline is always sorted newest first; the sort parameter is not supported.");
+        }
+        if (pageable.getOffset() + pageable.getPageSize() > MAX_PAGED_ITEMS) {
+            throw new IllegalArgumentException("Page/size pagination is limited to the first " + MAX_PAGED_ITEMS +
+                    " posts; use ?cursor= to scroll further.");
+        }
+        User currentUser = getCurrentUser();
+        int offset = (int) pageable.getOffset();
+
+        // Các trang đầu (nằm trong feed-depth) được phục vụ từ cache
+        if (offset + pageable.getPageSize() <= timelineCache.getFeedDepth()) {
+            TimelineCache.FeedSnapshot feed = getFeedSnapshot(currentUser.getId());
+            List<Long> postIds = slice(feed.postIds(), offset, pageable.getPageSize());
+            return new PageImpl<>(postService.getPostResponses(currentUser.getId(), postIds), pageable, feed.total());
+        }
+
+        // Trang sâu (vẫn trong MAX_PAGED_ITEMS): trộn hai nguồn rồi cắt theo offset
+        boolean pull = followsPulledAuthor(currentUser.getId());
+        List<TimelineItem> items = loadItems(currentUser.getId(), pull, null, offset + pageable.getPageSize());
+        List<Long> postIds = slice(items.stream().map(TimelineItem::postId).toList(), offset, pageable.getPageSize());
+        return new PageImpl<>(postService.getPostResponses(currentUser.getId(), postIds), pageable,
+                countItems(currentUser.getId(), pull));
+    }
+
+    public CursorPageResponse<PostResponse> getTimelineByCursor(String cursor, int size) {
         User currentUser = getCurrentUser();
+        int pageSize = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+
+        // Lấy dư 1 bản ghi để biết còn trang sau hay không, thay cho câu COUNT
+        List<Long> postIds;
+        if (CursorUtils.isFirstPage(cursor) && pageSize < timelineCache.getFeedDepth()) {
+            postIds = slice(getFeedSnapshot(currentUser.getId()).postIds(), 0, pageSize + 1);
+        } else {
+            CursorUtils.TimeCursor after = CursorUtils.isFirstPage(cursor) ? null : CursorUtils.decodeTimeCursor(cursor);
+            postIds = loadItems(currentUser.getId(), followsPulledAuthor(currentUser.getId()), after, pageSize + 1)
+                    .stream().map(TimelineItem::postId).toList();
+        }
+        List<PostResponse> posts = postService.getPostResponses(currentUser.getId(), postIds);
 
-        // 1. Lấy danh sách ID của bạn bè
-        List<Long> friendIds = friendshipRepository.findFriendIdsByUserId(currentUser.getId());
+        boolean hasNext = posts.size() > pageSize;
+        List<PostResponse> page = hasNext ? posts.subList(0, pageSize) : posts;
+        PostResponse last = page.isEmpty() ? null : page.get(page.size() - 1);
+
+        return CursorPageResponse.<PostResponse>builder()
+                .content(page)
+                .nextCursor(hasNext ? CursorUtils.encodeTimeCursor(last.getCreatedAt(), last.getId()) : null)
+                .hasNext(hasNext)
+                .size(pageSize)
+                .build();
+    }
 
-        // 2. Bao gồm cả bài viết của chính mình trong timeline
-        friendIds.add(currentUser.getId());
+    private TimelineCache.FeedSnapshot getFeedSnapshot(Long userId) {
+        TimelineCache.FeedSnapshot feed = timelineCache.getFeed(userId);
+        if (feed == null) {
+            int depth = timelineCache.getFeedDepth();
+            boolean pull = followsPulledAuthor(userId);
+            List<Long> postIds = loadItems(userId, pull, null, depth).stream().map(TimelineItem::postId).toList();
+            long total = postIds.size() < depth ? postIds.size() : countItems(userId, pull);
+            feed = new TimelineCache.FeedSnapshot(postIds, total);
+            timelineCache.putFeed(userId, feed);
+        }
+        return feed;
+    }
+
+    // Người xem chỉ cần kéo bài viết lúc đọc khi chính họ hoặc một người bạn là tác giả bị kéo; trường hợp thường gặp
+    // là không, khi đó không chạm tới bảng posts. Duyệt bên nhỏ hơn giữa các tác giả bị kéo và danh sách bạn bè
+    private boolean followsPulledAuthor(Long userId) {
+        if (!fanoutPolicy.hasPulledAuthors()) {
+            return false;
+        }
+        if (fanoutPolicy.isPulled(userId)) {
+            return true;
+        }
+        if (socialGraphService.isReady() && fanoutPolicy.pulledAuthorCount() < socialGraphService.degree(userId)) {
+            return fanoutPolicy.getPulledAuthors().stream().anyMatch(author -> socialGraphService.areFriends(userId, author));
+        }
+        return fanoutPolicy.anyPulled(socialGraphService.friendsOf(userId));
+    }
+
+    // Trộn các mục push (hộp thư) và pull (bài viết của tác giả lớn), cả hai đều đọc theo keyset.
+    // Quan hệ chặn được lọc trong chính các truy vấn nên mỗi trang vẫn đủ limit mục
+    private List<TimelineItem> loadItems(Long userId, boolean pull, CursorUtils.TimeCursor after, int limit) {
+        Limit max = Limit.of(limit);
+        boolean hasBlocks = blockListService.mayHaveBlocks(userId);
+        List<TimelineItem> pushed = after == null
+                ? timelineEntryRepository.findItems(userId, hasBlocks, max)
+                : timelineEntryRepository.findItemsBefore(userId, after.createdAt(), after.id(), hasBlocks, max);
+        if (!pull) {
+            return pushed;
+        }
+        List<TimelineItem> pulled = after == null
+                ? postRepository.findPulledItems(userId, null, null, limit)
+                : postRepository.findPulledItems(userId, after.createdAt(), after.id(), limit);
+
+        List<TimelineItem> merged = new ArrayList<>(pushed.size() + pulled.size());
+        merged.addAll(pushed);
+        merged.addAll(pulled);
+        merged.sort(NEWEST_FIRST);
+
+        // Bài viết cũ của một tác giả vừa chuyển sang pull có thể nằm ở cả hai nguồn
+        Set<Long> seen = new HashSet<>();
+        return merged.stream().filter(item -> seen.add(item.postId())).limit(limit).toList();
+    }
+
+    private long countItems(Long userId, boolean pull) {
+        long total = timelineEntryRepository.countItems(userId, blockListService.mayHaveBlocks(userId));
+        return pull ? total + postRepository.countPulledPosts(userId) : total;
+    }
 
-        // 3. Lấy các bài viết từ danh sách ID bạn bè
-        return postRepository.findPostsByFriendIds(friendIds, pageable)
-                .map(postService::mapPostToPostResponse);
+    private static List<Long> slice(List<Long> ids, int offset, int size) {
+        if (offset >= ids.size()) {
+            return List.of();
+        }
+        return ids.subList(offset, Math.min(ids.size(), offset + size));
     }
-}
\ No newline at end of file
+}
@@ -4,6 +4,7 @@ import com.example.socialnetwork.dto.request.UpdateProfileRequest;
 import com.example.socialnetwork.dto.response.UserProfileResponse;
 import com.example.socialnetwork.entity.User;
 import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.security.CachingUserDetailsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -17,6 +18,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final FileStorageService fileStorageService;
+    private final CachingUserDetailsService userDetailsService;
 
     // Helper method để lấy user đang đăng nhập
     private User getCurrentUser() {
@@ -39,6 +41,7 @@ public class UserService {
         user.setOccupation(request.getOccupation());
 
         User updatedUser = userRepository.save(user);
+        userDetailsService.evict(user.getEmail());
         return mapUserToProfileResponse(updatedUser);
     }
 
@@ -54,6 +57,7 @@ public class UserService {
 
         user.setAvatarUrl(fileDownloadUri);
         userRepository.save(user);
+        userDetailsService.evict(user.getEmail());
 
         return fileDownloadUri;
     }
@@ -0,0 +1,109 @@
+package com.example.socialnetwork.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.stream.Collectors;
+
+// Mã hóa / giải mã cursor cho keyset pagination. Client chỉ coi cursor là một chuỗi mờ.
+public final class CursorUtils {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private CursorUtils() {
+    }
+
+    public record TimeCursor(LocalDateTime createdAt, Long id) {
+    }
+
+    public record NameCursor(String name, Long id) {
+    }
+
+    public record PathCursor(String path, Long id) {
+    }
+
+    public record SinceCursor(LocalDateTime createdAt, Long id, LocalDateTime polledAt) {
+    }
+
+    public static String encode(Object... parts) {
+        return Arrays.stream(parts)
+                .map(part -> ENCODER.encodeToString(String.valueOf(part).getBytes(StandardCharsets.UTF_8)))
+                .collect(Collectors.joining("."));
+    }
+
+    public static String[] decode(String cursor, int expectedParts) {
+        String[] encoded = cursor.split("\\.", -1);
+        if (encoded.length != expectedParts) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+        try {
+            String[] parts = new String[encoded.length];
+            for (int i = 0; i < encoded.length; i++) {
+                parts[i] = new String(DECODER.decode(encoded[i]), StandardCharsets.UTF_8);
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+
+    public static String encodeTimeCursor(LocalDateTime createdAt, Long id) {
+        return encode(createdAt, id);
+    }
+
+    public static TimeCursor decodeTimeCursor(String cursor) {
+        String[] parts = decode(cursor, 2);
+        try {
+            return new TimeCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+
+    public static String encodeNameCursor(String name, Long id) {
+        return encode(name == null ? "" : name, id);
+    }
+
+    public static NameCursor decodeNameCursor(String cursor) {
+        String[] parts = decode(cursor, 2);
+        try {
+            return new NameCursor(parts[0], Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+
+    public static String encodePathCursor(String path, Long id) {
+        return encode(path, id);
+    }
+
+    public static PathCursor decodePathCursor(String cursor) {
+        String[] parts = decode(cursor, 2);
+        try {
+            return new PathCursor(parts[0], Long.parseLong(parts[1]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+
+    // Mốc của chế độ polling: bản ghi mới nhất client đã có và thời điểm của lần poll trước
+    public static String encodeSinceCursor(LocalDateTime createdAt, Long id, LocalDateTime polledAt) {
+        return encode(createdAt, id, polledAt);
+    }
+
+    public static SinceCursor decodeSinceCursor(String cursor) {
+        String[] parts = decode(cursor, 3);
+        try {
+            return new SinceCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]), LocalDateTime.parse(parts[2]));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor.");
+        }
+    }
+
+    public static boolean isFirstPage(String cursor) {
+        return cursor == null || cursor.isBlank();
+    }
+}
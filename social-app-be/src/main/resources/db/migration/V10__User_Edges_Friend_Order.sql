@@ -0,0 +1,4 @@
+-- Danh sách bạn bè theo ngày kết bạn (mới nhất trước): thêm updated_at, other_id vào khóa
+-- để trang keyset đọc thẳng theo thứ tự index, không phải sort toàn bộ bạn bè của user
+DROP INDEX ix_user_edges_user_status ON user_edges;
+CREATE INDEX ix_user_edges_user_status ON user_edges (user_id, status, updated_at DESC, other_id DESC) INCLUDE (action_user_id);
@@ -0,0 +1,32 @@
+-- Hộp thư timeline (fan-out-on-write): mỗi dòng là một bài viết đã được đẩy vào timeline của một user
+CREATE TABLE timeline_entries (
+    user_id BIGINT NOT NULL,
+    post_id BIGINT NOT NULL,
+    author_id BIGINT NOT NULL,
+    created_at DATETIME2 NOT NULL,
+    PRIMARY KEY (user_id, post_id),
+    CONSTRAINT fk_timeline_entries_users FOREIGN KEY (user_id) REFERENCES users(id),
+    -- Xóa bài viết sẽ tự động dọn các dòng tương ứng trong mọi hộp thư
+    CONSTRAINT fk_timeline_entries_posts FOREIGN KEY (post_id) REFERENCES posts(id) ON DELETE CASCADE
+);
+
+-- Đọc timeline của một user theo thứ tự mới nhất
+CREATE INDEX ix_timeline_entries_user_created ON timeline_entries (user_id, created_at DESC, post_id DESC);
+
+-- Dọn bài viết của một người khỏi hộp thư khi hủy kết bạn / chặn
+CREATE INDEX ix_timeline_entries_user_author ON timeline_entries (user_id, author_id);
+
+-- Lấy bài viết của một user (dùng khi đổ bài cũ vào hộp thư lúc kết bạn)
+CREATE INDEX ix_posts_user_created ON posts (user_id, created_at DESC);
+
+-- Đổ dữ liệu hiện có: bài viết của chính mình
+INSERT INTO timeline_entries (user_id, post_id, author_id, created_at)
+SELECT p.user_id, p.id, p.user_id, COALESCE(p.created_at, SYSDATETIME())
+FROM posts p;
+
+-- Đổ dữ liệu hiện có: bài viết của bạn bè
+INSERT INTO timeline_entries (user_id, post_id, author_id, created_at)
+SELECT CASE WHEN f.user_one_id = p.user_id THEN f.user_two_id ELSE f.user_one_id END,
+       p.id, p.user_id, COALESCE(p.created_at, SYSDATETIME())
+FROM posts p
+JOIN friendships f ON (f.user_one_id = p.user_id OR f.user_two_id = p.user_id) AND f.status = 'ACCEPTED';
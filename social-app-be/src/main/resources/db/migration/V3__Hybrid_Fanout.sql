@@ -0,0 +1,7 @@
+-- Bài viết đã được đẩy (push) vào hộp thư của bạn bè hay chưa.
+-- Tác giả có quá nhiều bạn bè thì không fan-out; bài viết của họ được kéo (pull) lúc đọc timeline.
+ALTER TABLE posts ADD fanned_out BIT NOT NULL CONSTRAINT df_posts_fanned_out DEFAULT 1;
+GO
+
+-- Chỉ đánh index các bài viết cần kéo lúc đọc (số lượng nhỏ)
+CREATE INDEX ix_posts_pulled ON posts (user_id, created_at DESC, id DESC) WHERE fanned_out = 0;
@@ -0,0 +1,3 @@
+-- Khóa chính (user_one_id, user_two_id) chỉ phục vụ chiều thứ nhất của quan hệ bạn bè.
+-- Index ngược để các câu truy vấn nối posts với friendships tra được cả hai chiều bằng seek.
+CREATE INDEX ix_friendships_user_two ON friendships (user_two_id, user_one_id) INCLUDE (status);
@@ -0,0 +1,9 @@
+-- Số lượt thích / bình luận được lưu sẵn trên bài viết thay vì đếm lại mỗi lần đọc
+ALTER TABLE posts ADD like_count BIGINT NOT NULL CONSTRAINT df_posts_like_count DEFAULT 0,
+                      comment_count BIGINT NOT NULL CONSTRAINT df_posts_comment_count DEFAULT 0;
+GO
+
+UPDATE p
+SET p.like_count = (SELECT COUNT(*) FROM post_likes l WHERE l.post_id = p.id),
+    p.comment_count = (SELECT COUNT(*) FROM comments c WHERE c.post_id = p.id)
+FROM posts p;
@@ -0,0 +1,3 @@
+-- Khóa chính (user_id, post_id) bắt đầu bằng user_id nên không dùng được cho truy vấn theo bài viết.
+-- Index này phục vụ danh sách người thích (keyset theo created_at) và đếm lượt thích của một bài viết
+CREATE INDEX ix_post_likes_post_created ON post_likes (post_id, created_at DESC, user_id DESC);
@@ -0,0 +1,13 @@
+-- Trả lời bình luận: parent_id trỏ tới bình luận cha, path là chuỗi id (19 chữ số + '/') của các bình luận tổ tiên.
+-- Bình luận gốc có path rỗng; cả cây con của một bình luận được lấy / xóa bằng một điều kiện LIKE 'prefix%'.
+ALTER TABLE comments ADD parent_id BIGINT NULL CONSTRAINT fk_comments_parent REFERENCES comments(id),
+                         path VARCHAR(900) NOT NULL CONSTRAINT df_comments_path DEFAULT '',
+                         reply_count BIGINT NOT NULL CONSTRAINT df_comments_reply_count DEFAULT 0;
+GO
+
+-- Bình luận gốc của một bài viết theo keyset (mới nhất trước)
+CREATE INDEX ix_comments_post_top_level ON comments (post_id, created_at DESC, id DESC) WHERE parent_id IS NULL;
+-- Các trả lời trực tiếp của một bình luận (cũ nhất trước)
+CREATE INDEX ix_comments_parent_created ON comments (parent_id, created_at, id) WHERE parent_id IS NOT NULL;
+-- Cây con theo materialized path
+CREATE INDEX ix_comments_post_path ON comments (post_id, path);
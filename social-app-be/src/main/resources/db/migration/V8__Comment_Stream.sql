@@ -0,0 +1,12 @@
+-- Luồng bình luận theo keyset (created_at, id) và polling "mới hơn mốc": một lần seek trên index
+CREATE INDEX ix_comments_post_created ON comments (post_id, created_at, id);
+
+-- Dấu xóa (tombstone) để client đang polling biết bình luận nào đã bị xóa.
+-- Được ghi bằng OUTPUT ... INTO ngay trong câu DELETE nên bảng không được có khóa ngoại; dọn theo thời hạn lưu giữ
+CREATE TABLE comment_tombstones (
+    comment_id BIGINT NOT NULL PRIMARY KEY,
+    post_id BIGINT NOT NULL,
+    deleted_at DATETIME2 NOT NULL
+);
+
+CREATE INDEX ix_comment_tombstones_post_deleted ON comment_tombstones (post_id, deleted_at);
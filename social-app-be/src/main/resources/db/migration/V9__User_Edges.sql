@@ -0,0 +1,21 @@
+-- Bảng cạnh đối xứng suy ra từ friendships: mỗi quan hệ được lưu hai dòng (A -> B và B -> A)
+-- để mọi truy vấn "của tôi" (bạn bè, lời mời, số bạn mới...) chỉ là một lần seek trên user_id, không cần OR hai cột.
+-- friendships vẫn là nguồn dữ liệu gốc; user_edges được FriendshipService ghi trong cùng transaction
+CREATE TABLE user_edges (
+    user_id BIGINT NOT NULL,
+    other_id BIGINT NOT NULL,
+    status VARCHAR(50) NOT NULL,
+    action_user_id BIGINT NOT NULL,
+    updated_at DATETIME2 NOT NULL DEFAULT GETDATE(),
+    CONSTRAINT pk_user_edges PRIMARY KEY (user_id, other_id),
+    CONSTRAINT fk_user_edges_user FOREIGN KEY (user_id) REFERENCES users(id),
+    CONSTRAINT fk_user_edges_other FOREIGN KEY (other_id) REFERENCES users(id)
+);
+
+-- Lọc theo trạng thái trong phạm vi một user (danh sách bạn bè, lời mời đang chờ)
+CREATE INDEX ix_user_edges_user_status ON user_edges (user_id, status) INCLUDE (action_user_id, updated_at);
+
+INSERT INTO user_edges (user_id, other_id, status, action_user_id, updated_at)
+SELECT f.user_one_id, f.user_two_id, f.status, f.action_user_id, COALESCE(f.updated_at, GETDATE()) FROM friendships f
+UNION ALL
+SELECT f.user_two_id, f.user_one_id, f.status, f.action_user_id, COALESCE(f.updated_at, GETDATE()) FROM friendships f;
@@ -57,5 +57,13 @@ public abstract class AbstractIntegrationTest {
         registry.add("spring.datasource.url", () -> MsSqlContainer.getInstance().getJdbcUrl());
         registry.add("spring.datasource.username", () -> MsSqlContainer.getInstance().getUsername());
         registry.add("spring.datasource.password", () -> MsSqlContainer.getInstance().getPassword());
+        // Dữ liệu được nạp lại bằng @Sql trước mỗi test (cùng id), nên tắt cache trong bộ nhớ
+        registry.add("timeline.cache.ttl-seconds", () -> 0);
+        registry.add("like.liked-cache.ttl-seconds", () -> 0);
+        registry.add("social.graph.enabled", () -> false);
+        registry.add("friend.suggestions.ttl-seconds", () -> 0);
+        registry.add("block.filter.enabled", () -> false);
+        registry.add("block.sets.ttl-seconds", () -> 0);
+        registry.add("auth.user-cache.ttl-seconds", () -> 0);
     }
 }
\ No newline at end of file
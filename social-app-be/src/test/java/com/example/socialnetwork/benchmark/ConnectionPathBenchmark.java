@@ -0,0 +1,93 @@
+package com.example.socialnetwork.benchmark;
+
+import com.example.socialnetwork.dto.response.ConnectionPathResponse;
+import com.example.socialnetwork.repository.FriendshipRepository;
+import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.service.ConnectionPathService;
+import com.example.socialnetwork.service.SocialGraphService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+// Đo độ trễ tìm đường nối giữa hai user ngẫu nhiên bằng BFS hai chiều trên đồ thị bạn bè trong bộ nhớ.
+// Chạy bằng: mvn test -Pbenchmark -Dtest=ConnectionPathBenchmark -DargLine=-Xmx2g
+// (đổi quy mô bằng -Dgraph.edges=... -Dgraph.users=...)
+@Tag("benchmark")
+class ConnectionPathBenchmark {
+
+    private static final long EDGES = Long.getLong("graph.edges", 10_000_000L);
+    private static final int USERS = Integer.getInteger("graph.users", 1_000_000);
+    private static final int SEARCHES = 2_000;
+
+    @Test
+    void measureRandomPairSearches() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            Random random = new Random(42);
+            long[] row = new long[2];
+            ResultSet rs = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class},
+                    (proxy, method, args) -> row[(Integer) args[0] - 1]);
+            for (long i = 0; i < EDGES; i++) {
+                long a = 1 + random.nextInt(USERS);
+                long b = 1 + random.nextInt(USERS);
+                if (a == b) {
+                    continue;
+                }
+                row[0] = Math.min(a, b);
+                row[1] = Math.max(a, b);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        SocialGraphService graph = new SocialGraphService(mock(FriendshipRepository.class), jdbcTemplate, true);
+        graph.load();
+        ConnectionPathService service = new ConnectionPathService(graph, mock(UserRepository.class), 6, 200_000);
+
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            service.search(1 + random.nextInt(USERS), 1 + random.nextInt(USERS));
+        }
+
+        long[] nanos = new long[SEARCHES];
+        long found = 0;
+        long degrees = 0;
+        long visited = 0;
+        long exhausted = 0;
+        for (int i = 0; i < SEARCHES; i++) {
+            long start = System.nanoTime();
+            ConnectionPathResponse response = service.search(1 + random.nextInt(USERS), 1 + random.nextInt(USERS));
+            nanos[i] = System.nanoTime() - start;
+            visited += response.getVisitedUsers();
+            if (response.isFound()) {
+                found++;
+                degrees += response.getDegrees();
+            }
+            if (response.isBudgetExhausted()) {
+                exhausted++;
+            }
+        }
+        Arrays.sort(nanos);
+
+        System.out.println("edges | users | searches | found | avg degrees | avg visited | budget hit | p50 ms | p95 ms | p99 ms");
+        System.out.printf("%d | %d | %d | %d | %.2f | %.0f | %d | %.3f | %.3f | %.3f%n",
+                EDGES, USERS, SEARCHES, found, found == 0 ? 0 : (double) degrees / found,
+                (double) visited / SEARCHES, exhausted,
+                nanos[SEARCHES / 2] / 1e6, nanos[(int) (SEARCHES * 0.95)] / 1e6, nanos[(int) (SEARCHES * 0.99)] / 1e6);
+
+        assertTrue(found > 0);
+    }
+}
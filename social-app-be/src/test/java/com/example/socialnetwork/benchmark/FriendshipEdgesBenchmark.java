@@ -0,0 +1,123 @@
+package com.example.socialnetwork.benchmark;
+
+import com.example.socialnetwork.AbstractIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// So sánh truy vấn "bạn bè của một user" trên friendships (OR trên hai cột) với user_edges (seek theo khóa chính)
+// trên ~1 triệu cạnh. Chạy bằng: mvn test -Pbenchmark -Dtest=FriendshipEdgesBenchmark
+@Tag("benchmark")
+class FriendshipEdgesBenchmark extends AbstractIntegrationTest {
+
+    private static final int USERS = 100_000;
+    private static final int DEGREE = 20;
+    private static final int LOOKUPS = 2_000;
+    private static final int BATCH = 10_000;
+
+    private static final String OR_QUERY = "SELECT CASE WHEN user_one_id = ? THEN user_two_id ELSE user_one_id END " +
+            "FROM friendships WHERE (user_one_id = ? OR user_two_id = ?) AND status = 'ACCEPTED'";
+    private static final String EDGES_QUERY = "SELECT other_id FROM user_edges WHERE user_id = ? AND status = 'ACCEPTED'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Random random = new Random(42);
+
+    @BeforeEach
+    void seedGraph() {
+        jdbcTemplate.execute("DELETE FROM timeline_entries; DELETE FROM comments; DELETE FROM post_likes; " +
+                "DELETE FROM user_edges; DELETE FROM friendships; DELETE FROM posts; DELETE FROM users;");
+
+        jdbcTemplate.execute("SET IDENTITY_INSERT users ON");
+        List<Object[]> users = new ArrayList<>(BATCH);
+        for (long id = 1; id <= USERS; id++) {
+            users.add(new Object[]{id, "bench" + id + "@test.com"});
+            if (users.size() == BATCH) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (id, email, password, role) VALUES (?, ?, 'p', 'ROLE_USER')", users);
+                users.clear();
+            }
+        }
+        jdbcTemplate.execute("SET IDENTITY_INSERT users OFF");
+
+        // Mỗi user khoảng DEGREE bạn (DEGREE / 2 cạnh do chính user đó tạo), tổng cộng ~1 triệu dòng trong user_edges
+        Set<Long> seen = new HashSet<>();
+        List<Object[]> edges = new ArrayList<>(BATCH);
+        for (long user = 1; user <= USERS; user++) {
+            for (int i = 0; i < DEGREE / 2; i++) {
+                long other = 1 + random.nextInt(USERS);
+                long one = Math.min(user, other);
+                long two = Math.max(user, other);
+                if (one != two && seen.add(one * (USERS + 1) + two)) {
+                    edges.add(new Object[]{one, two, one});
+                }
+                if (edges.size() == BATCH) {
+                    jdbcTemplate.batchUpdate("INSERT INTO friendships (user_one_id, user_two_id, status, action_user_id) VALUES (?, ?, 'ACCEPTED', ?)", edges);
+                    edges.clear();
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO friendships (user_one_id, user_two_id, status, action_user_id) VALUES (?, ?, 'ACCEPTED', ?)", edges);
+        jdbcTemplate.update("INSERT INTO user_edges (user_id, other_id, status, action_user_id) " +
+                "SELECT user_one_id, user_two_id, status, action_user_id FROM friendships " +
+                "UNION ALL SELECT user_two_id, user_one_id, status, action_user_id FROM friendships");
+        jdbcTemplate.execute("UPDATE STATISTICS friendships; UPDATE STATISTICS user_edges;");
+    }
+
+    @Test
+    void compareOrQueryWithEdgeSeek() {
+        long[] userIds = new long[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            userIds[i] = 1 + random.nextInt(USERS);
+        }
+        // Làm nóng buffer pool và plan cache cho cả hai truy vấn
+        for (int i = 0; i < 200; i++) {
+            jdbcTemplate.queryForList(OR_QUERY, Long.class, userIds[i], userIds[i], userIds[i]);
+            jdbcTemplate.queryForList(EDGES_QUERY, Long.class, userIds[i]);
+        }
+
+        long[] orNanos = new long[LOOKUPS];
+        long[] edgeNanos = new long[LOOKUPS];
+        long orRows = 0;
+        long edgeRows = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            long userId = userIds[i];
+            long start = System.nanoTime();
+            orRows += jdbcTemplate.queryForList(OR_QUERY, Long.class, userId, userId, userId).size();
+            orNanos[i] = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            edgeRows += jdbcTemplate.queryForList(EDGES_QUERY, Long.class, userId).size();
+            edgeNanos[i] = System.nanoTime() - start;
+        }
+        Long edgeCount = jdbcTemplate.queryForObject("SELECT COUNT_BIG(*) FROM user_edges", Long.class);
+
+        System.out.println("query | edges | lookups | avg rows | avg ms | p50 ms | p95 ms | p99 ms");
+        print("friendships OR", edgeCount, orNanos, orRows);
+        print("user_edges seek", edgeCount, edgeNanos, edgeRows);
+
+        // Hai truy vấn phải trả về cùng một tập bạn bè
+        assertEquals(orRows, edgeRows);
+    }
+
+    private static void print(String name, Long edgeCount, long[] nanos, long rows) {
+        Arrays.sort(nanos);
+        System.out.printf("%s | %d | %d | %.1f | %.3f | %.3f | %.3f | %.3f%n",
+                name, edgeCount, nanos.length, (double) rows / nanos.length,
+                Arrays.stream(nanos).average().orElse(0) / 1e6,
+                nanos[nanos.length / 2] / 1e6,
+                nanos[(int) (nanos.length * 0.95)] / 1e6,
+                nanos[(int) (nanos.length * 0.99)] / 1e6);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.socialnetwork.benchmark;
+
+import com.example.socialnetwork.AbstractIntegrationTest;
+import com.example.socialnetwork.entity.Friendship;
+import com.example.socialnetwork.entity.FriendshipId;
+import com.example.socialnetwork.entity.FriendshipStatus;
+import com.example.socialnetwork.repository.FriendshipRepository;
+import com.example.socialnetwork.service.FriendshipService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Đua "chấp nhận" với "hủy" trên cùng một lời mời: người nhận bấm chấp nhận đúng lúc người gửi bấm hủy.
+// So sánh cách cũ (findById, kiểm tra trong Java, save / delete) với các câu lệnh có điều kiện của FriendshipService:
+// số cặp cả hai phía cùng "thành công" (một cập nhật bị mất), số lỗi hệ thống (deadlock, dòng đã bị đổi...),
+// friendships lệch với user_edges, và số thao tác mỗi giây.
+// Chạy bằng: mvn test -Pbenchmark -Dtest=FriendshipStateMachineBenchmark
+@Tag("benchmark")
+class FriendshipStateMachineBenchmark extends AbstractIntegrationTest {
+
+    private static final int PAIRS = 2_000;
+    private static final int THREADS = 32;
+    private static final int BATCH = 1_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private FriendshipRepository friendshipRepository;
+    @Autowired
+    private FriendshipService friendshipService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private record Outcome(String name, double opsPerSecond, int lostUpdates, int systemErrors, int drifted) {
+    }
+
+    @Test
+    void compareReadModifyWriteWithConditionalStatements() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        seedPendingRequests();
+        Outcome readModifyWrite = race("read-modify-write",
+                (sender, recipient) -> tx.executeWithoutResult(status -> acceptByReadModifyWrite(sender, recipient)),
+                (sender, recipient) -> tx.executeWithoutResult(status -> cancelByReadModifyWrite(sender, recipient)));
+
+        seedPendingRequests();
+        Outcome conditional = race("conditional UPDATE/DELETE",
+                (sender, recipient) -> asUser(recipient, () -> friendshipService.acceptFriendRequest(sender)),
+                (sender, recipient) -> asUser(sender, () -> friendshipService.cancelFriendRequest(recipient)));
+
+        System.out.println("strategy | pairs | threads | ops/s | lost updates | system errors | edges drifted");
+        print(readModifyWrite);
+        print(conditional);
+
+        assertEquals(0, conditional.lostUpdates());
+        assertEquals(0, conditional.systemErrors());
+        assertEquals(0, conditional.drifted());
+    }
+
+    private interface PairAction {
+        void apply(long sender, long recipient);
+    }
+
+    // Mỗi cặp (2i - 1, 2i): user lẻ đã gửi lời mời cho user chẵn; một task chấp nhận, một task hủy, chạy xen kẽ nhau
+    private Outcome race(String name, PairAction accept, PairAction cancel) throws Exception {
+        AtomicIntegerArray successes = new AtomicIntegerArray(PAIRS);
+        AtomicIntegerArray systemErrors = new AtomicIntegerArray(1);
+        List<Callable<Void>> tasks = new ArrayList<>(PAIRS * 2);
+        for (int i = 0; i < PAIRS; i++) {
+            int pair = i;
+            long sender = 2L * i + 1;
+            long recipient = sender + 1;
+            for (PairAction action : List.of(accept, cancel)) {
+                tasks.add(() -> {
+                    try {
+                        action.apply(sender, recipient);
+                        successes.incrementAndGet(pair);
+                    } catch (IllegalStateException e) {
+                        // Bị từ chối đúng luật: phía kia đã thắng
+                    } catch (RuntimeException e) {
+                        if (!"Friendship request not found.".equals(e.getMessage())) {
+                            systemErrors.incrementAndGet(0);
+                        }
+                    }
+                    return null;
+                });
+            }
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        try {
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int lostUpdates = 0;
+        for (int i = 0; i < PAIRS; i++) {
+            if (successes.get(i) > 1) {
+                lostUpdates++;
+            }
+        }
+        return new Outcome(name, tasks.size() / seconds, lostUpdates, systemErrors.get(0), countDrifted());
+    }
+
+    // Cách làm trước đây: đọc dòng, rẽ nhánh trong Java rồi ghi đè, không điều kiện gì ở câu lệnh ghi
+    private void acceptByReadModifyWrite(long sender, long recipient) {
+        Friendship friendship = friendshipRepository.findById(new FriendshipId(sender, recipient))
+                .orElseThrow(() -> new RuntimeException("Friendship request not found."));
+        if (friendship.getStatus() != FriendshipStatus.PENDING || !friendship.getActionUserId().equals(sender)) {
+            throw new IllegalStateException("Invalid friend request or you are not the recipient.");
+        }
+        friendship.setStatus(FriendshipStatus.ACCEPTED);
+        friendship.setActionUserId(recipient);
+        friendshipRepository.save(friendship);
+        friendshipRepository.upsertEdges(sender, recipient, FriendshipStatus.ACCEPTED.name(), recipient);
+    }
+
+    private void cancelByReadModifyWrite(long sender, long recipient) {
+        Friendship friendship = friendshipRepository.findById(new FriendshipId(sender, recipient))
+                .orElseThrow(() -> new RuntimeException("Friendship request not found."));
+        if (friendship.getStatus() != FriendshipStatus.PENDING || !friendship.getActionUserId().equals(sender)) {
+            throw new IllegalStateException("No sent request to cancel.");
+        }
+        friendshipRepository.delete(friendship);
+        friendshipRepository.deleteEdges(sender, recipient);
+    }
+
+    private void asUser(long userId, Runnable action) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("bench" + userId + "@test.com", null));
+        try {
+            action.run();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    // Cặp mà trạng thái trong friendships và user_edges không khớp nhau
+    private int countDrifted() {
+        Integer drifted = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (" +
+                "SELECT user_one_id AS user_id, user_two_id AS other_id, status FROM friendships " +
+                "UNION ALL SELECT user_two_id, user_one_id, status FROM friendships) f " +
+                "FULL OUTER JOIN user_edges e ON e.user_id = f.user_id AND e.other_id = f.other_id " +
+                "WHERE f.status IS NULL OR e.status IS NULL OR f.status <> e.status", Integer.class);
+        return drifted == null ? 0 : drifted / 2;
+    }
+
+    private void seedPendingRequests() {
+        jdbcTemplate.execute("DELETE FROM timeline_entries; DELETE FROM comments; DELETE FROM post_likes; " +
+                "DELETE FROM user_edges; DELETE FROM friendships; DELETE FROM posts; DELETE FROM users;");
+
+        jdbcTemplate.execute("SET IDENTITY_INSERT users ON");
+        List<Object[]> users = new ArrayList<>(BATCH);
+        for (long id = 1; id <= 2L * PAIRS; id++) {
+            users.add(new Object[]{id, "bench" + id + "@test.com"});
+            if (users.size() == BATCH) {
+                jdbcTemplate.batchUpdate("INSERT INTO users (id, email, password, role) VALUES (?, ?, 'p', 'ROLE_USER')", users);
+                users.clear();
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, email, password, role) VALUES (?, ?, 'p', 'ROLE_USER')", users);
+        jdbcTemplate.execute("SET IDENTITY_INSERT users OFF");
+
+        List<Object[]> requests = new ArrayList<>(PAIRS);
+        for (long i = 0; i < PAIRS; i++) {
+            requests.add(new Object[]{2 * i + 1, 2 * i + 2, 2 * i + 1});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO friendships (user_one_id, user_two_id, status, action_user_id) VALUES (?, ?, 'PENDING', ?)", requests);
+        jdbcTemplate.update("INSERT INTO user_edges (user_id, other_id, status, action_user_id) " +
+                "SELECT user_one_id, user_two_id, status, action_user_id FROM friendships " +
+                "UNION ALL SELECT user_two_id, user_one_id, status, action_user_id FROM friendships");
+    }
+
+    private static void print(Outcome outcome) {
+        System.out.printf("%s | %d | %d | %.0f | %d | %d | %d%n", outcome.name(), PAIRS, THREADS,
+                outcome.opsPerSecond(), outcome.lostUpdates(), outcome.systemErrors(), outcome.drifted());
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.socialnetwork.benchmark;
+
+import com.example.socialnetwork.AbstractIntegrationTest;
+import com.example.socialnetwork.entity.Post;
+import com.example.socialnetwork.entity.User;
+import com.example.socialnetwork.repository.PostRepository;
+import com.example.socialnetwork.repository.TimelineEntryRepository;
+import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.service.FanoutPolicy;
+import com.example.socialnetwork.service.TimelineService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Đo write amplification (số dòng hộp thư ghi cho mỗi bài viết) và độ trễ đọc timeline
+// theo các ngưỡng degree khác nhau. Chạy bằng: mvn test -Pbenchmark
+@Tag("benchmark")
+class HybridFanoutBenchmark extends AbstractIntegrationTest {
+
+    private static final int USERS = 5_000;
+    private static final int HUBS = 5;
+    private static final int HUB_DEGREE = 2_000;
+    private static final int REGULAR_DEGREE = 20;
+    private static final int POSTS_PER_AUTHOR = 3;
+    private static final int READERS = 200;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private TimelineEntryRepository timelineEntryRepository;
+    @Autowired
+    private FanoutPolicy fanoutPolicy;
+    @Autowired
+    private TimelineService timelineService;
+
+    private final Random random = new Random(42);
+
+    @BeforeEach
+    void seedGraph() {
+        jdbcTemplate.execute("DELETE FROM timeline_entries; DELETE FROM comments; DELETE FROM post_likes; " +
+                "DELETE FROM user_edges; DELETE FROM friendships; DELETE FROM posts; DELETE FROM users;");
+
+        jdbcTemplate.execute("SET IDENTITY_INSERT users ON");
+        List<Object[]> users = new ArrayList<>();
+        for (long id = 1; id <= USERS; id++) {
+            users.add(new Object[]{id, "bench" + id + "@test.com"});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO users (id, email, password, role) VALUES (?, ?, 'p', 'ROLE_USER')", users);
+        jdbcTemplate.execute("SET IDENTITY_INSERT users OFF");
+
+        // Một vài "hub" có rất nhiều bạn bè, còn lại là user bình thường
+        List<Object[]> edges = new ArrayList<>();
+        java.util.Set<String> seen = new java.util.HashSet<>();
+        for (long hub = 1; hub <= HUBS; hub++) {
+            addRandomEdges(hub, HUB_DEGREE, edges, seen);
+        }
+        for (long user = HUBS + 1; user <= USERS; user++) {
+            addRandomEdges(user, REGULAR_DEGREE / 2, edges, seen);
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO friendships (user_one_id, user_two_id, status, action_user_id) VALUES (?, ?, 'ACCEPTED', ?)", edges);
+        jdbcTemplate.update("INSERT INTO user_edges (user_id, other_id, status, action_user_id) " +
+                "SELECT user_one_id, user_two_id, status, action_user_id FROM friendships " +
+                "UNION ALL SELECT user_two_id, user_one_id, status, action_user_id FROM friendships");
+    }
+
+    private void addRandomEdges(long user, int count, List<Object[]> edges, java.util.Set<String> seen) {
+        for (int i = 0; i < count; i++) {
+            long other = 1 + random.nextInt(USERS);
+            if (other == user) {
+                continue;
+            }
+            long one = Math.min(user, other);
+            long two = Math.max(user, other);
+            if (seen.add(one + ":" + two)) {
+                edges.add(new Object[]{one, two, one});
+            }
+        }
+    }
+
+    @Test
+    void compareThresholds() {
+        int[] thresholds = {Integer.MAX_VALUE, 1_000, 100, 20};
+        double[] amplification = new double[thresholds.length];
+
+        System.out.println("threshold | posts | inbox rows | rows/post | write ms/post | read avg ms | read p95 ms");
+        for (int i = 0; i < thresholds.length; i++) {
+            jdbcTemplate.execute("DELETE FROM timeline_entries; DELETE FROM posts;");
+            fanoutPolicy.setDegreeThreshold(thresholds[i]);
+
+            long rowsWritten = 0;
+            long writeNanos = 0;
+            int posts = 0;
+            for (long author = 1; author <= USERS; author += 25) {
+                User user = userRepository.findById(author).orElseThrow();
+                for (int p = 0; p < POSTS_PER_AUTHOR; p++) {
+                    long start = System.nanoTime();
+                    boolean push = fanoutPolicy.shouldPush(author);
+                    Post post = postRepository.save(Post.builder().user(user).content("bench").fannedOut(push).build());
+                    if (push) {
+                        rowsWritten += 1 + transactionTemplate.execute(status -> timelineEntryRepository.fanOutToFriends(post.getId(), user.getId(), post.getCreatedAt()));
+                        jdbcTemplate.update("INSERT INTO timeline_entries (user_id, post_id, author_id, created_at) VALUES (?, ?, ?, ?)",
+                                user.getId(), post.getId(), user.getId(), post.getCreatedAt());
+                    } else {
+                        fanoutPolicy.markPulled(author);
+                    }
+                    writeNanos += System.nanoTime() - start;
+                    posts++;
+                }
+            }
+
+            long[] readNanos = new long[READERS];
+            for (int r = 0; r < READERS; r++) {
+                long reader = 1 + random.nextInt(USERS);
+                SecurityContextHolder.getContext().setAuthentication(
+                        new UsernamePasswordAuthenticationToken("bench" + reader + "@test.com", null));
+                long start = System.nanoTime();
+                timelineService.getTimelineByCursor(null, 20);
+                readNanos[r] = System.nanoTime() - start;
+            }
+            SecurityContextHolder.clearContext();
+            Arrays.sort(readNanos);
+
+            amplification[i] = (double) rowsWritten / posts;
+            System.out.printf("%9s | %5d | %10d | %9.1f | %12.2f | %11.2f | %11.2f%n",
+                    thresholds[i] == Integer.MAX_VALUE ? "push-all" : String.valueOf(thresholds[i]),
+                    posts, rowsWritten, amplification[i],
+                    writeNanos / 1e6 / posts,
+                    Arrays.stream(readNanos).average().orElse(0) / 1e6,
+                    readNanos[(int) (READERS * 0.95)] / 1e6);
+        }
+
+        // Ngưỡng càng thấp thì càng ít dòng phải ghi cho mỗi bài viết
+        for (int i = 1; i < thresholds.length; i++) {
+            assertTrue(amplification[i] <= amplification[i - 1]);
+        }
+    }
+}
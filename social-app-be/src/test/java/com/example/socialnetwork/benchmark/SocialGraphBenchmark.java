@@ -0,0 +1,93 @@
+package com.example.socialnetwork.benchmark;
+
+import com.example.socialnetwork.repository.FriendshipRepository;
+import com.example.socialnetwork.service.SocialGraphService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+// Đo bộ nhớ heap và độ trễ đọc của đồ thị bạn bè trong bộ nhớ.
+// Chạy bằng: mvn test -Pbenchmark -Dtest=SocialGraphBenchmark -DargLine=-Xmx2g
+// (đổi quy mô bằng -Dgraph.edges=... -Dgraph.users=...)
+@Tag("benchmark")
+class SocialGraphBenchmark {
+
+    private static final long EDGES = Long.getLong("graph.edges", 10_000_000L);
+    private static final int USERS = Integer.getInteger("graph.users", 1_000_000);
+    private static final int LOOKUPS = 1_000_000;
+
+    @Test
+    void measureFootprintAndLookups() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        // Giả lập quét bảng friendships: sinh cạnh ngẫu nhiên, không dựng danh sách trung gian
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            Random random = new Random(42);
+            long[] row = new long[2];
+            ResultSet rs = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{ResultSet.class},
+                    (proxy, method, args) -> row[(Integer) args[0] - 1]);
+            for (long i = 0; i < EDGES; i++) {
+                long a = 1 + random.nextInt(USERS);
+                long b = 1 + random.nextInt(USERS);
+                if (a == b) {
+                    continue;
+                }
+                row[0] = Math.min(a, b);
+                row[1] = Math.max(a, b);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        SocialGraphService graph = new SocialGraphService(mock(FriendshipRepository.class), jdbcTemplate, true);
+        long before = usedHeap();
+        long start = System.nanoTime();
+        graph.load();
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        long footprint = usedHeap() - before;
+
+        Random random = new Random(7);
+        long hits = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (graph.areFriends(1 + random.nextInt(USERS), 1 + random.nextInt(USERS))) {
+                hits++;
+            }
+        }
+        double areFriendsNanos = (double) (System.nanoTime() - start) / LOOKUPS;
+
+        long copied = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < LOOKUPS; i++) {
+            copied += graph.friendsOf(1 + random.nextInt(USERS)).length;
+        }
+        double friendsOfNanos = (double) (System.nanoTime() - start) / LOOKUPS;
+
+        System.out.println("edges | users | heap MB | bytes/edge | load ms | areFriends ns | friendsOf ns (avg degree)");
+        System.out.printf("%d | %d | %.1f | %.1f | %d | %.0f | %.0f (%.1f)%n",
+                EDGES, USERS, footprint / 1e6, (double) footprint / EDGES, loadMillis,
+                areFriendsNanos, friendsOfNanos, (double) copied / LOOKUPS);
+
+        assertTrue(graph.isReady());
+        assertTrue(hits >= 0);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -2,12 +2,17 @@ package com.example.socialnetwork.integration.controller;
 
 import com.example.socialnetwork.AbstractIntegrationTest;
 import com.example.socialnetwork.dto.request.CommentRequest;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.junit.jupiter.api.Test;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -44,6 +49,24 @@ class CommentControllerTest extends AbstractIntegrationTest {
                 .andExpect(jsonPath("$.content[0].id").value(COMMENT_ID));
     }
 
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    void getCommentsByPost_AfterBlockingCommenter_HidesTheirComments() throws Exception {
+        mockMvc.perform(post("/api/friends/block/{userIdToBlock}", 2L))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/posts/{postId}/comments", POST_ID)
+                        .param("page", "0")
+                        .param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(0)))
+                .andExpect(jsonPath("$.totalElements").value(0));
+        mockMvc.perform(get("/api/posts/{postId}/comments", POST_ID)
+                        .param("cursor", ""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(0)));
+    }
+
     @Test
     @WithMockUser(username = "user2@test.com")
     void updateComment_AsOwner_Success() throws Exception {
@@ -89,4 +112,181 @@ class CommentControllerTest extends AbstractIntegrationTest {
         mockMvc.perform(delete("/api/comments/{commentId}", COMMENT_ID))
                 .andExpect(status().isNoContent());
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    void createReply_ShouldAppearInThreadsWithReplyCount() throws Exception {
+        CommentRequest request = new CommentRequest();
+        request.setContent("A reply");
+
+        mockMvc.perform(post("/api/comments/{commentId}/replies", COMMENT_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.parentId").value(COMMENT_ID));
+
+        // Bình luận gốc kèm trả lời đầu tiên, không lẫn trả lời vào danh sách gốc
+        mockMvc.perform(get("/api/posts/{postId}/comments/threads", POST_ID).param("replies", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].id").value(COMMENT_ID))
+                .andExpect(jsonPath("$.content[0].replyCount").value(1))
+                .andExpect(jsonPath("$.content[0].replies", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].replies[0].content").value("A reply"));
+
+        mockMvc.perform(get("/api/comments/{commentId}/replies", COMMENT_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    void getSubtree_ShouldPageThroughAllLevelsParentsFirst() throws Exception {
+        // 1001 -> a -> b -> c, và 1001 -> a2
+        long a = reply(COMMENT_ID, "a");
+        long b = reply(a, "b");
+        long c = reply(b, "c");
+        long a2 = reply(COMMENT_ID, "a2");
+
+        // Trang 2 bình luận: các trả lời trực tiếp trước, rồi tới từng cấp bên dưới
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = get("/api/comments/{commentId}/subtree", COMMENT_ID).param("size", "2");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            JsonNode page = objectMapper.readTree(mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            page.get("content").forEach(comment -> ids.add(comment.get("id").asLong()));
+            cursor = page.get("hasNext").asBoolean() ? page.get("nextCursor").asText() : null;
+        } while (cursor != null);
+        assertEquals(List.of(a, a2, b, c), ids);
+
+        // Cây con của một nhánh không lẫn nhánh bên cạnh
+        mockMvc.perform(get("/api/comments/{commentId}/subtree", a))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.content[0].id").value(b))
+                .andExpect(jsonPath("$.content[1].id").value(c))
+                .andExpect(jsonPath("$.content[1].parentId").value(b))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
+    private long reply(long parentId, String content) throws Exception {
+        CommentRequest request = new CommentRequest();
+        request.setContent(content);
+        String body = mockMvc.perform(post("/api/comments/{commentId}/replies", parentId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    @Test
+    @WithMockUser(username = "user2@test.com")
+    void deleteComment_WithReplies_ShouldRemoveWholeThread() throws Exception {
+        CommentRequest request = new CommentRequest();
+        request.setContent("A reply");
+        mockMvc.perform(post("/api/comments/{commentId}/replies", COMMENT_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(delete("/api/comments/{commentId}", COMMENT_ID))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/posts/{postId}/comments", POST_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(0)));
+    }
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    void getPost_ShouldEmbedLatestCommentPreviews() throws Exception {
+        mockMvc.perform(get("/api/posts/{postId}", POST_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.latestComments", hasSize(1)))
+                .andExpect(jsonPath("$.latestComments[0].id").value(COMMENT_ID))
+                .andExpect(jsonPath("$.latestComments[0].author.fullName").value("Comment Owner"));
+    }
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    void getCommentStream_ShouldWalkAllCommentsNewestFirst() throws Exception {
+        CommentRequest request = new CommentRequest();
+        request.setContent("A reply");
+        mockMvc.perform(post("/api/comments/{commentId}/replies", COMMENT_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+
+        // Luồng gồm mọi cấp bình luận: trả lời mới hơn nên đứng đầu
+        String firstPage = mockMvc.perform(get("/api/posts/{postId}/comments", POST_ID)
+                        .param("cursor", "")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].content").value("A reply"))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andReturn().getResponse().getContentAsString();
+
+        String nextCursor = objectMapper.readTree(firstPage).get("nextCursor").asText();
+        mockMvc.perform(get("/api/posts/{postId}/comments", POST_ID)
+                        .param("cursor", nextCursor)
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].id").value(COMMENT_ID))
+                .andExpect(jsonPath("$.hasNext").value(false));
+    }
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    void getCommentsSince_ShouldReturnOnlyNewCommentsAndDeletions() throws Exception {
+        // Lần poll đầu: mốc rỗng trả các bình luận mới nhất
+        String initial = mockMvc.perform(get("/api/posts/{postId}/comments", POST_ID).param("since", ""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comments", hasSize(1)))
+                .andExpect(jsonPath("$.comments[0].id").value(COMMENT_ID))
+                .andExpect(jsonPath("$.deletedIds", hasSize(0)))
+                .andReturn().getResponse().getContentAsString();
+        String since = objectMapper.readTree(initial).get("since").asText();
+
+        CommentRequest request = new CommentRequest();
+        request.setContent("A newer comment");
+        mockMvc.perform(post("/api/posts/{postId}/comments", POST_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+        mockMvc.perform(delete("/api/comments/{commentId}", COMMENT_ID))
+                .andExpect(status().isNoContent());
+
+        // Poll tiếp theo: chỉ bình luận mới và tombstone của bình luận đã xóa
+        String update = mockMvc.perform(get("/api/posts/{postId}/comments", POST_ID).param("since", since))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comments", hasSize(1)))
+                .andExpect(jsonPath("$.comments[0].content").value("A newer comment"))
+                .andExpect(jsonPath("$.deletedIds", hasSize(1)))
+                .andExpect(jsonPath("$.deletedIds[0]").value(COMMENT_ID))
+                .andExpect(jsonPath("$.hasMore").value(false))
+                .andReturn().getResponse().getContentAsString();
+
+        // Không có gì thay đổi: phản hồi rỗng
+        mockMvc.perform(get("/api/posts/{postId}/comments", POST_ID)
+                        .param("since", objectMapper.readTree(update).get("since").asText()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comments", hasSize(0)))
+                .andExpect(jsonPath("$.deletedIds", hasSize(0)));
+    }
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    void getCommentsSince_InvalidToken_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/posts/{postId}/comments", POST_ID).param("since", "not-a-token"))
+                .andExpect(status().isBadRequest());
+    }
+}
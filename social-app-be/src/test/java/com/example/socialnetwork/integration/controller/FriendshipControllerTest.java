@@ -2,11 +2,25 @@ package com.example.socialnetwork.integration.controller;
 
 import com.example.socialnetwork.AbstractIntegrationTest;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -19,6 +33,9 @@ class FriendshipControllerTest extends AbstractIntegrationTest {
     private final long USER2_ID = 2L;
     private final long USER3_ID = 3L;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     @WithMockUser(username = "user1@test.com")
     void sendFriendRequest_ToNewUser_Success() throws Exception {
@@ -73,4 +90,158 @@ class FriendshipControllerTest extends AbstractIntegrationTest {
         mockMvc.perform(post("/api/friends/cancel/{recipientId}", USER1_ID))
                 .andExpect(status().isOk());
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    void acceptFriendRequests_Batch_ShouldReturnResultPerId() throws Exception {
+        // Lời mời từ user2 hợp lệ, user3 chưa gửi lời mời nào
+        mockMvc.perform(post("/api/friends/accept:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userIds\": [2, 3]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].userId").value(2))
+                .andExpect(jsonPath("$[0].success").value(true))
+                .andExpect(jsonPath("$[1].userId").value(3))
+                .andExpect(jsonPath("$[1].success").value(false))
+                .andExpect(jsonPath("$[1].error").value("Friendship request not found."));
+
+        mockMvc.perform(get("/api/users/2/friendship-status"))
+                .andExpect(jsonPath("$.status").value("FRIENDS"));
+    }
+
+    @Test
+    @WithMockUser(username = "user2@test.com")
+    void cancelFriendRequests_Batch_ShouldRemoveSentRequest() throws Exception {
+        mockMvc.perform(post("/api/friends/cancel:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userIds\": [1]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].success").value(true));
+
+        mockMvc.perform(get("/api/users/1/friendship-status"))
+                .andExpect(jsonPath("$.status").value("NONE"));
+    }
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    void declineFriendRequests_EmptyList_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/friends/decline:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userIds\": []}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void sendFriendRequest_CrossedRequestsAtTheSameTime_ExactlyOneWins() throws Exception {
+        // user1 và user3 cùng lúc gửi lời mời cho nhau nhiều lần. Với kiểu đọc rồi save, hai INSERT đua nhau trên khóa chính
+        // (lỗi vi phạm khóa chính / deadlock trả về cho người dùng); giờ chỉ một lời mời được tạo, các request còn lại bị từ chối đúng lý do
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            boolean fromUser1 = i % 2 == 0;
+            tasks.add(() -> {
+                MockHttpServletResponse response = mockMvc.perform(
+                                post("/api/friends/request/{recipientId}", fromUser1 ? USER3_ID : USER1_ID)
+                                        .with(user(fromUser1 ? "user1@test.com" : "user3@test.com")))
+                        .andReturn().getResponse();
+                return response.getStatus() == 200 ? "OK"
+                        : objectMapper.readTree(response.getContentAsString()).get("error").asText();
+            });
+        }
+
+        List<String> outcomes = new ArrayList<>();
+        try {
+            for (Future<String> future : pool.invokeAll(tasks)) {
+                outcomes.add(future.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(1, outcomes.stream().filter("OK"::equals).count());
+        assertEquals(threads - 1, outcomes.stream().filter("A friend request is already pending."::equals).count());
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM friendships WHERE user_one_id = 1 AND user_two_id = 3 AND status = 'PENDING'", Integer.class));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM user_edges WHERE (user_id = 1 AND other_id = 3) OR (user_id = 3 AND other_id = 1)", Integer.class));
+    }
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    @Sql("/friend-suggestions-test-data.sql")
+    void getSuggestions_ShouldRankFriendsOfFriendsByMutualCount() throws Exception {
+        mockMvc.perform(get("/api/friends/suggestions"))
+                .andExpect(status().isOk())
+                // user6 đã chặn user1 nên không xuất hiện
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].user.id", is(4)))
+                .andExpect(jsonPath("$[0].mutualFriendCount", is(2)))
+                .andExpect(jsonPath("$[1].user.id", is(5)))
+                .andExpect(jsonPath("$[1].mutualFriendCount", is(1)));
+    }
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    @Sql("/friend-suggestions-test-data.sql")
+    void getMutualFriends_ShouldCountForEveryRequestedUser() throws Exception {
+        mockMvc.perform(get("/api/friends/mutual")
+                        .param("userIds", "4", "5")
+                        .param("sample", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].userId", is(4)))
+                .andExpect(jsonPath("$[0].mutualFriendCount", is(2)))
+                .andExpect(jsonPath("$[0].mutualFriendIds", hasSize(2)))
+                .andExpect(jsonPath("$[1].userId", is(5)))
+                .andExpect(jsonPath("$[1].mutualFriendCount", is(1)));
+    }
+
+    @Test
+    @WithMockUser(username = "user2@test.com")
+    @Sql("/friend-suggestions-test-data.sql")
+    void getFriendsByCursor_ShouldWalkPagesSortedByName() throws Exception {
+        // Bạn bè của user2: User One (1), User Four (4), User Five (5), User Six (6)
+        String firstPage = mockMvc.perform(get("/api/friends").param("cursor", "").param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.content[0].userId", is(5)))
+                .andExpect(jsonPath("$.content[0].fullName", is("User Five")))
+                .andExpect(jsonPath("$.content[1].userId", is(4)))
+                .andExpect(jsonPath("$.content[0].email").doesNotExist())
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andReturn().getResponse().getContentAsString();
+
+        String nextCursor = objectMapper.readTree(firstPage).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/friends").param("cursor", nextCursor).param("size", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.content[0].userId", is(1)))
+                .andExpect(jsonPath("$.content[1].userId", is(6)))
+                .andExpect(jsonPath("$.hasNext", is(false)));
+    }
+
+    @Test
+    @WithMockUser(username = "user2@test.com")
+    @Sql("/friend-suggestions-test-data.sql")
+    void getFriendsByCursor_RecentCursorWithNameSort_ReturnsBadRequest() throws Exception {
+        String firstPage = mockMvc.perform(get("/api/friends").param("cursor", "").param("size", "2").param("sort", "recent"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andReturn().getResponse().getContentAsString();
+        String recentCursor = objectMapper.readTree(firstPage).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/friends").param("cursor", recentCursor).param("size", "2").param("sort", "name"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error", containsString("Cursor does not match sort: name")));
+    }
+
+    @Test
+    @WithMockUser(username = "user2@test.com")
+    @Sql("/friend-suggestions-test-data.sql")
+    void getFriendsByCursor_UnknownSort_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/friends").param("cursor", "").param("sort", "email"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -2,14 +2,29 @@ package com.example.socialnetwork.integration.controller;
 
 import com.example.socialnetwork.AbstractIntegrationTest;
 import com.example.socialnetwork.dto.request.UpdatePostRequest;
+import com.example.socialnetwork.repository.PostRepository;
+import com.example.socialnetwork.service.PostCounterService;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.jdbc.Sql;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -19,6 +34,14 @@ class PostControllerTest extends AbstractIntegrationTest {
 
     private final long POST_ID_OF_USER1 = 101L;
     private final long POST_ID_OF_USER2 = 102L;
+    private final long USER2_ID = 2L;
+
+    @Autowired
+    private PostRepository postRepository;
+    @Autowired
+    private PostCounterService postCounterService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
     @Test
     @WithMockUser(username = "user1@test.com")
@@ -104,4 +127,107 @@ class PostControllerTest extends AbstractIntegrationTest {
                 .andExpect(jsonPath("$.isLiked").value(false))
                 .andExpect(jsonPath("$.likeCount").value(0));
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(username = "user2@test.com")
+    void getPostById_AfterLike_ShouldReportLikedByMe() throws Exception {
+        mockMvc.perform(get("/api/posts/{postId}", POST_ID_OF_USER1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likedByMe").value(false));
+
+        mockMvc.perform(post("/api/posts/{postId}/like", POST_ID_OF_USER1))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/posts/{postId}", POST_ID_OF_USER1))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likedByMe").value(true))
+                .andExpect(jsonPath("$.likeCount").value(1));
+    }
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    @Sql({"/post-test-data.sql", "/post-likers-test-data.sql"})
+    void getLikers_ShouldWalkPagesNewestFirst() throws Exception {
+        String firstPage = mockMvc.perform(get("/api/posts/{postId}/likes", POST_ID_OF_USER1).param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].userId").value(2))
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andReturn().getResponse().getContentAsString();
+
+        String nextCursor = objectMapper.readTree(firstPage).get("nextCursor").asText();
+
+        mockMvc.perform(get("/api/posts/{postId}/likes", POST_ID_OF_USER1)
+                        .param("cursor", nextCursor)
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].userId").value(1))
+                .andExpect(jsonPath("$.hasNext", is(false)));
+    }
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    void getLikers_PostNotFound_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/posts/{postId}/likes", 999L))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void toggleLike_ConcurrentTogglesOnSamePair_StayConsistent() throws Exception {
+        // user2 thích bài trước, rồi 16 luồng cùng gọi endpoint thích / bỏ thích; số lần toggle chẵn nên trạng thái cuối vẫn là đã thích
+        mockMvc.perform(post("/api/posts/{postId}/like", POST_ID_OF_USER1).with(user("user2@test.com")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.isLiked").value(true));
+
+        int threads = 16;
+        int togglesPerThread = 25;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Callable<int[]>> tasks = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            tasks.add(() -> {
+                int liked = 0;
+                int unliked = 0;
+                for (int j = 0; j < togglesPerThread; j++) {
+                    MockHttpServletResponse response = mockMvc.perform(
+                                    post("/api/posts/{postId}/like", POST_ID_OF_USER1).with(user("user2@test.com")))
+                            .andReturn().getResponse();
+                    // Không request nào được lỗi khóa chính hay deadlock
+                    assertEquals(200, response.getStatus(), response.getContentAsString());
+                    if (objectMapper.readTree(response.getContentAsString()).get("isLiked").asBoolean()) {
+                        liked++;
+                    } else {
+                        unliked++;
+                    }
+                }
+                return new int[]{liked, unliked};
+            });
+        }
+
+        int liked = 0;
+        int unliked = 0;
+        try {
+            for (Future<int[]> future : pool.invokeAll(tasks)) {
+                int[] counts = future.get();
+                liked += counts[0];
+                unliked += counts[1];
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        // Các lần toggle được tuần tự hóa: số lần thích và bỏ thích bằng nhau
+        assertEquals(threads * togglesPerThread / 2, liked);
+        assertEquals(liked, unliked);
+
+        // Sau khi bộ đếm được ghi xuống: đúng một dòng post_likes, cột like_count và số service trả về đều là 1
+        postCounterService.flush();
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM post_likes WHERE user_id = ? AND post_id = ?", Integer.class, USER2_ID, POST_ID_OF_USER1));
+        assertEquals(1L, postRepository.findLikeCountById(POST_ID_OF_USER1).orElseThrow());
+        mockMvc.perform(get("/api/posts/{postId}", POST_ID_OF_USER1).with(user("user2@test.com")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likedByMe").value(true))
+                .andExpect(jsonPath("$.likeCount").value(1));
+    }
+}
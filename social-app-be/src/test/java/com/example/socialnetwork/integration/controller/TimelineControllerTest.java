@@ -1,19 +1,62 @@
 package com.example.socialnetwork.integration.controller;
 
 import com.example.socialnetwork.AbstractIntegrationTest;
+import com.example.socialnetwork.repository.TimelineEntryRepository;
+import com.example.socialnetwork.service.FanoutPolicy;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @Sql("/timeline-test-data.sql")
 class TimelineControllerTest extends AbstractIntegrationTest {
 
+    @Autowired
+    private FanoutPolicy fanoutPolicy;
+    @Autowired
+    private TimelineEntryRepository timelineEntryRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void fanOutToFriends_WhenFriendAlreadyHasPostFromBackfill_SkipsIt() {
+        // Bài 102 của friend_user đã nằm trong hộp thư của current_user (như khi backfillConnection chạy trước)
+        LocalDateTime createdAt = LocalDateTime.now();
+        Integer inserted = transactionTemplate.execute(status -> timelineEntryRepository.fanOutToFriends(102L, 2L, createdAt));
+
+        assertEquals(0, inserted);
+        assertEquals(2, timelineEntryRepository.countByUserId(1L));
+    }
+
+    @Test
+    @WithMockUser(username = "current_user@test.com")
+    void unfriend_ShouldRemoveFormerFriendsPostsFromFeed() throws Exception {
+        mockMvc.perform(post("/api/friends/unfriend/{friendId}", 2L))
+                .andExpect(status().isOk());
+
+        // Dòng trong hộp thư đã bị xóa (đã commit), feed chỉ còn bài của chính mình
+        assertEquals(1, timelineEntryRepository.countByUserId(1L));
+        assertEquals(1, timelineEntryRepository.countByUserId(2L));
+        mockMvc.perform(get("/api/timeline"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].id").value(101));
+    }
+
     @Test
     @WithMockUser(username = "current_user@test.com")
     void getTimeline_ShouldReturnPostsOfSelfAndFriends_OrderedByDate() throws Exception {
@@ -31,6 +74,24 @@ class TimelineControllerTest extends AbstractIntegrationTest {
                 .andExpect(jsonPath("$.content[1].author.email").value("current_user@test.com"));
     }
 
+    @Test
+    @WithMockUser(username = "current_user@test.com")
+    void getTimeline_PageBeyondPagedLimit_ReturnsBadRequestPointingToCursor() throws Exception {
+        mockMvc.perform(get("/api/timeline")
+                        .param("page", "5000")
+                        .param("size", "100"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value(containsString("?cursor=")));
+    }
+
+    @Test
+    @WithMockUser(username = "current_user@test.com")
+    void getTimeline_WithClientSort_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/timeline")
+                        .param("sort", "createdAt,asc"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     @WithMockUser(username = "other_user@test.com")
     void getTimeline_ForUserWithNoFriends_ShouldReturnOnlyOwnPosts() throws Exception {
@@ -40,4 +101,64 @@ class TimelineControllerTest extends AbstractIntegrationTest {
                 .andExpect(jsonPath("$.content", hasSize(1)))
                 .andExpect(jsonPath("$.content[0].id").value(103));
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(username = "current_user@test.com")
+    void getTimelineByCursor_ShouldWalkPagesWithNextCursor() throws Exception {
+        // Trang đầu tiên: cursor để trống
+        String firstPage = mockMvc.perform(get("/api/timeline")
+                        .param("cursor", "")
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].id").value(102))
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode body = objectMapper.readTree(firstPage);
+        String nextCursor = body.get("nextCursor").asText();
+
+        // Trang thứ hai: dùng nextCursor của trang trước
+        mockMvc.perform(get("/api/timeline")
+                        .param("cursor", nextCursor)
+                        .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].id").value(101))
+                .andExpect(jsonPath("$.hasNext", is(false)))
+                .andExpect(jsonPath("$.nextCursor", nullValue()));
+    }
+
+    @Test
+    @WithMockUser(username = "current_user@test.com")
+    void getTimelineByCursor_InvalidCursor_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/timeline").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "current_user@test.com")
+    @Sql({"/timeline-test-data.sql", "/timeline-pulled-test-data.sql"})
+    void getTimeline_ShouldPullNonFannedOutPostsOfFriends() throws Exception {
+        fanoutPolicy.refresh();
+
+        mockMvc.perform(get("/api/timeline"))
+                .andExpect(status().isOk())
+                // Bài viết 102 không nằm trong hộp thư nhưng vẫn được kéo qua quan hệ bạn bè
+                .andExpect(jsonPath("$.content", hasSize(2)))
+                .andExpect(jsonPath("$.content[0].id").value(102))
+                .andExpect(jsonPath("$.content[1].id").value(101));
+    }
+
+    @Test
+    @WithMockUser(username = "other_user@test.com")
+    @Sql({"/timeline-test-data.sql", "/timeline-pulled-test-data.sql"})
+    void getTimeline_ShouldNotPullPostsOfNonFriends() throws Exception {
+        fanoutPolicy.refresh();
+
+        mockMvc.perform(get("/api/timeline"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content", hasSize(1)))
+                .andExpect(jsonPath("$.content[0].id").value(103));
+    }
+}
@@ -53,4 +53,56 @@ class UserControllerTest extends AbstractIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.avatarUrl").exists());
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    @Sql("/friend-suggestions-test-data.sql")
+    void getFriendshipStatuses_ShouldResolveAllUsersInOneCall() throws Exception {
+        mockMvc.perform(post("/api/users/friendship-status:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userIds\": [1, 2, 4, 6]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.1").value("SELF"))
+                .andExpect(jsonPath("$.2").value("FRIENDS"))
+                .andExpect(jsonPath("$.4").value("NONE"))
+                .andExpect(jsonPath("$.6").value("BLOCKED_BY_OTHER"));
+    }
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    void getFriendshipStatuses_EmptyList_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/api/users/friendship-status:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"userIds\": []}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "user1@test.com", roles = "ADMIN")
+    @Sql("/friend-suggestions-test-data.sql")
+    void getConnectionPath_ShouldReturnShortestChainOfFriends() throws Exception {
+        mockMvc.perform(get("/api/users/1/connection-path").param("to", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.found").value(true))
+                .andExpect(jsonPath("$.degrees").value(2))
+                .andExpect(jsonPath("$.path[0]").value(1))
+                .andExpect(jsonPath("$.path[1]").value(2))
+                .andExpect(jsonPath("$.path[2]").value(5))
+                .andExpect(jsonPath("$.budgetExhausted").value(false));
+    }
+
+    @Test
+    @WithMockUser(username = "user1@test.com", roles = "ADMIN")
+    void getConnectionPath_UnknownUser_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/users/1/connection-path").param("to", "999"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "user1@test.com")
+    @Sql("/friend-suggestions-test-data.sql")
+    void getConnectionPath_AsRegularUser_ReturnsForbidden() throws Exception {
+        mockMvc.perform(get("/api/users/1/connection-path").param("to", "5"))
+                .andExpect(status().isForbidden());
+    }
+}
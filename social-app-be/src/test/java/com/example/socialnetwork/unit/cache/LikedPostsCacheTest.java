@@ -0,0 +1,107 @@
+package com.example.socialnetwork.unit.cache;
+
+import com.example.socialnetwork.cache.LikedPostsCache;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LikedPostsCacheTest {
+
+    private final LikedPostsCache cache = new LikedPostsCache(true, 100, 600);
+
+    @Test
+    void put_WhenLikeCommittedDuringLoad_ShouldNotCacheStaleBitmap() throws Exception {
+        // Given: luồng nạp đã đọc DB (chưa có bài 101) và dừng lại trước khi put
+        Set<Long> db = ConcurrentHashMap.newKeySet();
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch liked = new CountDownLatch(1);
+        ExecutorService loader = Executors.newSingleThreadExecutor();
+        Future<Roaring64Bitmap> load = loader.submit(() -> {
+            long generation = cache.generation(1L);
+            List<Long> snapshot = List.copyOf(db);
+            loaded.countDown();
+            liked.await();
+            return cache.put(1L, snapshot, generation);
+        });
+
+        // When: user thích bài 101 trong lúc đó (commit rồi cập nhật cache, lúc này cache chưa có bitmap)
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+        db.add(101L);
+        cache.update(1L, 101L, true);
+        liked.countDown();
+        Roaring64Bitmap stale = load.get(5, TimeUnit.SECONDS);
+        loader.shutdown();
+
+        // Then: kết quả cũ chỉ dùng cho request đó, không vào cache; lần nạp sau thấy lượt thích
+        assertFalse(stale.contains(101L));
+        assertNull(cache.get(1L));
+        Roaring64Bitmap reloaded = cache.put(1L, List.copyOf(db), cache.generation(1L));
+        assertSame(reloaded, cache.get(1L));
+        assertTrue(reloaded.contains(101L));
+    }
+
+    @Test
+    void put_WhenNoUpdateDuringLoad_ShouldCacheBitmap() {
+        long generation = cache.generation(1L);
+        cache.update(2L, 101L, true);
+
+        Roaring64Bitmap bitmap = cache.put(1L, List.of(101L, 102L), generation);
+
+        assertSame(bitmap, cache.get(1L));
+        assertEquals(Set.of(101L), cache.filterLiked(bitmap, List.of(101L, 103L)));
+    }
+
+    @Test
+    void concurrentLoadsAndToggles_ShouldLeaveCacheConsistentWithDatabase() throws Exception {
+        // Nhiều luồng thích / bỏ thích (ghi "DB" rồi update) xen với các luồng nạp cache khi trống;
+        // bitmap còn lại trong cache phải khớp với DB. Mỗi luồng thích / bỏ thích một nhóm bài viết riêng
+        Set<Long> db = ConcurrentHashMap.newKeySet();
+        int threads = 8;
+        int iterations = 5_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            boolean toggler = t % 2 == 0;
+            long seed = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < iterations; i++) {
+                    if (toggler) {
+                        long postId = seed * 16 + i % 16;
+                        boolean like = db.add(postId) || !db.remove(postId);
+                        cache.update(1L, postId, like);
+                    } else if (cache.get(1L) == null || i % 50 == 0) {
+                        long generation = cache.generation(1L);
+                        cache.put(1L, List.copyOf(db), generation);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        Roaring64Bitmap cached = cache.get(1L);
+        if (cached != null) {
+            for (long postId = 0; postId < threads * 16L; postId++) {
+                assertEquals(db.contains(postId), cache.filterLiked(cached, List.of(postId)).contains(postId),
+                        "post " + postId);
+            }
+        }
+    }
+}
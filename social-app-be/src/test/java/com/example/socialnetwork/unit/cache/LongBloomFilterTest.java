@@ -0,0 +1,45 @@
+package com.example.socialnetwork.unit.cache;
+
+import com.example.socialnetwork.cache.LongBloomFilter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongBloomFilterTest {
+
+    @Test
+    void mightContain_AfterAdd_NeverReturnsFalseNegative() {
+        LongBloomFilter filter = new LongBloomFilter(10_000, 0.01);
+        for (long id = 1; id <= 10_000; id++) {
+            filter.add(id * 7);
+        }
+
+        for (long id = 1; id <= 10_000; id++) {
+            assertTrue(filter.mightContain(id * 7));
+        }
+    }
+
+    @Test
+    void mightContain_ForUnseenIds_StaysNearConfiguredFalsePositiveRate() {
+        LongBloomFilter filter = new LongBloomFilter(10_000, 0.01);
+        for (long id = 1; id <= 10_000; id++) {
+            filter.add(id);
+        }
+
+        int falsePositives = 0;
+        for (long id = 1_000_001; id <= 1_100_000; id++) {
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+        // Mục tiêu 1%; cho phép dư để test không phụ thuộc vào phân bố cụ thể của hàm băm
+        assertTrue(falsePositives < 2_000, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void mightContain_OnEmptyFilter_ReturnsFalse() {
+        LongBloomFilter filter = new LongBloomFilter(1_000, 0.01);
+
+        assertFalse(filter.mightContain(42L));
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.socialnetwork.unit.cache;
+
+import com.example.socialnetwork.cache.LruTtlCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruTtlCacheTest {
+
+    @Test
+    void get_AfterPut_CountsHitAndMiss() {
+        LruTtlCache<Long, String> cache = new LruTtlCache<>("test", 10, Duration.ofMinutes(1));
+        cache.put(1L, "one");
+
+        assertEquals("one", cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(0.5, cache.hitRate());
+    }
+
+    @Test
+    void put_OverMaxSize_EvictsLeastRecentlyUsed() {
+        LruTtlCache<Long, String> cache = new LruTtlCache<>("test", 2, Duration.ofMinutes(1));
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        // Truy cập key 1 để key 2 trở thành phần tử ít dùng nhất
+        cache.get(1L);
+        cache.put(3L, "three");
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get(2L));
+        assertEquals("one", cache.get(1L));
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    void get_AfterTtl_ReturnsNull() {
+        LruTtlCache<Long, String> cache = new LruTtlCache<>("test", 10, Duration.ZERO);
+        cache.put(1L, "one");
+
+        assertNull(cache.get(1L));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void invalidateAll_RemovesOnlyGivenKeys() {
+        LruTtlCache<Long, String> cache = new LruTtlCache<>("test", 10, Duration.ofMinutes(1));
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.put(3L, "three");
+
+        cache.invalidateAll(List.of(1L, 3L));
+
+        Map<Long, String> remaining = cache.getAll(List.of(1L, 2L, 3L));
+        assertEquals(Map.of(2L, "two"), remaining);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.socialnetwork.unit.security;
+
+import com.example.socialnetwork.entity.Role;
+import com.example.socialnetwork.entity.User;
+import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.security.CachingUserDetailsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingUserDetailsServiceTest {
+
+    private static final String EMAIL = "user@test.com";
+
+    @Mock
+    private UserRepository userRepository;
+
+    private CachingUserDetailsService userDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        userDetailsService = new CachingUserDetailsService(userRepository, 100, 300);
+    }
+
+    private static User user(String password) {
+        return User.builder().id(1L).email(EMAIL).password(password).role(Role.ROLE_USER).build();
+    }
+
+    @Test
+    void loadUserByUsername_SecondCall_IsServedFromCache() {
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user("hash")));
+
+        UserDetails first = userDetailsService.loadUserByUsername(EMAIL);
+        UserDetails second = userDetailsService.loadUserByUsername(EMAIL);
+
+        assertEquals(EMAIL, second.getUsername());
+        assertEquals("hash", second.getPassword());
+        assertEquals(first.getAuthorities(), second.getAuthorities());
+        verify(userRepository, times(1)).findByEmail(EMAIL);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        userDetailsService.bindTo(registry);
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "auth.users").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "auth.users").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void loadUserByUsername_ErasingCredentialsOnResult_DoesNotTouchCachedCopy() {
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user("hash")));
+
+        // Spring Security xóa mật khẩu trên principal sau khi đăng nhập
+        ((CredentialsContainer) userDetailsService.loadUserByUsername(EMAIL)).eraseCredentials();
+
+        assertEquals("hash", userDetailsService.loadUserByUsername(EMAIL).getPassword());
+    }
+
+    @Test
+    void evict_ShouldReloadChangedPassword() {
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(user("old")), Optional.of(user("new")));
+        userDetailsService.loadUserByUsername(EMAIL);
+
+        userDetailsService.evict(EMAIL);
+
+        assertEquals("new", userDetailsService.loadUserByUsername(EMAIL).getPassword());
+        verify(userRepository, times(2)).findByEmail(EMAIL);
+    }
+
+    @Test
+    void loadUserByUsername_UnknownEmail_IsNotCached() {
+        when(userRepository.findByEmail("new@test.com")).thenReturn(Optional.empty(), Optional.of(user("hash")));
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("new@test.com"));
+        assertNotNull(userDetailsService.loadUserByUsername("new@test.com"));
+    }
+}
@@ -5,6 +5,7 @@ import com.example.socialnetwork.dto.response.AuthResponse;
 import com.example.socialnetwork.entity.Role;
 import com.example.socialnetwork.entity.User;
 import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.security.CachingUserDetailsService;
 import com.example.socialnetwork.security.JwtService;
 import com.example.socialnetwork.service.AuthService;
 import org.junit.jupiter.api.BeforeEach;
@@ -36,6 +37,8 @@ class AuthServiceTest {
     private JwtService jwtService;
     @Mock
     private AuthenticationManager authenticationManager;
+    @Mock
+    private CachingUserDetailsService userDetailsService;
 
     @InjectMocks
     private AuthService authService;
@@ -131,6 +134,23 @@ class AuthServiceTest {
         assertThrows(UsernameNotFoundException.class, () -> authService.forgotPassword(request));
     }
 
+    @Test
+    void resetPassword_Success_EvictsCachedLogin() {
+        ResetPasswordRequest request = new ResetPasswordRequest();
+        request.setToken("valid-token");
+        request.setNewPassword("newPassword");
+        user.setPasswordResetToken("valid-token");
+        user.setPasswordResetTokenExpiry(LocalDateTime.now().plusMinutes(5));
+        when(userRepository.findByPasswordResetToken("valid-token")).thenReturn(Optional.of(user));
+        when(passwordEncoder.encode("newPassword")).thenReturn("newEncoded");
+
+        authService.resetPassword(request);
+
+        assertEquals("newEncoded", user.getPassword());
+        assertNull(user.getPasswordResetToken());
+        verify(userDetailsService).evict("user@test.com");
+    }
+
     @Test
     void resetPassword_TokenExpired_ThrowsException() {
         ResetPasswordRequest request = new ResetPasswordRequest();
@@ -0,0 +1,90 @@
+package com.example.socialnetwork.unit.service;
+
+import com.example.socialnetwork.cache.TimelineCache;
+import com.example.socialnetwork.dto.request.CommentRequest;
+import com.example.socialnetwork.dto.response.CommentResponse;
+import com.example.socialnetwork.entity.Comment;
+import com.example.socialnetwork.entity.Post;
+import com.example.socialnetwork.entity.Role;
+import com.example.socialnetwork.entity.User;
+import com.example.socialnetwork.repository.CommentRepository;
+import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.service.CommentService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CommentServiceTest {
+
+    @Mock
+    private CommentRepository commentRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private TimelineCache timelineCache;
+
+    @InjectMocks
+    private CommentService commentService;
+
+    private User author;
+    private Comment comment;
+
+    @BeforeEach
+    void setUp() {
+        author = User.builder().id(1L).email("author@test.com").role(Role.ROLE_USER).build();
+        Post post = Post.builder().id(10L).user(author).build();
+        comment = Comment.builder().id(100L).content("Original").user(author).post(post).build();
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(author.getEmail(), null));
+        when(commentRepository.findById(100L)).thenReturn(Optional.of(comment));
+    }
+
+    @Test
+    void updateComment_ShouldEvictCachedPostAfterSaving() {
+        // Given
+        when(userRepository.findByEmail(author.getEmail())).thenReturn(Optional.of(author));
+        when(commentRepository.save(any(Comment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        CommentRequest request = new CommentRequest();
+        request.setContent("Edited");
+
+        // When
+        CommentResponse response = commentService.updateComment(100L, request);
+
+        // Then: bản xem trước trong bài viết đã cache không còn giữ nội dung cũ
+        assertEquals("Edited", response.getContent());
+        InOrder inOrder = inOrder(commentRepository, timelineCache);
+        inOrder.verify(commentRepository).save(comment);
+        inOrder.verify(timelineCache).evictPost(10L);
+    }
+
+    @Test
+    void updateComment_NotOwner_ShouldNotTouchCache() {
+        // Given
+        User other = User.builder().id(2L).email("other@test.com").role(Role.ROLE_USER).build();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(other.getEmail(), null));
+        when(userRepository.findByEmail(other.getEmail())).thenReturn(Optional.of(other));
+        CommentRequest request = new CommentRequest();
+        request.setContent("Edited");
+
+        // When & Then
+        assertThrows(AccessDeniedException.class, () -> commentService.updateComment(100L, request));
+        verify(commentRepository, never()).save(any());
+        verifyNoInteractions(timelineCache);
+    }
+}
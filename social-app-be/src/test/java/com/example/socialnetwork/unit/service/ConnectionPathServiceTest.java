@@ -0,0 +1,109 @@
+package com.example.socialnetwork.unit.service;
+
+import com.example.socialnetwork.dto.response.ConnectionPathResponse;
+import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.service.ConnectionPathService;
+import com.example.socialnetwork.service.SocialGraphService;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConnectionPathServiceTest {
+
+    @Mock
+    private SocialGraphService socialGraphService;
+    @Mock
+    private UserRepository userRepository;
+
+    // Đồ thị giả: user -> danh sách bạn bè, trả theo lô như SocialGraphService.friendsOf(Collection)
+    private void givenGraph(Map<Long, long[]> adjacency) {
+        lenient().when(socialGraphService.friendsOf(anyCollection())).thenAnswer(inv -> {
+            Long2ObjectOpenHashMap<long[]> batch = new Long2ObjectOpenHashMap<>();
+            for (Long userId : (Collection<Long>) inv.getArgument(0)) {
+                batch.put(userId.longValue(), adjacency.getOrDefault(userId, new long[0]).clone());
+            }
+            return batch;
+        });
+    }
+
+    // Chuỗi 1 - 2 - 3 - 4 - 5 - 6 cộng một đường tắt 2 - 7 - 5
+    private static final Map<Long, long[]> CHAIN = Map.of(
+            1L, new long[]{2},
+            2L, new long[]{1, 3, 7},
+            3L, new long[]{2, 4},
+            4L, new long[]{3, 5},
+            5L, new long[]{4, 6, 7},
+            6L, new long[]{5},
+            7L, new long[]{2, 5});
+
+    @Test
+    void search_ShouldReturnShortestPath() {
+        givenGraph(CHAIN);
+        ConnectionPathService service = new ConnectionPathService(socialGraphService, userRepository, 6, 1000);
+
+        ConnectionPathResponse response = service.search(1L, 6L);
+
+        assertTrue(response.isFound());
+        assertEquals(4, response.getDegrees());
+        assertEquals(List.of(1L, 2L, 7L, 5L, 6L), response.getPath());
+        assertFalse(response.isBudgetExhausted());
+    }
+
+    @Test
+    void search_BeyondMaxDepth_ShouldNotFindPath() {
+        givenGraph(CHAIN);
+        ConnectionPathService service = new ConnectionPathService(socialGraphService, userRepository, 3, 1000);
+
+        ConnectionPathResponse response = service.search(1L, 6L);
+
+        assertFalse(response.isFound());
+        assertNull(response.getDegrees());
+        assertFalse(response.isBudgetExhausted());
+    }
+
+    @Test
+    void search_WhenVisitBudgetIsSpent_ShouldStopAndSayWhy() {
+        givenGraph(CHAIN);
+        ConnectionPathService service = new ConnectionPathService(socialGraphService, userRepository, 6, 3);
+
+        ConnectionPathResponse response = service.search(1L, 6L);
+
+        assertFalse(response.isFound());
+        assertTrue(response.isBudgetExhausted());
+        assertTrue(response.getVisitedUsers() <= 3);
+    }
+
+    @Test
+    void search_DisconnectedUsers_ShouldStopWhenOneSideRunsOut() {
+        givenGraph(Map.of(1L, new long[]{2}, 2L, new long[]{1}, 8L, new long[]{9}, 9L, new long[]{8}));
+        ConnectionPathService service = new ConnectionPathService(socialGraphService, userRepository, 6, 1000);
+
+        ConnectionPathResponse response = service.search(1L, 9L);
+
+        assertFalse(response.isFound());
+        assertEquals(List.of(), response.getPath());
+        // Mỗi tầng chỉ lấy danh sách kề bằng một lời gọi theo lô
+        verify(socialGraphService, atMost(3)).friendsOf(anyCollection());
+    }
+
+    @Test
+    void findPath_UnknownUser_Throws() {
+        when(userRepository.existsById(1L)).thenReturn(true);
+        when(userRepository.existsById(99L)).thenReturn(false);
+        ConnectionPathService service = new ConnectionPathService(socialGraphService, userRepository, 6, 1000);
+
+        assertThrows(RuntimeException.class, () -> service.findPath(1L, 99L));
+        verifyNoInteractions(socialGraphService);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.socialnetwork.unit.service;
+
+import com.example.socialnetwork.repository.FriendshipRepository;
+import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.service.FriendSuggestionService;
+import com.example.socialnetwork.service.FriendSuggestionService.Suggestion;
+import com.example.socialnetwork.service.SocialGraphService;
+import com.example.socialnetwork.service.UserService;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FriendSuggestionServiceTest {
+
+    @Mock
+    private SocialGraphService socialGraphService;
+    @Mock
+    private FriendshipRepository friendshipRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private UserService userService;
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+    private FriendSuggestionService friendSuggestionService;
+
+    @BeforeEach
+    void setUp() {
+        friendSuggestionService = new FriendSuggestionService(socialGraphService, friendshipRepository,
+                userRepository, userService, pool, 100, 600);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    // Đồ thị giả: user -> danh sách bạn bè, trả từng user hoặc theo lô như SocialGraphService
+    private void givenGraph(Map<Long, long[]> adjacency) {
+        lenient().when(socialGraphService.sortedFriendsOf(anyLong())).thenAnswer(inv -> sorted(adjacency, inv.getArgument(0)));
+        lenient().when(socialGraphService.friendsOf(anyCollection())).thenAnswer(inv -> batch(adjacency, inv.getArgument(0)));
+        lenient().when(socialGraphService.sortedFriendsOf(anyCollection())).thenAnswer(inv -> batch(adjacency, inv.getArgument(0)));
+    }
+
+    private static long[] sorted(Map<Long, long[]> adjacency, long userId) {
+        long[] friends = adjacency.getOrDefault(userId, new long[0]).clone();
+        Arrays.sort(friends);
+        return friends;
+    }
+
+    private static Long2ObjectMap<long[]> batch(Map<Long, long[]> adjacency, Collection<Long> userIds) {
+        Long2ObjectOpenHashMap<long[]> result = new Long2ObjectOpenHashMap<>();
+        userIds.forEach(userId -> result.put(userId.longValue(), sorted(adjacency, userId)));
+        return result;
+    }
+
+    @Test
+    void rank_ShouldOrderByMutualFriendsAndSkipExistingRelationships() {
+        // 1 là bạn của 2, 3; 4 là bạn của cả 2 và 3; 5 chỉ là bạn của 2; 6 là bạn của 2 nhưng đã từ chối 1
+        givenGraph(Map.of(
+                1L, new long[]{2, 3},
+                2L, new long[]{1, 4, 5, 6},
+                3L, new long[]{1, 4},
+                4L, new long[]{2, 3},
+                5L, new long[]{2},
+                6L, new long[]{2}));
+        when(friendshipRepository.findRelatedUserIds(1L)).thenReturn(List.of(2L, 3L, 6L));
+
+        List<Suggestion> ranked = friendSuggestionService.rank(1L);
+
+        assertEquals(List.of(new Suggestion(4L, 2), new Suggestion(5L, 1)), ranked);
+        // Bạn của bạn bè và bạn của ứng viên đều được tra theo lô, không tra từng người
+        verify(socialGraphService, times(1)).friendsOf(anyCollection());
+        verify(socialGraphService, times(1)).sortedFriendsOf(anyCollection());
+        verify(socialGraphService, never()).friendsOf(anyLong());
+    }
+
+    @Test
+    void rank_WithoutFriends_ShouldNotQueryRelationships() {
+        givenGraph(Map.of());
+
+        assertTrue(friendSuggestionService.rank(1L).isEmpty());
+        verifyNoInteractions(friendshipRepository);
+    }
+}
@@ -1,28 +1,45 @@
 package com.example.socialnetwork.unit.service;
 
+import com.example.socialnetwork.dto.response.CursorPageResponse;
+import com.example.socialnetwork.dto.response.FriendRequestResultResponse;
+import com.example.socialnetwork.dto.response.FriendResponse;
+import com.example.socialnetwork.dto.response.MutualFriendsResponse;
 import com.example.socialnetwork.dto.response.UserProfileResponse;
 import com.example.socialnetwork.entity.*;
 import com.example.socialnetwork.repository.FriendshipRepository;
 import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.service.BlockListService;
+import com.example.socialnetwork.service.FriendSuggestionService;
 import com.example.socialnetwork.service.FriendshipService;
+import com.example.socialnetwork.service.SocialGraphService;
+import com.example.socialnetwork.service.TimelineFanoutService;
 import com.example.socialnetwork.service.UserService;
+import com.example.socialnetwork.util.CursorUtils;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -34,6 +51,14 @@ class FriendshipServiceTest {
     private UserRepository userRepository;
     @Mock
     private UserService userService;
+    @Mock
+    private TimelineFanoutService timelineFanoutService;
+    @Mock
+    private SocialGraphService socialGraphService;
+    @Mock
+    private FriendSuggestionService friendSuggestionService;
+    @Mock
+    private BlockListService blockListService;
 
     @InjectMocks
     private FriendshipService friendshipService;
@@ -52,15 +77,37 @@ class FriendshipServiceTest {
         when(userRepository.findByEmail(currentUser.getEmail())).thenReturn(Optional.of(currentUser));
     }
 
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    // Giả lập kết thúc transaction mà service đang chạy bên trong
+    private static void completeTransaction(boolean commit) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        for (TransactionSynchronization synchronization : synchronizations) {
+            if (commit) {
+                synchronization.afterCommit();
+            }
+            synchronization.afterCompletion(commit ? TransactionSynchronization.STATUS_COMMITTED
+                    : TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+    }
+
     @Test
     void sendFriendRequest_Success() {
         // Given
         when(userRepository.findById(otherUser.getId())).thenReturn(Optional.of(otherUser));
-        when(friendshipRepository.findById(any(FriendshipId.class))).thenReturn(Optional.empty());
+        when(friendshipRepository.insertRequest(1L, 2L, currentUser.getId())).thenReturn(1);
         // When
         friendshipService.sendFriendRequest(otherUser.getId());
-        // Then
-        verify(friendshipRepository, times(1)).save(any(Friendship.class));
+        // Then: một câu lệnh MERGE, không đọc trước rồi save
+        verify(friendshipRepository, never()).findById(any());
+        verify(friendshipRepository, never()).save(any());
+        verify(friendshipRepository).upsertEdges(1L, 2L, "PENDING", currentUser.getId());
     }
 
     @Test
@@ -103,49 +150,86 @@ class FriendshipServiceTest {
 
     @Test
     void acceptFriendRequest_Success() {
-        Friendship pendingRequest = Friendship.builder()
-                .userOneId(1L).userTwoId(2L)
-                .status(FriendshipStatus.PENDING)
-                .actionUserId(otherUser.getId()) // otherUser đã gửi yêu cầu
-                .build();
-        when(friendshipRepository.findById(any(FriendshipId.class))).thenReturn(Optional.of(pendingRequest));
+        // otherUser đã gửi yêu cầu
+        when(friendshipRepository.respondToRequest(1L, 2L, otherUser.getId(), currentUser.getId(), "ACCEPTED")).thenReturn(1);
 
         friendshipService.acceptFriendRequest(otherUser.getId());
 
-        assertEquals(FriendshipStatus.ACCEPTED, pendingRequest.getStatus());
-        assertEquals(currentUser.getId(), pendingRequest.getActionUserId());
-        verify(friendshipRepository, times(1)).save(pendingRequest);
+        verify(friendshipRepository, never()).save(any());
+        verify(friendshipRepository).upsertEdges(1L, 2L, "ACCEPTED", currentUser.getId());
+        verify(socialGraphService).connect(currentUser.getId(), otherUser.getId());
+        verify(timelineFanoutService, times(1)).backfillConnection(currentUser.getId(), otherUser.getId());
+    }
+
+    @Test
+    void acceptFriendRequest_InsideTransaction_UpdatesGraphOnlyAfterCommit() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        when(friendshipRepository.respondToRequest(1L, 2L, otherUser.getId(), currentUser.getId(), "ACCEPTED")).thenReturn(1);
+
+        // When
+        friendshipService.acceptFriendRequest(otherUser.getId());
+
+        // Then: chưa commit thì chưa đụng tới đồ thị, gợi ý hay timeline
+        verifyNoInteractions(socialGraphService, friendSuggestionService, timelineFanoutService);
+        completeTransaction(true);
+        verify(socialGraphService).connect(currentUser.getId(), otherUser.getId());
+        verify(friendSuggestionService).evict(currentUser.getId(), otherUser.getId());
+        verify(timelineFanoutService).backfillConnection(currentUser.getId(), otherUser.getId());
+    }
+
+    @Test
+    void acceptFriendRequest_WhenTransactionRollsBack_LeavesInMemoryStateUntouched() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        when(friendshipRepository.respondToRequest(1L, 2L, otherUser.getId(), currentUser.getId(), "ACCEPTED")).thenReturn(1);
+
+        // When
+        friendshipService.acceptFriendRequest(otherUser.getId());
+        completeTransaction(false);
+
+        // Then
+        verifyNoInteractions(socialGraphService, friendSuggestionService, timelineFanoutService);
     }
 
     @Test
     void acceptFriendRequest_InvalidState_ThrowsException() {
-        // Yêu cầu không phải PENDING
-        Friendship acceptedRequest = Friendship.builder().status(FriendshipStatus.ACCEPTED).build();
-        when(friendshipRepository.findById(any(FriendshipId.class))).thenReturn(Optional.of(acceptedRequest));
+        // Yêu cầu không phải PENDING: UPDATE có điều kiện không đổi dòng nào
+        when(friendshipRepository.respondToRequest(anyLong(), anyLong(), anyLong(), anyLong(), any())).thenReturn(0);
+        when(friendshipRepository.existsById(any(FriendshipId.class))).thenReturn(true);
 
         assertThrows(IllegalStateException.class, () -> {
             friendshipService.acceptFriendRequest(otherUser.getId());
         });
+        verify(friendshipRepository, never()).upsertEdges(anyLong(), anyLong(), any(), anyLong());
+        verify(socialGraphService, never()).connect(anyLong(), anyLong());
+    }
+
+    @Test
+    void acceptFriendRequest_NoRequest_ThrowsNotFound() {
+        when(friendshipRepository.existsById(any(FriendshipId.class))).thenReturn(false);
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> {
+            friendshipService.acceptFriendRequest(otherUser.getId());
+        });
+        assertEquals("Friendship request not found.", exception.getMessage());
     }
 
     @Test
     void unfriend_Success() {
-        Friendship acceptedFriendship = Friendship.builder()
-                .userOneId(1L).userTwoId(2L)
-                .status(FriendshipStatus.ACCEPTED)
-                .build();
-        when(friendshipRepository.findById(any(FriendshipId.class))).thenReturn(Optional.of(acceptedFriendship));
-        doNothing().when(friendshipRepository).delete(acceptedFriendship);
+        when(friendshipRepository.deleteFriendship(1L, 2L)).thenReturn(1);
 
         friendshipService.unfriend(otherUser.getId());
 
-        verify(friendshipRepository, times(1)).delete(acceptedFriendship);
+        verify(friendshipRepository, never()).delete(any());
+        verify(friendshipRepository).deleteEdges(currentUser.getId(), otherUser.getId());
+        verify(socialGraphService).disconnect(currentUser.getId(), otherUser.getId());
+        verify(timelineFanoutService, times(1)).removeConnection(currentUser.getId(), otherUser.getId());
     }
 
     @Test
     void getFriendList_ReturnsFriendProfiles() {
-        Friendship friendship = Friendship.builder().userOneId(1L).userTwoId(2L).status(FriendshipStatus.ACCEPTED).build();
-        when(friendshipRepository.findAcceptedFriends(currentUser.getId())).thenReturn(Collections.singletonList(friendship));
+        when(socialGraphService.friendsOf(currentUser.getId())).thenReturn(new long[]{otherUser.getId()});
         when(userRepository.findAllById(Collections.singletonList(otherUser.getId()))).thenReturn(Collections.singletonList(otherUser));
         when(userService.mapUserToProfileResponse(otherUser)).thenReturn(new UserProfileResponse());
 
@@ -155,31 +239,99 @@ class FriendshipServiceTest {
         assertEquals(1, friends.size());
     }
 
+    @Test
+    void getFriendsByCursor_ByName_ShouldReturnNextCursorFromLastRow() {
+        when(friendshipRepository.findFriendsByName(eq(currentUser.getId()), any(Limit.class))).thenReturn(List.of(
+                new FriendResponse(5L, "Anna", null, null),
+                new FriendResponse(2L, null, null, null),
+                new FriendResponse(7L, "Zed", null, null)));
+
+        CursorPageResponse<FriendResponse> page = friendshipService.getFriendsByCursor(null, 2, "name");
+
+        assertEquals(2, page.getContent().size());
+        assertTrue(page.isHasNext());
+        // Tên null được mã hóa thành chuỗi rỗng, đúng với COALESCE trong truy vấn
+        assertTrue(page.getNextCursor().startsWith("n"));
+        assertEquals(new CursorUtils.NameCursor("", 2L), CursorUtils.decodeNameCursor(page.getNextCursor().substring(1)));
+        verify(userRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void getFriendsByCursor_Recent_ShouldSeekBeforeCursor() {
+        LocalDateTime since = LocalDateTime.of(2024, 1, 1, 10, 0);
+        when(friendshipRepository.findFriendsByDateBefore(eq(currentUser.getId()), eq(since), eq(9L), any(Limit.class)))
+                .thenReturn(List.of(new FriendResponse(3L, "Bob", null, since.minusDays(1))));
+
+        CursorPageResponse<FriendResponse> page = friendshipService.getFriendsByCursor(
+                "r" + CursorUtils.encodeTimeCursor(since, 9L), 20, "recent");
+
+        assertEquals(1, page.getContent().size());
+        assertFalse(page.isHasNext());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getFriendsByCursor_CursorFromOtherSort_ThrowsWithoutQuerying() {
+        String recentCursor = "r" + CursorUtils.encodeTimeCursor(LocalDateTime.of(2024, 1, 1, 10, 0), 9L);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> friendshipService.getFriendsByCursor(recentCursor, 20, "name"));
+
+        assertTrue(exception.getMessage().startsWith("Cursor does not match sort: name"));
+        verify(friendshipRepository, never()).findFriendsByNameAfter(anyLong(), any(), anyLong(), any());
+    }
+
+    @Test
+    void getMutualFriends_ShouldLoadFriendIdsOnceAndIntersectInMemory() {
+        Long2ObjectOpenHashMap<long[]> friends = new Long2ObjectOpenHashMap<>();
+        friends.put(1L, new long[]{4, 5, 7});
+        friends.put(2L, new long[]{4, 7, 9});
+        friends.put(3L, new long[]{8});
+        when(socialGraphService.sortedFriendsOf(List.of(2L, 3L, 1L))).thenReturn(friends);
+
+        List<MutualFriendsResponse> result = friendshipService.getMutualFriends(List.of(2L, 3L, 2L, 1L), 1);
+
+        assertEquals(2, result.size());
+        assertEquals(2L, result.get(0).getUserId());
+        assertEquals(2, result.get(0).getMutualFriendCount());
+        assertEquals(List.of(4L), result.get(0).getMutualFriendIds());
+        assertEquals(0, result.get(1).getMutualFriendCount());
+        verify(socialGraphService, times(1)).sortedFriendsOf(anyList());
+    }
+
+    @Test
+    void getFriendshipStatuses_ShouldResolveAllPairsWithOneQuery() {
+        UserEdge pendingFromThree = UserEdge.builder()
+                .userId(1L).otherId(3L).status(FriendshipStatus.PENDING).actionUserId(3L).build();
+        UserEdge accepted = UserEdge.builder()
+                .userId(1L).otherId(2L).status(FriendshipStatus.ACCEPTED).actionUserId(2L).build();
+        when(friendshipRepository.findRelationsWith(currentUser.getId(), List.of(2L, 3L, 4L)))
+                .thenReturn(List.of(pendingFromThree, accepted));
+
+        Map<Long, String> statuses = friendshipService.getFriendshipStatuses(List.of(1L, 2L, 3L, 4L));
+
+        assertEquals(Map.of(1L, "SELF", 2L, "FRIENDS", 3L, "PENDING_RECEIVED", 4L, "NONE"), statuses);
+        verify(friendshipRepository, never()).findById(any());
+    }
+
     @Test
     void declineFriendRequest_Success() {
-        // Given
-        Friendship pendingRequest = Friendship.builder()
-                .userOneId(1L).userTwoId(2L)
-                .status(FriendshipStatus.PENDING)
-                .actionUserId(otherUser.getId()) // otherUser đã gửi yêu cầu
-                .build();
-        when(friendshipRepository.findById(any(FriendshipId.class))).thenReturn(Optional.of(pendingRequest));
+        // Given: otherUser đã gửi yêu cầu
+        when(friendshipRepository.respondToRequest(1L, 2L, otherUser.getId(), currentUser.getId(), "DECLINED")).thenReturn(1);
 
         // When
         friendshipService.declineFriendRequest(otherUser.getId());
 
         // Then
-        verify(friendshipRepository, times(1)).save(pendingRequest);
-        assertEquals(FriendshipStatus.DECLINED, pendingRequest.getStatus());
-        assertEquals(currentUser.getId(), pendingRequest.getActionUserId());
+        verify(friendshipRepository).upsertEdges(1L, 2L, "DECLINED", currentUser.getId());
+        verify(socialGraphService, never()).connect(anyLong(), anyLong());
     }
 
 
     @Test
     void declineOrCancelFriendRequest_NoPendingRequest_ThrowsException() {
-        // Given
-        Friendship acceptedRequest = Friendship.builder().status(FriendshipStatus.ACCEPTED).build();
-        when(friendshipRepository.findById(any(FriendshipId.class))).thenReturn(Optional.of(acceptedRequest));
+        // Given: quan hệ tồn tại nhưng không còn ở trạng thái chờ
+        when(friendshipRepository.existsById(any(FriendshipId.class))).thenReturn(true);
 
         // When & Then
         assertThrows(IllegalStateException.class, () -> {
@@ -189,13 +341,8 @@ class FriendshipServiceTest {
 
     @Test
     void getPendingFriendRequests_ReturnsRequesterProfiles() {
-        // Given
-        Friendship pendingRequest = Friendship.builder()
-                .userOneId(1L).userTwoId(2L)
-                .status(FriendshipStatus.PENDING)
-                .actionUserId(otherUser.getId()) // otherUser gửi yêu cầu cho currentUser
-                .build();
-        when(friendshipRepository.findPendingRequestsForUser(currentUser.getId())).thenReturn(Collections.singletonList(pendingRequest));
+        // Given: otherUser gửi yêu cầu cho currentUser
+        when(friendshipRepository.findPendingRequesterIds(currentUser.getId())).thenReturn(Collections.singletonList(otherUser.getId()));
         when(userRepository.findAllById(Collections.singletonList(otherUser.getId()))).thenReturn(Collections.singletonList(otherUser));
         when(userService.mapUserToProfileResponse(otherUser)).thenReturn(new UserProfileResponse());
 
@@ -214,95 +361,171 @@ class FriendshipServiceTest {
     @Test
     void cancelFriendRequest_Success() {
         // Given: currentUser đã gửi yêu cầu cho otherUser
-        Friendship sentRequest = Friendship.builder()
-                .userOneId(1L).userTwoId(2L)
-                .status(FriendshipStatus.PENDING)
-                .actionUserId(currentUser.getId())
-                .build();
-        when(friendshipRepository.findById(any(FriendshipId.class))).thenReturn(Optional.of(sentRequest));
-        doNothing().when(friendshipRepository).delete(any(Friendship.class));
+        when(friendshipRepository.deleteRequest(1L, 2L, currentUser.getId())).thenReturn(1);
 
         // When
         friendshipService.cancelFriendRequest(otherUser.getId());
 
         // Then
-        verify(friendshipRepository, times(1)).delete(sentRequest);
+        verify(friendshipRepository).deleteEdges(currentUser.getId(), otherUser.getId());
     }
 
     @Test
     void cancelFriendRequest_NotSender_ThrowsException() {
-        // Given: otherUser gửi yêu cầu, currentUser không phải người gửi
-        Friendship receivedRequest = Friendship.builder()
-                .status(FriendshipStatus.PENDING)
-                .actionUserId(otherUser.getId())
-                .build();
-        when(friendshipRepository.findById(any(FriendshipId.class))).thenReturn(Optional.of(receivedRequest));
+        // Given: otherUser gửi yêu cầu, currentUser không phải người gửi -> DELETE có điều kiện không xóa dòng nào
+        when(friendshipRepository.deleteRequest(1L, 2L, currentUser.getId())).thenReturn(0);
+        when(friendshipRepository.existsById(any(FriendshipId.class))).thenReturn(true);
 
         // When & Then
         assertThrows(IllegalStateException.class, () -> {
             friendshipService.cancelFriendRequest(otherUser.getId());
         });
+        verify(friendshipRepository, never()).deleteEdges(anyLong(), anyLong());
     }
 
     @Test
     void blockUser_NewRelationship_CreatesAndBlocks() {
-        // Given: Chưa có quan hệ nào trước đó
-        when(friendshipRepository.findById(any(FriendshipId.class))).thenReturn(Optional.empty());
+        // Given: MERGE tạo mới hoặc ghi đè quan hệ cũ
+        when(friendshipRepository.block(1L, 2L, currentUser.getId())).thenReturn(1);
 
         // When
         friendshipService.blockUser(otherUser.getId());
 
         // Then
-        ArgumentCaptor<Friendship> friendshipCaptor = ArgumentCaptor.forClass(Friendship.class);
-        verify(friendshipRepository, times(1)).save(friendshipCaptor.capture());
-        Friendship savedFriendship = friendshipCaptor.getValue();
-        assertEquals(FriendshipStatus.BLOCKED, savedFriendship.getStatus());
-        assertEquals(currentUser.getId(), savedFriendship.getActionUserId());
+        verify(friendshipRepository).upsertEdges(1L, 2L, "BLOCKED", currentUser.getId());
+        verify(socialGraphService).disconnect(currentUser.getId(), otherUser.getId());
+        verify(blockListService).onBlocked(currentUser.getId(), otherUser.getId());
     }
 
     @Test
-    void blockUser_ExistingRelationship_UpdatesToBlocked() {
-        // Given: Hai người đã là bạn
-        Friendship acceptedFriendship = Friendship.builder().status(FriendshipStatus.ACCEPTED).build();
-        when(friendshipRepository.findById(any(FriendshipId.class))).thenReturn(Optional.of(acceptedFriendship));
+    void blockUser_AlreadyBlockedByMe_DoesNothing() {
+        // Given: currentUser đã chặn từ trước, MERGE không đổi dòng nào
+        when(friendshipRepository.block(1L, 2L, currentUser.getId())).thenReturn(0);
 
         // When
         friendshipService.blockUser(otherUser.getId());
 
         // Then
-        verify(friendshipRepository, times(1)).save(acceptedFriendship);
-        assertEquals(FriendshipStatus.BLOCKED, acceptedFriendship.getStatus());
+        verify(friendshipRepository, never()).upsertEdges(anyLong(), anyLong(), any(), anyLong());
+        verify(blockListService, never()).onBlocked(anyLong(), anyLong());
+        verify(timelineFanoutService, never()).removeConnection(anyLong(), anyLong());
+    }
+
+    @Test
+    void blockUser_WhenTransactionRollsBack_LeavesInMemoryStateUntouched() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        when(friendshipRepository.block(1L, 2L, currentUser.getId())).thenReturn(1);
+
+        // When
+        friendshipService.blockUser(otherUser.getId());
+        completeTransaction(false);
+
+        // Then
+        verifyNoInteractions(socialGraphService, blockListService, friendSuggestionService, timelineFanoutService);
     }
 
     @Test
     void unblockUser_Success() {
         // Given: currentUser đã chặn otherUser
-        Friendship blockedRelationship = Friendship.builder()
-                .status(FriendshipStatus.BLOCKED)
-                .actionUserId(currentUser.getId())
-                .build();
-        when(friendshipRepository.findById(any(FriendshipId.class))).thenReturn(Optional.of(blockedRelationship));
-        doNothing().when(friendshipRepository).delete(any(Friendship.class));
+        when(friendshipRepository.deleteBlock(1L, 2L, currentUser.getId())).thenReturn(1);
 
         // When
         friendshipService.unblockUser(otherUser.getId());
 
         // Then
-        verify(friendshipRepository, times(1)).delete(blockedRelationship);
+        verify(friendshipRepository).deleteEdges(currentUser.getId(), otherUser.getId());
+        verify(blockListService).onUnblocked(currentUser.getId(), otherUser.getId());
     }
 
     @Test
     void unblockUser_NotBlocker_ThrowsException() {
-        // Given: otherUser đã chặn currentUser
-        Friendship blockedRelationship = Friendship.builder()
-                .status(FriendshipStatus.BLOCKED)
-                .actionUserId(otherUser.getId())
-                .build();
-        when(friendshipRepository.findById(any(FriendshipId.class))).thenReturn(Optional.of(blockedRelationship));
+        // Given: otherUser đã chặn currentUser -> DELETE có điều kiện không xóa dòng nào
+        when(friendshipRepository.existsById(any(FriendshipId.class))).thenReturn(true);
 
         // When & Then
         assertThrows(IllegalStateException.class, () -> {
             friendshipService.unblockUser(otherUser.getId());
         });
+        verify(blockListService, never()).onUnblocked(anyLong(), anyLong());
+    }
+
+    private static UserEdge edge(long otherId, FriendshipStatus status, long actionUserId) {
+        return UserEdge.builder().userId(1L).otherId(otherId).status(status).actionUserId(actionUserId).build();
+    }
+
+    @Test
+    void acceptFriendRequests_ShouldReportEveryIdAndWriteOnlyValidOnesInOneBatch() {
+        // Given: 2 và 3 đã gửi lời mời, 4 là bạn, 5 chưa có quan hệ, 6 do mình gửi; lời mời của 3 bị xử lý ở nơi khác giữa chừng
+        when(friendshipRepository.findRelationsWith(eq(1L), anyList())).thenReturn(List.of(
+                edge(2L, FriendshipStatus.PENDING, 2L),
+                edge(3L, FriendshipStatus.PENDING, 3L),
+                edge(4L, FriendshipStatus.ACCEPTED, 4L),
+                edge(6L, FriendshipStatus.PENDING, 1L)));
+        when(friendshipRepository.respondToRequests(1L, List.of(2L, 3L), FriendshipStatus.ACCEPTED))
+                .thenReturn(new int[]{1, 0});
+
+        // When
+        List<FriendRequestResultResponse> results =
+                friendshipService.acceptFriendRequests(List.of(2L, 3L, 4L, 5L, 6L, 2L, 1L));
+
+        // Then: mỗi id một kết quả, theo thứ tự request
+        assertEquals(List.of(2L, 3L, 4L, 5L, 6L, 1L), results.stream().map(FriendRequestResultResponse::getUserId).toList());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("Invalid friend request or you are not the recipient.", results.get(1).getError());
+        assertEquals("Invalid friend request or you are not the recipient.", results.get(2).getError());
+        assertEquals("Friendship request not found.", results.get(3).getError());
+        assertEquals("Invalid friend request or you are not the recipient.", results.get(4).getError());
+        assertEquals("Cannot create friendship with oneself.", results.get(5).getError());
+
+        verify(socialGraphService).connect(1L, 2L);
+        verify(timelineFanoutService).backfillConnection(1L, 2L);
+        verify(socialGraphService, never()).connect(1L, 3L);
+        verify(friendshipRepository, never()).save(any());
+    }
+
+    @Test
+    void acceptFriendRequests_WhenTransactionRollsBack_LeavesInMemoryStateUntouched() {
+        // Given
+        TransactionSynchronizationManager.initSynchronization();
+        when(friendshipRepository.findRelationsWith(eq(1L), anyList())).thenReturn(List.of(
+                edge(2L, FriendshipStatus.PENDING, 2L),
+                edge(3L, FriendshipStatus.PENDING, 3L)));
+        when(friendshipRepository.respondToRequests(1L, List.of(2L, 3L), FriendshipStatus.ACCEPTED))
+                .thenReturn(new int[]{1, 1});
+
+        // When
+        friendshipService.acceptFriendRequests(List.of(2L, 3L));
+        completeTransaction(false);
+
+        // Then
+        verifyNoInteractions(socialGraphService, friendSuggestionService, timelineFanoutService);
+    }
+
+    @Test
+    void declineFriendRequests_NothingValid_ShouldNotWrite() {
+        when(friendshipRepository.findRelationsWith(eq(1L), anyList())).thenReturn(List.of(
+                edge(2L, FriendshipStatus.PENDING, 1L)));
+
+        List<FriendRequestResultResponse> results = friendshipService.declineFriendRequests(List.of(2L));
+
+        assertFalse(results.get(0).isSuccess());
+        assertEquals("No pending request to decline.", results.get(0).getError());
+        verify(friendshipRepository, never()).respondToRequests(anyLong(), anyList(), any());
+    }
+
+    @Test
+    void cancelFriendRequests_ShouldOnlyCancelRequestsISent() {
+        when(friendshipRepository.findRelationsWith(eq(1L), anyList())).thenReturn(List.of(
+                edge(2L, FriendshipStatus.PENDING, 1L),
+                edge(3L, FriendshipStatus.PENDING, 3L)));
+        when(friendshipRepository.cancelRequests(1L, List.of(2L))).thenReturn(new int[]{1});
+
+        List<FriendRequestResultResponse> results = friendshipService.cancelFriendRequests(List.of(2L, 3L));
+
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("No sent request to cancel.", results.get(1).getError());
+        verify(friendSuggestionService).evict(1L, 2L);
+        verify(friendSuggestionService, never()).evict(1L, 3L);
     }
-}
\ No newline at end of file
+}
@@ -1,26 +1,41 @@
 package com.example.socialnetwork.unit.service;
 
+import com.example.socialnetwork.cache.LikedPostsCache;
+import com.example.socialnetwork.cache.TimelineCache;
+import com.example.socialnetwork.dto.projection.LikeToggleResult;
+import com.example.socialnetwork.dto.response.CursorPageResponse;
+import com.example.socialnetwork.dto.response.LikerResponse;
 import com.example.socialnetwork.entity.Post;
+import com.example.socialnetwork.entity.PostLikeId;
 import com.example.socialnetwork.entity.User;
 import com.example.socialnetwork.repository.PostLikeRepository;
 import com.example.socialnetwork.repository.PostRepository;
 import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.service.BlockListService;
 import com.example.socialnetwork.service.LikeService;
+import com.example.socialnetwork.service.LikeWriteBehindBuffer;
+import com.example.socialnetwork.service.PostCounterService;
+import com.example.socialnetwork.util.CursorUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,6 +47,16 @@ class LikeServiceTest {
     private PostRepository postRepository;
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private TimelineCache timelineCache;
+    @Mock
+    private PostCounterService postCounterService;
+    @Mock
+    private LikeWriteBehindBuffer likeWriteBehindBuffer;
+    @Mock
+    private LikedPostsCache likedPostsCache;
+    @Mock
+    private BlockListService blockListService;
 
     @InjectMocks
     private LikeService likeService;
@@ -58,15 +83,17 @@ class LikeServiceTest {
     void toggleLike_WhenNotLiked_ShouldLikePost() {
         // Given: Định nghĩa tất cả các stub cần thiết cho bài test này
         mockSecurityContext();
-        when(postRepository.findById(post.getId())).thenReturn(Optional.of(post));
-        when(postLikeRepository.existsById(any())).thenReturn(false);
-        when(postLikeRepository.countByPostId(anyLong())).thenReturn(1L);
+        when(postLikeRepository.toggle(currentUser.getId(), post.getId()))
+                .thenReturn(Optional.of(new LikeToggleResult(true, 0L)));
+        when(postCounterService.pendingLikes(post.getId())).thenReturn(1L);
 
         // When
         Map<String, Object> result = likeService.toggleLike(post.getId());
 
         // Then
-        verify(postLikeRepository, times(1)).save(any());
+        verify(postLikeRepository, times(1)).toggle(currentUser.getId(), post.getId());
+        verify(postCounterService).addLikes(post.getId(), 1);
+        verify(likedPostsCache).update(currentUser.getId(), post.getId(), true);
         assertTrue((Boolean) result.get("isLiked"));
         assertEquals(1L, result.get("likeCount"));
     }
@@ -75,15 +102,16 @@ class LikeServiceTest {
     void toggleLike_WhenAlreadyLiked_ShouldUnlikePost() {
         // Given: Định nghĩa tất cả các stub cần thiết cho bài test này
         mockSecurityContext();
-        when(postRepository.findById(post.getId())).thenReturn(Optional.of(post));
-        when(postLikeRepository.existsById(any())).thenReturn(true);
-        when(postLikeRepository.countByPostId(anyLong())).thenReturn(0L);
+        when(postLikeRepository.toggle(currentUser.getId(), post.getId()))
+                .thenReturn(Optional.of(new LikeToggleResult(false, 1L)));
+        when(postCounterService.pendingLikes(post.getId())).thenReturn(-1L);
 
         // When
         Map<String, Object> result = likeService.toggleLike(post.getId());
 
         // Then
-        verify(postLikeRepository, times(1)).deleteById(any());
+        verify(postLikeRepository, times(1)).toggle(currentUser.getId(), post.getId());
+        verify(postCounterService).addLikes(post.getId(), -1);
         assertFalse((Boolean) result.get("isLiked"));
         assertEquals(0L, result.get("likeCount"));
     }
@@ -92,7 +120,7 @@ class LikeServiceTest {
     void toggleLike_PostNotFound_ThrowsException() {
         // Given: Định nghĩa tất cả các stub cần thiết cho bài test này
         mockSecurityContext();
-        when(postRepository.findById(999L)).thenReturn(Optional.empty());
+        when(postLikeRepository.toggle(currentUser.getId(), 999L)).thenReturn(Optional.empty());
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -100,4 +128,79 @@ class LikeServiceTest {
         });
         assertEquals("Post not found with id: 999", exception.getMessage());
     }
-}
\ No newline at end of file
+
+    @Test
+    void toggleLike_WriteBehind_ShouldBufferWithoutTouchingPostLikes() {
+        // Given
+        mockSecurityContext();
+        when(likeWriteBehindBuffer.isEnabled()).thenReturn(true);
+        when(postRepository.findLikeCountById(post.getId())).thenReturn(Optional.of(4L));
+        when(likeWriteBehindBuffer.toggle(new PostLikeId(currentUser.getId(), post.getId()))).thenReturn(true);
+        when(postCounterService.pendingLikes(post.getId())).thenReturn(1L);
+
+        // When
+        Map<String, Object> result = likeService.toggleLike(post.getId());
+
+        // Then
+        assertTrue((Boolean) result.get("isLiked"));
+        assertEquals(5L, result.get("likeCount"));
+        verify(postCounterService).addLikes(post.getId(), 1);
+        verifyNoInteractions(postLikeRepository);
+        verify(postRepository, never()).findById(any());
+    }
+
+    @Test
+    void findLikedPostIds_WithBitmapCache_ShouldLoadUserLikesOnce() {
+        // Given
+        Roaring64Bitmap bitmap = new Roaring64Bitmap();
+        bitmap.addLong(101L);
+        when(likedPostsCache.isEnabled()).thenReturn(true);
+        when(likedPostsCache.get(currentUser.getId())).thenReturn(null);
+        when(postLikeRepository.findAllPostIdsByUserId(currentUser.getId())).thenReturn(List.of(101L));
+        when(likedPostsCache.generation(currentUser.getId())).thenReturn(7L);
+        when(likedPostsCache.put(currentUser.getId(), List.of(101L), 7L)).thenReturn(bitmap);
+        when(likedPostsCache.filterLiked(bitmap, List.of(101L, 102L))).thenReturn(Set.of(101L));
+
+        // When
+        Set<Long> liked = likeService.findLikedPostIds(currentUser.getId(), List.of(101L, 102L));
+
+        // Then
+        assertEquals(Set.of(101L), liked);
+        verify(postLikeRepository, never()).findLikedPostIds(any(), any());
+    }
+
+    @Test
+    void findLikedPostIds_WithoutCache_ShouldUseOneBatchedQuery() {
+        // Given
+        when(likedPostsCache.isEnabled()).thenReturn(false);
+        when(postLikeRepository.findLikedPostIds(currentUser.getId(), List.of(101L, 102L))).thenReturn(List.of(102L));
+
+        // When
+        Set<Long> liked = likeService.findLikedPostIds(currentUser.getId(), List.of(101L, 102L));
+
+        // Then
+        assertEquals(Set.of(102L), liked);
+        verify(postLikeRepository, times(1)).findLikedPostIds(any(), any());
+    }
+
+    @Test
+    void getLikers_WhenMoreThanPageSize_ShouldReturnNextCursor() {
+        // Given: lấy dư 1 bản ghi để biết còn trang sau
+        LocalDateTime now = LocalDateTime.now();
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(currentUser.getEmail(), null));
+        when(userRepository.findIdByEmail(currentUser.getEmail())).thenReturn(Optional.of(currentUser.getId()));
+        when(postLikeRepository.findLikers(eq(post.getId()), eq(currentUser.getId()), eq(false), any(Limit.class))).thenReturn(List.of(
+                new LikerResponse(2L, "User 2", null, now),
+                new LikerResponse(1L, "User 1", null, now.minusMinutes(1))));
+
+        // When
+        CursorPageResponse<LikerResponse> page = likeService.getLikers(post.getId(), null, 1);
+
+        // Then
+        assertEquals(1, page.getContent().size());
+        assertTrue(page.isHasNext());
+        assertEquals(2L, CursorUtils.decodeTimeCursor(page.getNextCursor()).id());
+        verify(postRepository, never()).existsById(any());
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.socialnetwork.unit.service;
+
+import com.example.socialnetwork.entity.PostLikeId;
+import com.example.socialnetwork.repository.PostLikeRepository;
+import com.example.socialnetwork.service.LikeWriteBehindBuffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LikeWriteBehindBufferTest {
+
+    @Mock
+    private PostLikeRepository postLikeRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private LikeWriteBehindBuffer buffer;
+    private final PostLikeId likeId = new PostLikeId(1L, 101L);
+
+    @BeforeEach
+    void setUp() {
+        buffer = new LikeWriteBehindBuffer(postLikeRepository, jdbcTemplate, true);
+    }
+
+    @Test
+    void toggle_LikeThenUnlike_ShouldCoalesceToNoOp() {
+        // Given
+        when(postLikeRepository.existsById(likeId)).thenReturn(false);
+
+        // When
+        assertTrue(buffer.toggle(likeId));
+        assertFalse(buffer.toggle(likeId));
+        buffer.flush();
+
+        // Then: DB chỉ được hỏi một lần, không có gì để ghi
+        verify(postLikeRepository, times(1)).existsById(likeId);
+        verifyNoInteractions(jdbcTemplate);
+        assertNull(buffer.isLiked(likeId));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldInsertBufferedLikesInOneBatch() {
+        // Given
+        PostLikeId other = new PostLikeId(2L, 101L);
+        when(postLikeRepository.existsById(any())).thenReturn(false);
+        buffer.toggle(likeId);
+        buffer.toggle(other);
+        assertTrue(buffer.isLiked(likeId));
+
+        // When
+        buffer.flush();
+
+        // Then
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO post_likes"), captor.capture());
+        assertEquals(2, captor.getValue().size());
+        verify(jdbcTemplate, never()).batchUpdate(startsWith("DELETE"), anyList());
+        assertNull(buffer.isLiked(likeId));
+    }
+
+    @Test
+    void toggle_AlreadyLikedInDb_ShouldBufferDelete() {
+        // Given
+        when(postLikeRepository.existsById(likeId)).thenReturn(true);
+
+        // When
+        assertFalse(buffer.toggle(likeId));
+        buffer.flush();
+
+        // Then
+        verify(jdbcTemplate).batchUpdate(startsWith("DELETE FROM post_likes"), anyList());
+    }
+
+    @Test
+    void flush_WhenBatchFails_ShouldKeepBufferedState() {
+        // Given
+        when(postLikeRepository.existsById(likeId)).thenReturn(false);
+        buffer.toggle(likeId);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        // When & Then
+        assertThrows(DataAccessResourceFailureException.class, () -> buffer.flush());
+        assertTrue(buffer.isLiked(likeId));
+    }
+}
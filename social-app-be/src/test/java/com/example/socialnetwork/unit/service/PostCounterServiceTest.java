@@ -0,0 +1,140 @@
+package com.example.socialnetwork.unit.service;
+
+import com.example.socialnetwork.service.LikeWriteBehindBuffer;
+import com.example.socialnetwork.service.PostCounterService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostCounterServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private LikeWriteBehindBuffer likeWriteBehindBuffer;
+
+    @InjectMocks
+    private PostCounterService postCounterService;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldCoalesceDeltasIntoOneRowPerPost() {
+        // Given
+        postCounterService.addLikes(101L, 1);
+        postCounterService.addLikes(101L, 1);
+        postCounterService.addComments(101L, 1);
+        postCounterService.addLikes(102L, 1);
+        postCounterService.addLikes(102L, -1);
+        assertEquals(2L, postCounterService.pendingLikes(101L));
+
+        // When
+        postCounterService.flush();
+
+        // Then: bài 102 thích rồi bỏ thích nên không được ghi
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), captor.capture());
+        assertEquals(1, captor.getValue().size());
+        assertArrayEquals(new Object[]{2L, 1L, 101L}, captor.getValue().get(0));
+        assertEquals(0L, postCounterService.pendingLikes(101L));
+    }
+
+    @Test
+    void flush_WhenNothingPending_ShouldNotTouchDatabase() {
+        postCounterService.flush();
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void flush_WhenBatchFails_ShouldKeepDeltasForNextFlush() {
+        // Given
+        postCounterService.addComments(101L, 3);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        // When & Then
+        assertThrows(DataAccessResourceFailureException.class, () -> postCounterService.flush());
+        assertEquals(3L, postCounterService.pendingComments(101L));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void reconcile_WhenDeltaArrivesMidStatement_ShouldReconcilePostAgainAfterFlushingIt() {
+        // Given: lượt thích của bài 101 được commit (và cộng delta) trong lúc câu đối soát toàn bảng đang chạy,
+        // nên câu lệnh có thể đã đếm lượt thích đó mà delta thì chưa vào cột
+        when(jdbcTemplate.update(eq(reconcileAllSql()), anyString())).thenAnswer(invocation -> {
+            postCounterService.addLikes(101L, 1);
+            return 4;
+        });
+        when(jdbcTemplate.update(eq(reconcilePostsSql()), anyString())).thenReturn(1);
+
+        // When
+        int fixed = postCounterService.reconcile();
+
+        // Then: lượt đầu không bỏ qua bài nào; delta của 101 được ghi trước, rồi 101 được đối soát lại riêng
+        assertEquals(5, fixed);
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).update(reconcileAllSql(), "[]");
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        inOrder.verify(jdbcTemplate).batchUpdate(anyString(), captor.capture());
+        assertArrayEquals(new Object[]{1L, 0L, 101L}, captor.getValue().get(0));
+        inOrder.verify(jdbcTemplate).update(reconcilePostsSql(), "[101]");
+        inOrder.verifyNoMoreInteractions();
+        assertEquals(0L, postCounterService.pendingLikes(101L));
+    }
+
+    @Test
+    void reconcile_WhenNothingChangesDuringStatement_ShouldRunSinglePass() {
+        when(jdbcTemplate.update(eq(reconcileAllSql()), anyString())).thenReturn(2);
+
+        assertEquals(2, postCounterService.reconcile());
+
+        verify(jdbcTemplate).update(reconcileAllSql(), "[]");
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void reconcile_WhenLikeIsStillBuffered_ShouldFlushBufferFirstAndSkipThatPost() {
+        // Given: bài 101 còn một lượt thích trong bộ đệm write-behind (delta đã có, dòng post_likes thì chưa)
+        when(likeWriteBehindBuffer.pendingPostIds()).thenReturn(new HashSet<>(Set.of(101L)), new HashSet<>());
+        when(jdbcTemplate.update(eq(reconcileAllSql()), anyString())).thenReturn(2);
+        when(jdbcTemplate.update(eq(reconcilePostsSql()), anyString())).thenReturn(0);
+
+        // When
+        int fixed = postCounterService.reconcile();
+
+        // Then: bộ đệm được ghi trước mỗi lượt; 101 bị bỏ qua ở lượt đầu và chỉ được đối soát khi đã ghi xong
+        assertEquals(2, fixed);
+        InOrder inOrder = inOrder(likeWriteBehindBuffer, jdbcTemplate);
+        inOrder.verify(likeWriteBehindBuffer).flush();
+        inOrder.verify(jdbcTemplate).update(reconcileAllSql(), "[101]");
+        inOrder.verify(likeWriteBehindBuffer).flush();
+        inOrder.verify(jdbcTemplate).update(reconcilePostsSql(), "[101]");
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    private static String reconcileAllSql() {
+        return (String) ReflectionTestUtils.getField(PostCounterService.class, "RECONCILE_ALL_SQL");
+    }
+
+    private static String reconcilePostsSql() {
+        return (String) ReflectionTestUtils.getField(PostCounterService.class, "RECONCILE_POSTS_SQL");
+    }
+}
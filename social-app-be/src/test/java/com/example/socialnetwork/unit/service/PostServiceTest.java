@@ -1,17 +1,28 @@
 package com.example.socialnetwork.unit.service;
 
+import com.example.socialnetwork.cache.TimelineCache;
+import com.example.socialnetwork.dto.projection.PostSummary;
 import com.example.socialnetwork.dto.request.UpdatePostRequest;
+import com.example.socialnetwork.dto.response.CommentResponse;
 import com.example.socialnetwork.dto.response.PostResponse;
+import com.example.socialnetwork.dto.response.UserProfileResponse;
 import com.example.socialnetwork.entity.Post;
 import com.example.socialnetwork.entity.Role;
 import com.example.socialnetwork.entity.User;
 import com.example.socialnetwork.repository.PostRepository;
 import com.example.socialnetwork.repository.UserRepository;
+import com.example.socialnetwork.service.BlockListService;
+import com.example.socialnetwork.service.CommentService;
+import com.example.socialnetwork.service.FanoutPolicy;
 import com.example.socialnetwork.service.FileStorageService;
+import com.example.socialnetwork.service.LikeService;
+import com.example.socialnetwork.service.PostCounterService;
 import com.example.socialnetwork.service.PostService;
+import com.example.socialnetwork.service.TimelineFanoutService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
@@ -21,16 +32,22 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -42,6 +59,20 @@ class PostServiceTest {
     private UserRepository userRepository;
     @Mock
     private FileStorageService fileStorageService;
+    @Mock
+    private TimelineFanoutService timelineFanoutService;
+    @Mock
+    private TimelineCache timelineCache;
+    @Mock
+    private FanoutPolicy fanoutPolicy;
+    @Mock
+    private PostCounterService postCounterService;
+    @Mock
+    private LikeService likeService;
+    @Mock
+    private CommentService commentService;
+    @Mock
+    private BlockListService blockListService;
 
     @InjectMocks
     private PostService postService;
@@ -65,7 +96,7 @@ class PostServiceTest {
         SecurityContextHolder.getContext().setAuthentication(
                 new UsernamePasswordAuthenticationToken(user.getEmail(), null)
         );
-        when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
+        lenient().when(userRepository.findByEmail(user.getEmail())).thenReturn(Optional.of(user));
     }
 
 
@@ -95,6 +126,7 @@ class PostServiceTest {
             // Cấu hình các mock khác như bình thường
             when(fileStorageService.storeFile(any(MultipartFile.class))).thenReturn(fileName);
             when(postRepository.save(any(Post.class))).thenAnswer(invocation -> invocation.getArgument(0));
+            when(fanoutPolicy.shouldPush(user.getId())).thenReturn(true);
 
             // When
             PostResponse response = postService.createPost(content, image);
@@ -104,8 +136,29 @@ class PostServiceTest {
             assertEquals(content, response.getContent());
             assertEquals(expectedUrl, response.getImageUrl());
             verify(postRepository, times(1)).save(any(Post.class));
+            // Bài viết phải được đẩy vào timeline của tác giả và fan-out cho bạn bè
+            verify(timelineFanoutService, times(1)).publishToAuthor(any(Post.class));
+            verify(timelineFanoutService, times(1)).fanOutToFriends(any(), eq(user.getId()), any());
         }
     }
+    @Test
+    void testCreatePost_ByHighDegreeAuthor_IsPulledInsteadOfFannedOut() {
+        // Given: tác giả vượt ngưỡng số bạn bè
+        when(fanoutPolicy.shouldPush(user.getId())).thenReturn(false);
+        when(postRepository.save(any(Post.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        postService.createPost("Hello everyone", null);
+
+        // Then: không ghi vào hộp thư nào, bài viết được đánh dấu để kéo lúc đọc
+        ArgumentCaptor<Post> captor = ArgumentCaptor.forClass(Post.class);
+        verify(postRepository).save(captor.capture());
+        assertFalse(captor.getValue().isFannedOut());
+        verify(timelineFanoutService, never()).publishToAuthor(any());
+        verify(timelineFanoutService, never()).fanOutToFriends(any(), any(), any());
+        verify(fanoutPolicy).markPulled(user.getId());
+    }
+
     @Test
     void testUpdatePost_Success() {
         // Given
@@ -113,13 +166,78 @@ class PostServiceTest {
         updateRequest.setContent("Updated content");
         when(postRepository.findById(post.getId())).thenReturn(Optional.of(post));
         when(postRepository.save(any(Post.class))).thenReturn(post);
+        when(timelineCache.getPosts(List.of(post.getId()))).thenReturn(new HashMap<>());
+        when(postRepository.findSummariesByIds(List.of(post.getId()))).thenAnswer(invocation -> List.of(
+                new PostSummary(post.getId(), post.getContent(), null, post.getCreatedAt(), post.getUpdatedAt(),
+                        user.getId(), user.getEmail(), user.getFullName(), null, 2L, 1L)));
+        when(likeService.findLikedPostIds(user.getId(), List.of(post.getId()))).thenReturn(Set.of(post.getId()));
 
         // When
         PostResponse response = postService.updatePost(post.getId(), updateRequest);
 
         // Then
         assertEquals("Updated content", response.getContent());
+        assertEquals(2L, response.getLikeCount());
+        assertEquals(1L, response.getCommentCount());
+        assertTrue(response.isLikedByMe());
         verify(postRepository, times(1)).save(post);
+        verify(timelineCache, times(1)).evictPost(post.getId());
+    }
+
+    @Test
+    void testGetPostById_ShouldEmbedLatestCommentsFromOneBatchQuery() {
+        // Given
+        ReflectionTestUtils.setField(postService, "commentPreviews", 2);
+        CommentResponse latest = CommentResponse.builder().id(500L).content("Newest comment").build();
+        when(timelineCache.getPosts(List.of(post.getId()))).thenReturn(new HashMap<>());
+        when(commentService.getLatestComments(List.of(post.getId()), 2, user.getId(), false))
+                .thenReturn(Map.of(post.getId(), List.of(latest)));
+        when(postRepository.findSummariesByIds(List.of(post.getId()))).thenReturn(List.of(
+                new PostSummary(post.getId(), post.getContent(), null, post.getCreatedAt(), post.getUpdatedAt(),
+                        user.getId(), user.getEmail(), user.getFullName(), null, 0L, 1L)));
+
+        // When
+        PostResponse response = postService.getPostById(post.getId());
+
+        // Then
+        assertEquals(1, response.getLatestComments().size());
+        assertEquals("Newest comment", response.getLatestComments().get(0).getContent());
+        verify(timelineCache).putPost(any(PostResponse.class));
+    }
+
+    @Test
+    void testGetPostResponses_WhenViewerMayHaveBlocks_ShouldReadFilteredPreviewsWithoutTouchingCache() {
+        // Given: bình luận của user 8 (bị chặn) nằm trong phần xem trước được cache chung
+        ReflectionTestUtils.setField(postService, "commentPreviews", 2);
+        UserProfileResponse author = UserProfileResponse.builder().id(user.getId()).build();
+        CommentResponse visible = CommentResponse.builder().id(1L).author(UserProfileResponse.builder().id(9L).build()).build();
+        CommentResponse hidden = CommentResponse.builder().id(2L).author(UserProfileResponse.builder().id(8L).build()).build();
+        PostResponse cachedPost = PostResponse.builder().id(10L).author(author).latestComments(List.of(visible, hidden)).build();
+        when(timelineCache.getPosts(List.of(10L))).thenReturn(new HashMap<>(Map.of(10L, cachedPost)));
+        when(likeService.findLikedPostIds(user.getId(), List.of(10L))).thenReturn(Set.of());
+        when(blockListService.mayHaveBlocks(user.getId())).thenReturn(true);
+        when(commentService.getLatestComments(List.of(10L), 2, user.getId(), true)).thenReturn(Map.of(10L, List.of(visible)));
+
+        // When
+        List<PostResponse> responses = postService.getPostResponses(user.getId(), List.of(10L));
+
+        // Then
+        assertEquals(1, responses.size());
+        assertEquals(List.of(visible), responses.get(0).getLatestComments());
+        assertEquals(2, cachedPost.getLatestComments().size());
+    }
+
+    @Test
+    void testGetPostById_WhenAuthorIsBlocked_ShouldThrowNotFound() {
+        // Given
+        UserProfileResponse blockedAuthor = UserProfileResponse.builder().id(7L).build();
+        PostResponse blockedPost = PostResponse.builder().id(20L).author(blockedAuthor).build();
+        when(timelineCache.getPosts(List.of(20L))).thenReturn(new HashMap<>(Map.of(20L, blockedPost)));
+        when(likeService.findLikedPostIds(user.getId(), List.of(20L))).thenReturn(Set.of());
+        when(blockListService.isBlocked(user.getId(), 7L)).thenReturn(true);
+
+        // When & Then
+        assertThrows(RuntimeException.class, () -> postService.getPostById(20L));
     }
 
     // ... các test khác cho PostService ...
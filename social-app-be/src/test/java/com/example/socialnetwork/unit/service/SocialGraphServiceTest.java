@@ -0,0 +1,129 @@
+package com.example.socialnetwork.unit.service;
+
+import com.example.socialnetwork.entity.FriendshipStatus;
+import com.example.socialnetwork.entity.UserEdge;
+import com.example.socialnetwork.repository.FriendshipRepository;
+import com.example.socialnetwork.service.SocialGraphService;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SocialGraphServiceTest {
+
+    @Mock
+    private FriendshipRepository friendshipRepository;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SocialGraphService socialGraphService;
+
+    @BeforeEach
+    void setUp() {
+        socialGraphService = new SocialGraphService(friendshipRepository, jdbcTemplate, true);
+    }
+
+    // Giả lập việc quét bảng friendships: mỗi phần tử là một cặp (user_one_id, user_two_id)
+    private void givenAcceptedEdges(long[]... edges) {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (long[] edge : edges) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getLong(1)).thenReturn(edge[0]);
+                when(rs.getLong(2)).thenReturn(edge[1]);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+
+    @Test
+    void load_ShouldBuildSymmetricAdjacency() {
+        givenAcceptedEdges(new long[]{1, 2}, new long[]{1, 3}, new long[]{2, 3});
+
+        socialGraphService.load();
+
+        assertTrue(socialGraphService.isReady());
+        long[] friends = socialGraphService.friendsOf(1L);
+        Arrays.sort(friends);
+        assertArrayEquals(new long[]{2, 3}, friends);
+        assertTrue(socialGraphService.areFriends(3L, 2L));
+        assertEquals(2, socialGraphService.degree(3L));
+        assertEquals(0, socialGraphService.degree(99L));
+        // Sau khi nạp xong không còn truy vấn DB cho các thao tác đọc
+        verifyNoInteractions(friendshipRepository);
+    }
+
+    @Test
+    void connectAndDisconnect_ShouldUpdateBothDirections() {
+        givenAcceptedEdges(new long[]{1, 2});
+        socialGraphService.load();
+
+        socialGraphService.connect(2L, 5L);
+        socialGraphService.disconnect(1L, 2L);
+
+        assertFalse(socialGraphService.areFriends(1L, 2L));
+        assertFalse(socialGraphService.areFriends(2L, 1L));
+        assertTrue(socialGraphService.areFriends(5L, 2L));
+        assertEquals(0, socialGraphService.friendsOf(1L).length);
+    }
+
+    @Test
+    void changesDuringLoad_ShouldBeReplayedOntoLoadedGraph() {
+        // Trong lúc đang quét, (1, 2) bị hủy kết bạn và (3, 4) vừa kết bạn
+        doAnswer(invocation -> {
+            socialGraphService.disconnect(1L, 2L);
+            socialGraphService.connect(3L, 4L);
+            RowCallbackHandler handler = invocation.getArgument(1);
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong(1)).thenReturn(1L);
+            when(rs.getLong(2)).thenReturn(2L);
+            handler.processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        socialGraphService.load();
+
+        assertFalse(socialGraphService.areFriends(1L, 2L));
+        assertTrue(socialGraphService.areFriends(3L, 4L));
+    }
+
+    @Test
+    void beforeLoad_ShouldReadFromDatabase() {
+        when(friendshipRepository.findFriendIdsByUserId(1L)).thenReturn(List.of(2L, 3L));
+
+        assertFalse(socialGraphService.isReady());
+        assertArrayEquals(new long[]{2, 3}, socialGraphService.friendsOf(1L));
+    }
+
+    @Test
+    void sortedFriendsOfMany_BeforeLoad_ShouldUseOneQuery() {
+        when(friendshipRepository.findAcceptedEdgesOfUsers(List.of(1L, 2L)))
+                .thenReturn(List.of(edge(1L, 5L), edge(1L, 2L), edge(2L, 1L), edge(2L, 3L)));
+
+        Long2ObjectMap<long[]> friends = socialGraphService.sortedFriendsOf(List.of(1L, 2L));
+
+        assertArrayEquals(new long[]{2, 5}, friends.get(1L));
+        assertArrayEquals(new long[]{1, 3}, friends.get(2L));
+        verify(friendshipRepository, times(1)).findAcceptedEdgesOfUsers(anyCollection());
+    }
+
+    private static UserEdge edge(long userId, long otherId) {
+        return UserEdge.builder().userId(userId).otherId(otherId).status(FriendshipStatus.ACCEPTED).build();
+    }
+}
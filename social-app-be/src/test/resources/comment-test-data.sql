@@ -1,6 +1,8 @@
 -- Dọn dẹp dữ liệu cũ
+DELETE FROM comment_tombstones;
 DELETE FROM comments;
 DELETE FROM post_likes;
+DELETE FROM user_edges;
 DELETE FROM friendships;
 DELETE FROM posts;
 DELETE FROM users;
@@ -0,0 +1,32 @@
+DELETE FROM comment_tombstones;
+DELETE FROM comments;
+DELETE FROM post_likes;
+DELETE FROM user_edges;
+DELETE FROM friendships;
+DELETE FROM posts;
+DELETE FROM users;
+
+SET IDENTITY_INSERT users ON;
+INSERT INTO users (id, email, password, role, full_name) VALUES (1, 'user1@test.com', 'p', 'ROLE_USER', 'User One');
+INSERT INTO users (id, email, password, role, full_name) VALUES (2, 'user2@test.com', 'p', 'ROLE_USER', 'User Two');
+INSERT INTO users (id, email, password, role, full_name) VALUES (3, 'user3@test.com', 'p', 'ROLE_USER', 'User Three');
+INSERT INTO users (id, email, password, role, full_name) VALUES (4, 'user4@test.com', 'p', 'ROLE_USER', 'User Four');
+INSERT INTO users (id, email, password, role, full_name) VALUES (5, 'user5@test.com', 'p', 'ROLE_USER', 'User Five');
+INSERT INTO users (id, email, password, role, full_name) VALUES (6, 'user6@test.com', 'p', 'ROLE_USER', 'User Six');
+SET IDENTITY_INSERT users OFF;
+
+-- user1 là bạn của user2, user3; user4 là bạn của cả hai, user5 chỉ là bạn của user2
+INSERT INTO friendships (user_one_id, user_two_id, status, action_user_id) VALUES (1, 2, 'ACCEPTED', 2);
+INSERT INTO friendships (user_one_id, user_two_id, status, action_user_id) VALUES (1, 3, 'ACCEPTED', 3);
+INSERT INTO friendships (user_one_id, user_two_id, status, action_user_id) VALUES (2, 4, 'ACCEPTED', 4);
+INSERT INTO friendships (user_one_id, user_two_id, status, action_user_id) VALUES (3, 4, 'ACCEPTED', 4);
+INSERT INTO friendships (user_one_id, user_two_id, status, action_user_id) VALUES (2, 5, 'ACCEPTED', 5);
+-- user6 là bạn của user2 nhưng đã chặn user1: không được gợi ý
+INSERT INTO friendships (user_one_id, user_two_id, status, action_user_id) VALUES (2, 6, 'ACCEPTED', 6);
+INSERT INTO friendships (user_one_id, user_two_id, status, action_user_id) VALUES (1, 6, 'BLOCKED', 6);
+
+-- Bảng user_edges (hai dòng cho mỗi quan hệ), bình thường do FriendshipService ghi cùng lúc với friendships
+INSERT INTO user_edges (user_id, other_id, status, action_user_id, updated_at)
+SELECT user_one_id, user_two_id, status, action_user_id, GETDATE() FROM friendships
+UNION ALL
+SELECT user_two_id, user_one_id, status, action_user_id, GETDATE() FROM friendships;
@@ -1,5 +1,7 @@
+DELETE FROM comment_tombstones;
 DELETE FROM comments;
 DELETE FROM post_likes;
+DELETE FROM user_edges;
 DELETE FROM friendships;
 DELETE FROM posts;
 DELETE FROM users;
@@ -11,4 +13,10 @@ INSERT INTO users (id, email, password, role) VALUES (3, 'user3@test.com', 'p',
 SET IDENTITY_INSERT users OFF;
 
 -- Dữ liệu cho kịch bản test: user2 đã gửi yêu cầu cho user1
-INSERT INTO friendships (user_one_id, user_two_id, status, action_user_id) VALUES (1, 2, 'PENDING', 2);
\ No newline at end of file
+INSERT INTO friendships (user_one_id, user_two_id, status, action_user_id) VALUES (1, 2, 'PENDING', 2);
+
+-- Bảng user_edges (hai dòng cho mỗi quan hệ), bình thường do FriendshipService ghi cùng lúc với friendships
+INSERT INTO user_edges (user_id, other_id, status, action_user_id, updated_at)
+SELECT user_one_id, user_two_id, status, action_user_id, GETDATE() FROM friendships
+UNION ALL
+SELECT user_two_id, user_one_id, status, action_user_id, GETDATE() FROM friendships;
\ No newline at end of file
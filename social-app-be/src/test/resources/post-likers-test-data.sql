@@ -0,0 +1,3 @@
+-- Hai người thích bài viết 101, user2 thích sau
+INSERT INTO post_likes (user_id, post_id, created_at) VALUES (1, 101, DATEADD(minute, -2, GETDATE()));
+INSERT INTO post_likes (user_id, post_id, created_at) VALUES (2, 101, DATEADD(minute, -1, GETDATE()));
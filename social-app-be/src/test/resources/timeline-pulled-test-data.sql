@@ -0,0 +1,3 @@
+-- friend_user được coi là tác giả lớn: bài viết 102 không fan-out, không có trong hộp thư của ai
+UPDATE posts SET fanned_out = 0 WHERE id = 102;
+DELETE FROM timeline_entries WHERE post_id = 102;
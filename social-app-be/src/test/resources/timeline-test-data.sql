@@ -1,5 +1,8 @@
+DELETE FROM timeline_entries;
+DELETE FROM comment_tombstones;
 DELETE FROM comments;
 DELETE FROM post_likes;
+DELETE FROM user_edges;
 DELETE FROM friendships;
 DELETE FROM posts;
 DELETE FROM users;
@@ -14,10 +17,21 @@ SET IDENTITY_INSERT users OFF;
 -- current_user và friend_user là bạn bè
 INSERT INTO friendships (user_one_id, user_two_id, status, action_user_id) VALUES (1, 2, 'ACCEPTED', 2);
 
+-- Bảng user_edges (hai dòng cho mỗi quan hệ), bình thường do FriendshipService ghi cùng lúc với friendships
+INSERT INTO user_edges (user_id, other_id, status, action_user_id, updated_at)
+SELECT user_one_id, user_two_id, status, action_user_id, GETDATE() FROM friendships
+UNION ALL
+SELECT user_two_id, user_one_id, status, action_user_id, GETDATE() FROM friendships;
+
 -- Mỗi user đăng 1 bài viết
 SET IDENTITY_INSERT posts ON;
 INSERT INTO posts (id, content, user_id, created_at) VALUES (101, 'Post by current_user', 1, GETDATE());
 -- Tạo bài viết của friend_user trễ hơn 1 phút để kiểm tra sắp xếp
 INSERT INTO posts (id, content, user_id, created_at) VALUES (102, 'Post by friend_user', 2, DATEADD(minute, 1, GETDATE()));
 INSERT INTO posts (id, content, user_id, created_at) VALUES (103, 'Post by other_user', 3, GETDATE());
-SET IDENTITY_INSERT posts OFF;
\ No newline at end of file
+SET IDENTITY_INSERT posts OFF;
+
+-- Hộp thư timeline tương ứng (bình thường được fan-out khi tạo bài viết)
+INSERT INTO timeline_entries (user_id, post_id, author_id, created_at) SELECT 1, id, user_id, created_at FROM posts WHERE id IN (101, 102);
+INSERT INTO timeline_entries (user_id, post_id, author_id, created_at) SELECT 2, id, user_id, created_at FROM posts WHERE id IN (101, 102);
+INSERT INTO timeline_entries (user_id, post_id, author_id, created_at) SELECT 3, id, user_id, created_at FROM posts WHERE id = 103;
\ No newline at end of file
@@ -1,5 +1,7 @@
+DELETE FROM comment_tombstones;
 DELETE FROM comments;
 DELETE FROM post_likes;
+DELETE FROM user_edges;
 DELETE FROM friendships;
 DELETE FROM posts;
 DELETE FROM users;